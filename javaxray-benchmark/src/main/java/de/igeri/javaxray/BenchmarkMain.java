@@ -0,0 +1,79 @@
+package de.igeri.javaxray;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Startet JMH wie <code>org.openjdk.jmh.Main</code>, schaltet aber immer den {@link GCProfiler} ein. So stehen die
+ * Allokationsraten (<code>gc.alloc.rate.norm</code>) in jedem Bericht neben den Zeiten.
+ * 
+ * @author smolli
+ */
+public final class BenchmarkMain {
+	
+	/**
+	 * Startet die Benchmarks.
+	 * 
+	 * @param args
+	 *            Die Argumente wie bei <code>org.openjdk.jmh.Main</code>.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Ausgabe nicht geschrieben werden konnte.
+	 * @throws CommandLineOptionException
+	 *             Wird geworfen, wenn die Argumente ungültig sind.
+	 * @throws RunnerException
+	 *             Wird geworfen, wenn die Benchmarks nicht ausgeführt werden konnten.
+	 */
+	public static void main(final String[] args) throws IOException, CommandLineOptionException, RunnerException {
+		final CommandLineOptions options = new CommandLineOptions(args);
+		
+		if (options.shouldHelp()) {
+			options.showHelp();
+			return;
+		}
+		
+		if (options.shouldList() || options.shouldListWithParams() || options.shouldListProfilers() || options.shouldListResultFormats()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		
+		final OptionsBuilder builder = new OptionsBuilder();
+		
+		builder.parent(options);
+		
+		if (!BenchmarkMain.hasGCProfiler(options)) {
+			builder.addProfiler(GCProfiler.class);
+		}
+		
+		new Runner(builder.build()).run();
+	}
+	
+	/**
+	 * Prüft, ob der {@link GCProfiler} schon auf der Kommandozeile angegeben wurde.
+	 * 
+	 * @param options
+	 *            Die Optionen der Kommandozeile.
+	 * @return Gibt <code>true</code> zurück, wenn der Profiler angegeben wurde.
+	 */
+	private static boolean hasGCProfiler(final CommandLineOptions options) {
+		for (final ProfilerConfig profiler : options.getProfilers()) {
+			if ("gc".equals(profiler.getKlass()) || GCProfiler.class.getName().equals(profiler.getKlass())) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private BenchmarkMain() {}
+	
+}
@@ -0,0 +1,162 @@
+package de.igeri.javaxray.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.CompactBoxCollection;
+import de.igeri.javaxray.java2box.Corpus;
+import de.igeri.javaxray.java2box.Fragment.Types;
+import de.igeri.javaxray.java2box.JavaSourceToBoxConverter;
+
+/**
+ * Misst das Schreiben mit dem {@link BinaryBoxGenerator} und das Lesen mit dem {@link BinaryBoxReader} auf dem
+ * {@link Corpus}, jeweils unkomprimiert und mit Deflate. Zum Vergleich mit dem erneuten Konvertieren dient
+ * <code>StageBenchmark.layout</code>.
+ * 
+ * @author smolli
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BinaryBoxBenchmark {
+	
+	/** Der Name des Korpus, siehe {@link Corpus}. */
+	@Param({ Corpus.SMALL, Corpus.LARGE, Corpus.HUGE, Corpus.JDK })
+	private String corpus;
+	/** Gibt an, ob die Zeilen komprimiert werden. */
+	@Param({ "false", "true" })
+	private boolean deflate;
+	/** Die Boxen je Quelle. */
+	private final List<CompactBoxCollection> boxes = new ArrayList<CompactBoxCollection>();
+	/** Die geschriebenen Dateien je Quelle. */
+	private final List<File> files = new ArrayList<File>();
+	
+	/**
+	 * Erzeugt die Boxen des Korpus und schreibt sie in temporäre Dateien.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Korpus nicht gelesen oder die Dateien nicht geschrieben werden konnten.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		final JavaSourceToBoxConverter converter = new JavaSourceToBoxConverter();
+		
+		for (final char[] source : Corpus.load(this.corpus)) {
+			final CompactBoxCollection collection = new CompactBoxCollection();
+			final File file = File.createTempFile("javaxray", this.deflate ? BinaryBoxGenerator.DEFLATE_SUFFIX : BinaryBoxGenerator.SUFFIX);
+			
+			converter.convert(source, collection);
+			
+			final BinaryBoxGenerator generator = new BinaryBoxGenerator(file, collection.getDimension(), this.deflate);
+			
+			try {
+				collection.replay(generator);
+			} finally {
+				generator.close();
+			}
+			
+			this.boxes.add(collection);
+			this.files.add(file);
+		}
+	}
+	
+	/**
+	 * Löscht die temporären Dateien.
+	 */
+	@TearDown
+	public void tearDown() {
+		for (final File file : this.files) {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+	
+	/**
+	 * Kodiert die Boxen jeder Quelle in den Speicher.
+	 * 
+	 * @param blackhole
+	 *            Nimmt die kodierten Bytes auf.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht kodiert werden konnte.
+	 */
+	@Benchmark
+	public void write(final Blackhole blackhole) throws IOException {
+		for (final CompactBoxCollection collection : this.boxes) {
+			final ByteArrayOutputStream output = new ByteArrayOutputStream();
+			final BinaryBoxGenerator generator = new BinaryBoxGenerator(output, collection.getDimension(), this.deflate);
+			
+			try {
+				collection.replay(generator);
+			} finally {
+				generator.close();
+			}
+			
+			blackhole.consume(output.size());
+		}
+	}
+	
+	/**
+	 * Blendet jede Datei ein und spielt ihre Boxen vor.
+	 * 
+	 * @param blackhole
+	 *            Nimmt die Boxen auf.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht gelesen werden konnte.
+	 */
+	@Benchmark
+	public void read(final Blackhole blackhole) throws IOException {
+		final BoxSink sink = new BoxSink() {
+			
+			@Override
+			public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+				blackhole.consume(xPosition + yPosition + width);
+				blackhole.consume(type);
+			}
+			
+			@Override
+			public void lineFeedTrigger(final int line) {
+				blackhole.consume(line);
+			}
+			
+			@Override
+			public void endTrigger() {
+				// Nichts zu tun.
+			}
+			
+		};
+		
+		for (final File file : this.files) {
+			final BinaryBoxReader reader = new BinaryBoxReader(file);
+			
+			try {
+				reader.replay(sink);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,96 @@
+package de.igeri.javaxray.generator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.igeri.javaxray.java2box.BoxCollection;
+import de.igeri.javaxray.java2box.Corpus;
+import de.igeri.javaxray.java2box.FragmentException;
+import de.igeri.javaxray.java2box.JavaSourceToBoxConverter;
+
+/**
+ * Vergleicht das Zeichnen der Boxen über {@link java.awt.Graphics2D#fillRect(int, int, int, int)} mit dem direkten
+ * Füllen des Rasters im {@link PNGGenerator}. Als große Eingabe werden die JDK-Quellen aus dem {@link Corpus#JDK}
+ * reihum zu einer Datei mit der angegebenen Zeilenzahl aneinandergehängt.
+ * 
+ * @author smolli
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx2g" })
+public class PNGGeneratorBenchmark {
+	
+	/** Anzahl der Zeilen der Eingabe. */
+	@Param({ "10000", "100000" })
+	private int lines;
+	/** Der Weg zum Füllen. */
+	@Param({ "raster", "graphics" })
+	private String fill;
+	/** Die Boxen der Eingabe. */
+	private BoxCollection boxes;
+	
+	/**
+	 * Erzeugt die Eingabe und ihre Boxen.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Korpus nicht gelesen werden konnte.
+	 * @throws FragmentException
+	 *             Wird geworfen, wenn die Fragmente nicht bearbeitet werden konnten.
+	 */
+	@Setup
+	public void setup() throws IOException, FragmentException {
+		final List<char[]> sources = Corpus.load(Corpus.JDK);
+		final StringBuilder builder = new StringBuilder();
+		int count = 0;
+		
+		while (count < this.lines) {
+			for (final char[] source : sources) {
+				for (final char element : source) {
+					builder.append(element);
+					
+					if ((element == '\n') && (++count == this.lines)) {
+						break;
+					}
+				}
+				
+				if (count == this.lines) {
+					break;
+				}
+			}
+		}
+		
+		this.boxes = new JavaSourceToBoxConverter().convert(builder.toString().toCharArray());
+	}
+	
+	/**
+	 * Zeichnet alle Boxen in ein Bild.
+	 * 
+	 * @return Der Generator mit dem Bild.
+	 */
+	@Benchmark
+	public PNGGenerator generate() {
+		final PNGGenerator generator = new PNGGenerator();
+		
+		generator.setRasterFill("raster".equals(this.fill));
+		generator.generate(this.boxes);
+		
+		return generator;
+	}
+	
+}
@@ -0,0 +1,120 @@
+package de.igeri.javaxray.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.igeri.javaxray.java2box.BoxCollection;
+import de.igeri.javaxray.java2box.Corpus;
+import de.igeri.javaxray.java2box.FragmentException;
+import de.igeri.javaxray.java2box.JavaSourceToBoxConverter;
+
+/**
+ * Misst die beiden Stufen des {@link PNGGenerator} auf dem {@link Corpus}: {@link PNGGenerator#generate(BoxCollection)}
+ * und {@link PNGGenerator#save()}. Der Korpus mit einer Million Zeilen fehlt, sein Bild wäre vier Millionen Pixel hoch
+ * und passt nicht in ein {@link java.awt.image.BufferedImage}; solche Dateien schreibt der
+ * {@link StreamingPNGGenerator}.
+ * 
+ * @author smolli
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx4g" })
+public class PNGStageBenchmark {
+	
+	/** Der Name des Korpus, siehe {@link Corpus}. */
+	@Param({ Corpus.SMALL, Corpus.LARGE, Corpus.JDK })
+	private String corpus;
+	/** Die Boxen je Quelle. */
+	private final List<BoxCollection> boxes = new ArrayList<BoxCollection>();
+	/** Die Generatoren mit fertigen Bildern für {@link #save()}. */
+	private final List<PNGGenerator> generators = new ArrayList<PNGGenerator>();
+	/** Die Zieldatei. */
+	private File file;
+	
+	/**
+	 * Erzeugt die Boxen und Bilder des Korpus.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Korpus nicht gelesen werden konnte.
+	 * @throws FragmentException
+	 *             Wird geworfen, wenn die Fragmente nicht bearbeitet werden konnten.
+	 */
+	@Setup
+	public void setup() throws IOException, FragmentException {
+		final JavaSourceToBoxConverter converter = new JavaSourceToBoxConverter();
+		
+		this.file = File.createTempFile("javaxray", ".png");
+		
+		for (final char[] source : Corpus.load(this.corpus)) {
+			final BoxCollection collection = converter.convert(source);
+			final PNGGenerator generator = new PNGGenerator();
+			
+			generator.setFilename(this.file.getPath());
+			generator.generate(collection);
+			
+			this.boxes.add(collection);
+			this.generators.add(generator);
+		}
+	}
+	
+	/**
+	 * Löscht die Zieldatei.
+	 */
+	@TearDown
+	public void tearDown() {
+		if (!this.file.delete()) {
+			this.file.deleteOnExit();
+		}
+	}
+	
+	/**
+	 * Zeichnet die Boxen jeder Quelle in ein Bild.
+	 * 
+	 * @param blackhole
+	 *            Nimmt die Generatoren auf.
+	 */
+	@Benchmark
+	public void generate(final Blackhole blackhole) {
+		for (final BoxCollection collection : this.boxes) {
+			final PNGGenerator generator = new PNGGenerator();
+			
+			generator.generate(collection);
+			
+			blackhole.consume(generator);
+		}
+	}
+	
+	/**
+	 * Kodiert die fertigen Bilder als PNG und schreibt sie in die Zieldatei.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	@Benchmark
+	public void save() throws IOException {
+		for (final PNGGenerator generator : this.generators) {
+			generator.save();
+		}
+	}
+	
+}
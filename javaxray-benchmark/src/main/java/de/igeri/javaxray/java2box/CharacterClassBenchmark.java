@@ -0,0 +1,155 @@
+package de.igeri.javaxray.java2box;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Vergleicht die Zeichenklassifizierung per Zeichenkettensuche mit der Tabelle aus {@link CharacterClasses} auf echten
+ * JDK-Quellen. Der Zähler <code>characters</code> gibt den Durchsatz in Zeichen pro Sekunde an.
+ * 
+ * @author smolli
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CharacterClassBenchmark {
+	
+	/** Die Trennzeichen, wie sie früher bei jedem Zeichen durchsucht wurden. */
+	private static final String DELIMETERS = "[!%&()=?{\\[\\]}+*-.:,;|<>^~]";
+	
+	/** Anzahl der Dateien aus dem Korpus. */
+	@Param("200")
+	private int files;
+	/** Die Quellen. */
+	private List<char[]> sources;
+	
+	/**
+	 * Zählt die verarbeiteten Zeichen.
+	 * 
+	 * @author smolli
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counter {
+		
+		/** Die verarbeiteten Zeichen. */
+		public long characters;
+		
+		/**
+		 * Setzt den Zähler für jede Iteration zurück.
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.characters = 0;
+		}
+	}
+	
+	/**
+	 * Lädt den Korpus.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Korpus nicht gelesen werden konnte.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		this.sources = JdkSources.load(this.files);
+	}
+	
+	/**
+	 * Klassifiziert jedes Zeichen durch Suchen in der Zeichenkette.
+	 * 
+	 * @param counter
+	 *            Der Zeichenzähler.
+	 * @return Die Anzahl der Trennzeichen.
+	 */
+	@Benchmark
+	@SuppressWarnings("deprecation")
+	public int stringScan(final Counter counter) {
+		int hits = 0;
+		
+		for (final char[] source : this.sources) {
+			for (final char element : source) {
+				if (AbstractTokenMachine.elementOf(element, CharacterClassBenchmark.DELIMETERS)) {
+					hits++;
+				}
+			}
+			
+			counter.characters += source.length;
+		}
+		
+		return hits;
+	}
+	
+	/**
+	 * Klassifiziert jedes Zeichen über die Tabelle.
+	 * 
+	 * @param counter
+	 *            Der Zeichenzähler.
+	 * @return Die Anzahl der Trennzeichen.
+	 */
+	@Benchmark
+	public int lookupTable(final Counter counter) {
+		int hits = 0;
+		
+		for (final char[] source : this.sources) {
+			for (final char element : source) {
+				if (CharacterClasses.isDelimeter(element)) {
+					hits++;
+				}
+			}
+			
+			counter.characters += source.length;
+		}
+		
+		return hits;
+	}
+	
+	/**
+	 * Zerlegt die Quellen vollständig mit der Zustandsmaschine.
+	 * 
+	 * @param counter
+	 *            Der Zeichenzähler.
+	 * @param blackhole
+	 *            Nimmt die Tokens auf.
+	 */
+	@Benchmark
+	public void parse(final Counter counter, final Blackhole blackhole) {
+		final AbstractTokenMachine machine = new AbstractTokenMachine() {
+			
+			@Override
+			protected void tokenTrigger(final char[] buffer, final int offset, final int length, final Types type) {
+				blackhole.consume(offset + length);
+				blackhole.consume(type);
+			}
+			
+		};
+		
+		for (final char[] source : this.sources) {
+			machine.parse(source);
+			
+			counter.characters += source.length;
+		}
+	}
+	
+}
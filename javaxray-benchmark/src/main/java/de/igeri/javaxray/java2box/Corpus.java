@@ -0,0 +1,71 @@
+package de.igeri.javaxray.java2box;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Der feste Korpus der Stufen-Benchmarks. Die Namen werden als <code>@Param</code> verwendet:
+ * <ul>
+ * <li><code>small</code>: eine erzeugte Datei mit 200 Zeilen,</li>
+ * <li><code>10k</code>: eine erzeugte Datei mit 10.000 Zeilen,</li>
+ * <li><code>1M</code>: eine erzeugte Datei mit 1.000.000 Zeilen,</li>
+ * <li><code>jdk</code>: die ersten 200 echten Dateien aus {@link JdkSources},</li>
+ * <li><code>java21</code>: eine erzeugte Datei mit 10.000 Zeilen und den Sprachmitteln bis Java 21.</li>
+ * </ul>
+ * 
+ * @author smolli
+ */
+public final class Corpus {
+	
+	/** Kleine erzeugte Datei. */
+	public static final String SMALL = "small";
+	/** Erzeugte Datei mit 10.000 Zeilen. */
+	public static final String LARGE = "10k";
+	/** Erzeugte Datei mit 1.000.000 Zeilen. */
+	public static final String HUGE = "1M";
+	/** Echte JDK-Quellen. */
+	public static final String JDK = "jdk";
+	/** Erzeugte Datei mit 10.000 Zeilen und den Sprachmitteln bis Java 21. */
+	public static final String MODERN = "java21";
+	
+	/** Zeilen der kleinen Datei. */
+	private static final int SMALL_LINES = 200;
+	/** Zeilen der großen Datei. */
+	private static final int LARGE_LINES = 10000;
+	/** Zeilen der sehr großen Datei. */
+	private static final int HUGE_LINES = 1000000;
+	/** Anzahl der echten Dateien. */
+	private static final int JDK_FILES = 200;
+	
+	/**
+	 * Lädt oder erzeugt den Korpus mit dem angegebenen Namen.
+	 * 
+	 * @param name
+	 *            Der Name des Korpus.
+	 * @return Die Quellen des Korpus.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die echten Quellen nicht gelesen werden konnten.
+	 */
+	public static List<char[]> load(final String name) throws IOException {
+		if (Corpus.SMALL.equals(name)) {
+			return Collections.singletonList(SyntheticSources.generate(Corpus.SMALL_LINES));
+		} else if (Corpus.LARGE.equals(name)) {
+			return Collections.singletonList(SyntheticSources.generate(Corpus.LARGE_LINES));
+		} else if (Corpus.HUGE.equals(name)) {
+			return Collections.singletonList(SyntheticSources.generate(Corpus.HUGE_LINES));
+		} else if (Corpus.JDK.equals(name)) {
+			return JdkSources.load(Corpus.JDK_FILES);
+		} else if (Corpus.MODERN.equals(name)) {
+			return Collections.singletonList(SyntheticSources.generate(Corpus.LARGE_LINES, true));
+		}
+		
+		throw new IllegalArgumentException("Unknown corpus: " + name);
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private Corpus() {}
+	
+}
@@ -0,0 +1,141 @@
+package de.igeri.javaxray.java2box;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Lädt echte JDK-Quellen als Korpus für die Benchmarks. Gelesen wird die <code>src.zip</code> des laufenden JDK oder die
+ * mit der System-Property <code>javaxray.corpus</code> angegebene ZIP-Datei.
+ * 
+ * @author smolli
+ */
+public final class JdkSources {
+	
+	/** System-Property für einen eigenen Korpus. */
+	private static final String CORPUS_PROPERTY = "javaxray.corpus";
+	/** Dateiendung der Java-Dateien. */
+	private static final String JAVA_SUFFIX = ".java";
+	/** Größe des Lesepuffers. */
+	private static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * Lädt die ersten Java-Dateien aus dem Korpus.
+	 * 
+	 * @param count
+	 *            Die maximale Anzahl der Dateien.
+	 * @return Die Inhalte der Dateien.
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Korpus nicht gelesen werden konnte.
+	 */
+	public static List<char[]> load(final int count) throws IOException {
+		final ZipFile zip = new ZipFile(JdkSources.locate());
+		final List<char[]> sources = new ArrayList<char[]>();
+		
+		try {
+			final Enumeration<? extends ZipEntry> entries = zip.entries();
+			
+			while (entries.hasMoreElements() && (sources.size() < count)) {
+				final ZipEntry entry = entries.nextElement();
+				
+				if (entry.getName().endsWith(JdkSources.JAVA_SUFFIX)) {
+					sources.add(JdkSources.read(zip, entry));
+				}
+			}
+		} finally {
+			zip.close();
+		}
+		
+		if (sources.isEmpty()) {
+			throw new IOException("No Java sources in corpus.");
+		}
+		
+		return sources;
+	}
+	
+	/**
+	 * Zählt die Zeichen aller Quellen.
+	 * 
+	 * @param sources
+	 *            Die Quellen.
+	 * @return Die Anzahl der Zeichen.
+	 */
+	public static long characters(final List<char[]> sources) {
+		long result = 0;
+		
+		for (final char[] source : sources) {
+			result += source.length;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Ermittelt die ZIP-Datei des Korpus.
+	 * 
+	 * @return Die ZIP-Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn kein Korpus gefunden wurde.
+	 */
+	private static File locate() throws IOException {
+		final String configured = System.getProperty(JdkSources.CORPUS_PROPERTY);
+		
+		if (configured != null) {
+			return new File(configured);
+		}
+		
+		final File javaHome = new File(System.getProperty("java.home"));
+		final File[] candidates = { new File(javaHome, "lib/src.zip"), new File(javaHome.getParentFile(), "src.zip") };
+		
+		for (final File candidate : candidates) {
+			if (candidate.isFile()) {
+				return candidate;
+			}
+		}
+		
+		throw new IOException("No src.zip found, set -D" + JdkSources.CORPUS_PROPERTY + "=<zip>.");
+	}
+	
+	/**
+	 * Liest einen Eintrag der ZIP-Datei als UTF-8.
+	 * 
+	 * @param zip
+	 *            Die ZIP-Datei.
+	 * @param entry
+	 *            Der Eintrag.
+	 * @return Der Inhalt.
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Eintrag nicht gelesen werden konnte.
+	 */
+	private static char[] read(final ZipFile zip, final ZipEntry entry) throws IOException {
+		final InputStream input = zip.getInputStream(entry);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		try {
+			final byte[] buffer = new byte[JdkSources.BUFFER_SIZE];
+			int read = input.read(buffer);
+			
+			while (read >= 0) {
+				output.write(buffer, 0, read);
+				read = input.read(buffer);
+			}
+		} finally {
+			input.close();
+		}
+		
+		return new String(output.toByteArray(), Charset.forName("UTF-8")).toCharArray();
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private JdkSources() {}
+	
+}
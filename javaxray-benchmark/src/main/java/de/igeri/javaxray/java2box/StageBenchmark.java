@@ -0,0 +1,273 @@
+package de.igeri.javaxray.java2box;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Misst die einzelnen Stufen von {@link JavaSourceToBoxConverter#convert(char[])} auf dem {@link Corpus}: das Zerlegen
+ * und Klassifizieren der Tokens, das Erzeugen der Fragmente, {@link JavaSourceToBoxConverter#easeFragments(List)} und
+ * {@link JavaSourceToBoxConverter#generateBoxes(List)}. Zum Vergleich wird die ganze Konvertierung und das Layout ohne
+ * Fragmente über den {@link BoxLayoutMachine} gemessen.
+ * <p>
+ * Jede Stufe bekommt die fertige Ausgabe der vorherigen Stufe, gemessen wird also nur die Stufe selbst. Einzige
+ * Ausnahme ist {@link #easeFragments(Fragments, Blackhole)}: Weil die Stufe ihre Eingabe verändert, kopiert sie die
+ * Fragmente vorher. Die Kopie allein misst {@link #copyFragments(Fragments, Blackhole)}.
+ * 
+ * @author smolli
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StageBenchmark {
+	
+	/** Der Name des Korpus, siehe {@link Corpus}. */
+	@Param({ Corpus.SMALL, Corpus.LARGE, Corpus.HUGE, Corpus.JDK, Corpus.MODERN })
+	private String corpus;
+	/** Die Quellen. */
+	private List<char[]> sources;
+	/** Der Konverter mit den Stufen. */
+	private final JavaSourceToBoxConverter converter = new JavaSourceToBoxConverter();
+	
+	/**
+	 * Die unbearbeiteten Fragmente als Vorlage. {@link JavaSourceToBoxConverter#easeFragments(List)} verbindet
+	 * Fragmente, indem es sie verändert, deshalb darf die Vorlage nur kopiert werden. Ein Neuerzeugen vor jedem Aufruf
+	 * über {@link Level#Invocation} würde die Messung bei kurzen Korpora verfälschen.
+	 * 
+	 * @author smolli
+	 */
+	@State(Scope.Benchmark)
+	public static class Fragments {
+		
+		/** Die Fragmentlisten je Quelle. */
+		private final List<List<Fragment>> lists = new ArrayList<List<Fragment>>();
+		
+		/**
+		 * Erzeugt die Fragmente.
+		 * 
+		 * @param benchmark
+		 *            Der Benchmark mit den Quellen.
+		 */
+		@Setup
+		public void setup(final StageBenchmark benchmark) {
+			for (final char[] source : benchmark.sources) {
+				this.lists.add(benchmark.converter.createFragments(source));
+			}
+		}
+		
+	}
+	
+	/**
+	 * Die vereinfachten Fragmente als Eingabe für {@link JavaSourceToBoxConverter#generateBoxes(List)}.
+	 * 
+	 * @author smolli
+	 */
+	@State(Scope.Benchmark)
+	public static class EasedFragments {
+		
+		/** Die Fragmentlisten je Quelle. */
+		private final List<List<Fragment>> lists = new ArrayList<List<Fragment>>();
+		
+		/**
+		 * Erzeugt und vereinfacht die Fragmente.
+		 * 
+		 * @param benchmark
+		 *            Der Benchmark mit den Quellen.
+		 * @throws FragmentException
+		 *             Wird geworfen, wenn die Fragmente nicht verbunden werden konnten.
+		 */
+		@Setup
+		public void setup(final StageBenchmark benchmark) throws FragmentException {
+			for (final char[] source : benchmark.sources) {
+				this.lists.add(benchmark.converter.easeFragments(benchmark.converter.createFragments(source)));
+			}
+		}
+		
+	}
+	
+	/**
+	 * Lädt den Korpus.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Korpus nicht gelesen werden konnte.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		this.sources = Corpus.load(this.corpus);
+	}
+	
+	/**
+	 * Zerlegt die Quellen in Tokens und klassifiziert sie. Das Klassifizieren ist keine eigene Stufe, der
+	 * {@link AbstractTokenMachine} liefert jedes Token schon mit seinem Typ.
+	 * 
+	 * @param blackhole
+	 *            Nimmt die Tokens auf.
+	 */
+	@Benchmark
+	public void tokenize(final Blackhole blackhole) {
+		final AbstractTokenMachine machine = new AbstractTokenMachine() {
+			
+			@Override
+			protected void tokenTrigger(final char[] buffer, final int offset, final int length, final Types type) {
+				blackhole.consume(offset + length);
+				blackhole.consume(type);
+			}
+			
+		};
+		
+		for (final char[] source : this.sources) {
+			machine.parse(source);
+		}
+	}
+	
+	/**
+	 * Erzeugt die Fragmente über den {@link AbstractFragmentMachine}.
+	 * 
+	 * @param blackhole
+	 *            Nimmt die Fragmentlisten auf.
+	 */
+	@Benchmark
+	public void createFragments(final Blackhole blackhole) {
+		for (final char[] source : this.sources) {
+			blackhole.consume(this.converter.createFragments(source));
+		}
+	}
+	
+	/**
+	 * Kopiert die Fragmente wie {@link #easeFragments(Fragments, Blackhole)}, ohne sie zu vereinfachen. Die Differenz der
+	 * beiden Messungen ist die Zeit der Stufe selbst.
+	 * 
+	 * @param fragments
+	 *            Die Vorlage der Fragmente.
+	 * @param blackhole
+	 *            Nimmt die Fragmentlisten auf.
+	 */
+	@Benchmark
+	public void copyFragments(final Fragments fragments, final Blackhole blackhole) {
+		for (final List<Fragment> list : fragments.lists) {
+			blackhole.consume(StageBenchmark.copy(list));
+		}
+	}
+	
+	/**
+	 * Vereinfacht eine Kopie der Fragmente.
+	 * 
+	 * @param fragments
+	 *            Die Vorlage der Fragmente.
+	 * @param blackhole
+	 *            Nimmt die Fragmentlisten auf.
+	 * @throws FragmentException
+	 *             Wird geworfen, wenn die Fragmente nicht verbunden werden konnten.
+	 */
+	@Benchmark
+	public void easeFragments(final Fragments fragments, final Blackhole blackhole) throws FragmentException {
+		for (final List<Fragment> list : fragments.lists) {
+			blackhole.consume(this.converter.easeFragments(StageBenchmark.copy(list)));
+		}
+	}
+	
+	/**
+	 * Erzeugt die {@link Box}en aus den vereinfachten Fragmenten.
+	 * 
+	 * @param fragments
+	 *            Die vereinfachten Fragmente.
+	 * @param blackhole
+	 *            Nimmt die {@link BoxCollection}s auf.
+	 */
+	@Benchmark
+	public void generateBoxes(final EasedFragments fragments, final Blackhole blackhole) {
+		for (final List<Fragment> list : fragments.lists) {
+			blackhole.consume(this.converter.generateBoxes(list));
+		}
+	}
+	
+	/**
+	 * Konvertiert die Quellen vollständig über alle Stufen.
+	 * 
+	 * @param blackhole
+	 *            Nimmt die {@link BoxCollection}s auf.
+	 * @throws FragmentException
+	 *             Wird geworfen, wenn die Fragmente nicht verbunden werden konnten.
+	 */
+	@Benchmark
+	public void convert(final Blackhole blackhole) throws FragmentException {
+		for (final char[] source : this.sources) {
+			blackhole.consume(this.converter.convert(source));
+		}
+	}
+	
+	/**
+	 * Erzeugt die {@link Box}en ohne Fragmente direkt aus den Tokens.
+	 * 
+	 * @param blackhole
+	 *            Nimmt die {@link Box}en auf.
+	 */
+	@Benchmark
+	public void layout(final Blackhole blackhole) {
+		final BoxSink sink = new BoxSink() {
+			
+			@Override
+			public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+				blackhole.consume(xPosition + yPosition + width);
+				blackhole.consume(type);
+			}
+			
+			@Override
+			public void lineFeedTrigger(final int line) {
+				blackhole.consume(line);
+			}
+			
+			@Override
+			public void endTrigger() {
+				// Nichts zu tun.
+			}
+			
+		};
+		
+		for (final char[] source : this.sources) {
+			this.converter.convert(source, sink);
+		}
+	}
+	
+	/**
+	 * Kopiert die Fragmente. Die Inhalte sind unveränderliche Zeichenketten und werden geteilt.
+	 * 
+	 * @param fragments
+	 *            Die Fragmente.
+	 * @return Gibt neue Fragmente mit gleichem Inhalt und Typ zurück.
+	 */
+	private static List<Fragment> copy(final List<Fragment> fragments) {
+		final List<Fragment> copies = new ArrayList<Fragment>(fragments.size());
+		
+		for (final Fragment fragment : fragments) {
+			final Fragment copy = new Fragment();
+			
+			copy.setContent(fragment.getContent());
+			copy.setType(fragment.getType());
+			copies.add(copy);
+		}
+		
+		return copies;
+	}
+	
+}
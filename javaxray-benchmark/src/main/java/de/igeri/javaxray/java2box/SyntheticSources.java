@@ -0,0 +1,195 @@
+package de.igeri.javaxray.java2box;
+
+import java.util.Random;
+
+/**
+ * Erzeugt Java-Quelltext beliebiger Länge als Korpus für die Benchmarks. Der Text ist für einen Startwert immer
+ * gleich und enthält alle Fragmenttypen etwa in der Mischung echter Quellen: Javadoc, Zeilenkommentare, Annotationen,
+ * Generics, Zeichenketten mit Escapes, Zeichen und Zahlen in allen Schreibweisen. Auf Wunsch kommen die Sprachmittel bis
+ * Java 21 hinzu: Textblöcke, Lambdas und Switch-Ausdrücke mit <code>-&gt;</code>, <code>sealed</code>,
+ * <code>non-sealed</code>, Records, qualifizierte Annotationen und Unicode-Escapes in Bezeichnern.
+ * 
+ * @author smolli
+ */
+public final class SyntheticSources {
+	
+	/** Der Startwert des Zufallsgenerators. */
+	private static final long SEED = 0x6A61766178726179L;
+	/** Anzahl der Zeilen, nach denen eine neue Klasse beginnt. */
+	private static final int LINES_PER_CLASS = 1000;
+	
+	/** Bezeichner für Felder, Variablen und Methoden. */
+	private static final String[] NAMES = { "value", "count", "buffer", "offset", "length", "index", "result", "element", "builder", "listener", "state", "position" };
+	/** Datentypen für Felder und Variablen. */
+	private static final String[] TYPES = { "int", "long", "double", "boolean", "char", "String", "List<String>", "Map<String, Integer>", "char[]", "Object" };
+	/** Zahlen in den verschiedenen Schreibweisen. */
+	private static final String[] NUMBERS = { "0", "42", "0x7F", "0xFFFF_FFFFL", "1_000_000", "3.14159", "1e-9", "2.5f", "0b1010", "017", "100L", ".5d" };
+	/** Zeichenketten, teilweise mit Escapes. */
+	private static final String[] STRINGS = { "\"\"", "\"value\"", "\"Cannot be null!\"", "\"line\\n\"", "\"tab\\tseparated\\t\\\"quoted\\\"\"", "\"\\u00e4\\u00f6\\u00fc\"", "\"C:\\\\temp\\\\\"" };
+	/** Zeichen, teilweise mit Escapes. */
+	private static final String[] CHARS = { "'a'", "'\\n'", "'\\''", "'\\\\'", "'\"'", "'\\u0041'" };
+	/** Anzahl der Arten von Elementen einer Klasse. */
+	private static final int MEMBERS = 4;
+	/** Anzahl der Arten von Elementen einer Klasse mit den Sprachmitteln bis Java 21. */
+	private static final int MODERN_MEMBERS = 6;
+	
+	/**
+	 * Erzeugt eine Quelle mit der angegebenen Zeilenzahl. Das letzte Element wird nicht abgeschnitten, die Quelle kann
+	 * also einige Zeilen länger werden.
+	 * 
+	 * @param lines
+	 *            Die Anzahl der Zeilen.
+	 * @return Der Inhalt der Quelle.
+	 */
+	public static char[] generate(final int lines) {
+		return SyntheticSources.generate(lines, false);
+	}
+	
+	/**
+	 * Erzeugt eine Quelle mit der angegebenen Zeilenzahl, auf Wunsch mit den Sprachmitteln bis Java 21. Ohne sie ist der
+	 * Text derselbe wie bei {@link #generate(int)}.
+	 * 
+	 * @param lines
+	 *            Die Anzahl der Zeilen.
+	 * @param modern
+	 *            Gibt an, ob auch Textblöcke, Lambdas, versiegelte Typen, Records und Unicode-Escapes vorkommen.
+	 * @return Der Inhalt der Quelle.
+	 */
+	public static char[] generate(final int lines, final boolean modern) {
+		final Random random = new Random(SyntheticSources.SEED);
+		final StringBuilder builder = new StringBuilder(lines * 40);
+		int line = 0;
+		int classes = 0;
+		
+		builder.append("package de.igeri.synthetic;\n\nimport java.util.List;\nimport java.util.Map;\n\n");
+		line += 5;
+		
+		while (line < lines - 1) {
+			if (line / SyntheticSources.LINES_PER_CLASS >= classes) {
+				if (classes > 0) {
+					builder.append("}\n\n");
+					line += 2;
+				}
+				
+				builder.append("/**\n * Synthetic class number ").append(classes).append(".\n */\n");
+				builder.append("@SuppressWarnings(\"unused\")\npublic class Synthetic").append(classes).append(" implements Comparable<Synthetic").append(classes).append("> {\n\n");
+				line += 6;
+				classes++;
+			} else {
+				final int start = builder.length();
+				
+				SyntheticSources.member(random, builder, modern);
+				
+				for (int i = start; i < builder.length(); i++) {
+					if (builder.charAt(i) == '\n') {
+						line++;
+					}
+				}
+			}
+		}
+		
+		builder.append("}\n");
+		
+		final char[] result = new char[builder.length()];
+		
+		builder.getChars(0, result.length, result, 0);
+		
+		return result;
+	}
+	
+	/**
+	 * Hängt ein zufälliges Element einer Klasse an.
+	 * 
+	 * @param random
+	 *            Der Zufallsgenerator.
+	 * @param builder
+	 *            Der Quelltext.
+	 * @param modern
+	 *            Gibt an, ob auch die Sprachmittel bis Java 21 vorkommen.
+	 */
+	private static void member(final Random random, final StringBuilder builder, final boolean modern) {
+		final String name = SyntheticSources.pick(random, SyntheticSources.NAMES) + random.nextInt(100);
+		
+		switch (random.nextInt(modern ? SyntheticSources.MODERN_MEMBERS : SyntheticSources.MEMBERS)) {
+			case 0:
+				builder.append("\t/** The ").append(name).append(". */\n\tprivate static final ").append(SyntheticSources.pick(random, SyntheticSources.TYPES)).append(' ').append(name.toUpperCase()).append(" = ").append(SyntheticSources.pick(random, SyntheticSources.NUMBERS)).append(";\n");
+				break;
+			case 1:
+				builder.append("\tprivate ").append(SyntheticSources.pick(random, SyntheticSources.TYPES)).append(' ').append(name).append("; // ").append(SyntheticSources.pick(random, SyntheticSources.NAMES)).append(" of the element\n\n");
+				break;
+			case 4:
+				builder.append("\tpublic sealed interface Node").append(name).append(" permits Leaf").append(name).append(" {}\n\n");
+				builder.append("\tpublic non-sealed class Leaf").append(name).append(" implements Node").append(name).append(" {}\n\n");
+				builder.append("\trecord Point").append(name).append("(int x, int y) {}\n\n");
+				break;
+			case 5:
+				builder.append("\t@java.lang.SuppressWarnings(\"unused\")\n\tprivate static final String ").append(name.toUpperCase()).append(" = \"\"\"\n");
+				builder.append("\t\t\t{ \"name\": \"%s\", \"quoted\": \\\"\"\"").append(name).append("\\\"\"\" }\n\t\t\t\"\"\";\n");
+				builder.append("\tprivate final java.util.function.Function<String, String> caf\\u00e9").append(name).append(" = s -> switch (s.length()) {\n");
+				builder.append("\t\tcase 0 -> ").append(SyntheticSources.pick(random, SyntheticSources.STRINGS)).append(";\n\t\tdefault -> s;\n\t};\n\n");
+				break;
+			default:
+				SyntheticSources.method(random, builder, name);
+				break;
+		}
+	}
+	
+	/**
+	 * Hängt eine zufällige Methode an.
+	 * 
+	 * @param random
+	 *            Der Zufallsgenerator.
+	 * @param builder
+	 *            Der Quelltext.
+	 * @param name
+	 *            Der Name der Methode.
+	 */
+	private static void method(final Random random, final StringBuilder builder, final String name) {
+		final String type = SyntheticSources.pick(random, SyntheticSources.TYPES);
+		final int statements = 1 + random.nextInt(8);
+		
+		builder.append("\t/**\n\t * Computes the ").append(name).append(" of the <code>").append(type).append("</code>.\n\t * \n\t * @param ").append(name).append("\n\t *            The value.\n\t */\n");
+		builder.append("\t@Override\n\tpublic ").append(type).append(' ').append(name).append("(final ").append(type).append(' ').append(name).append(") {\n");
+		
+		for (int i = 0; i < statements; i++) {
+			switch (random.nextInt(5)) {
+				case 0:
+					builder.append("\t\tif ((").append(name).append(" != null) && (this.").append(SyntheticSources.pick(random, SyntheticSources.NAMES)).append(" >= ").append(SyntheticSources.pick(random, SyntheticSources.NUMBERS)).append(")) {\n\t\t\tthrow new IllegalArgumentException(").append(SyntheticSources.pick(random, SyntheticSources.STRINGS)).append(");\n\t\t}\n");
+					break;
+				case 1:
+					builder.append("\t\tfor (int i = 0; i < ").append(SyntheticSources.pick(random, SyntheticSources.NAMES)).append(".length; i++) {\n\t\t\tbuffer[i] = ").append(SyntheticSources.pick(random, SyntheticSources.CHARS)).append("; // NOPMD\n\t\t}\n");
+					break;
+				case 2:
+					builder.append("\t\t/* ").append(SyntheticSources.pick(random, SyntheticSources.NAMES)).append(" */ final ").append(SyntheticSources.pick(random, SyntheticSources.TYPES)).append(" local = this.").append(SyntheticSources.pick(random, SyntheticSources.NAMES)).append("(").append(SyntheticSources.pick(random, SyntheticSources.STRINGS)).append(", ").append(SyntheticSources.pick(random, SyntheticSources.NUMBERS)).append(");\n");
+					break;
+				case 3:
+					builder.append("\n");
+					break;
+				default:
+					builder.append("\t\tthis.").append(SyntheticSources.pick(random, SyntheticSources.NAMES)).append(" += ").append(SyntheticSources.pick(random, SyntheticSources.NUMBERS)).append(" * (").append(SyntheticSources.pick(random, SyntheticSources.NAMES)).append(" << 2) ^ ~").append(SyntheticSources.pick(random, SyntheticSources.NUMBERS)).append(";\n");
+					break;
+			}
+		}
+		
+		builder.append("\t\treturn ").append(name).append(";\n\t}\n\n");
+	}
+	
+	/**
+	 * Wählt ein zufälliges Element.
+	 * 
+	 * @param random
+	 *            Der Zufallsgenerator.
+	 * @param values
+	 *            Die Auswahl.
+	 * @return Gibt das Element zurück.
+	 */
+	private static String pick(final Random random, final String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private SyntheticSources() {}
+	
+}
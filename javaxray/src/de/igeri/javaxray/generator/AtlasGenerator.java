@@ -0,0 +1,881 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import de.igeri.javaxray.java2box.Box;
+import de.igeri.javaxray.java2box.CompactBoxCollection;
+import de.igeri.javaxray.java2box.JavaSourceToBoxConverter;
+
+/**
+ * Fasst viele Java-Dateien zu einem einzigen, gekachelten Bild zusammen. Die Bilder der Dateien werden nach dem
+ * Skyline-Verfahren angeordnet. Ausgegeben werden Kacheln fester Größe, eine Zoompyramide, in der jede Stufe
+ * die vorige auf die halbe Größe mittelt, und ein Index, der Kacheln und Pixel auf Datei und Zeile abbildet.
+ * <p>
+ * Das Gesamtbild wird nie vollständig im Speicher gehalten. Gezeichnet wird in Bändern von einer Kachelhöhe; die Boxen
+ * einer Datei werden nach dem letzten Band, das sie berühren, verworfen. Beim Messen werden die Boxen behalten, bis
+ * insgesamt {@link #MAX_KEPT_BOXES} Boxen erreicht sind, so muss die Datei beim Zeichnen nicht noch einmal gelesen und
+ * zerlegt werden. Die übrigen Dateien werden erst für das erste Band, das sie schneiden, ein zweites Mal zerlegt. Die
+ * Kacheln eines Bandes werden parallel gezeichnet und sofort geschrieben.
+ * 
+ * @author smolli
+ */
+public final class AtlasGenerator {
+	
+	/** Die voreingestellte Kantenlänge einer Kachel in Pixeln. */
+	public static final int DEFAULT_TILE_SIZE = 256;
+	/** Der Name der Indexdatei. */
+	public static final String INDEX_FILENAME = "index.json";
+	/** Der Abstand zwischen zwei Dateien in Pixeln. */
+	private static final int PADDING = 2 * Box.CHAR_WIDTH;
+	/** Dateiendung der Kacheln. */
+	private static final String PNG_SUFFIX = ".png";
+	/** Maske eines Farbkanals. */
+	private static final int CHANNEL_MASK = 0xFF;
+	/** Die höchste Anzahl der beim Messen behaltenen Boxen, etwa 100 MB in {@link CompactBoxCollection}en. */
+	private static final long MAX_KEPT_BOXES = 1L << 23;
+	
+	/** Der Konverter, den sich alle Threads teilen. */
+	private final JavaSourceToBoxConverter converter;
+	/** Das Ausgabeverzeichnis. */
+	private final File directory;
+	/** Die Kantenlänge einer Kachel. */
+	private final int tileSize;
+	/** Die Anzahl der Threads. */
+	private final int threads;
+	/** Die Dateien in der Reihenfolge, in der sie hinzugefügt wurden. */
+	private final List<Placement> placements = new ArrayList<Placement>();
+	/** Die Breite des Gesamtbildes. */
+	private int width;
+	/** Die Höhe des Gesamtbildes. */
+	private int height;
+	/** Die Anzahl der Stufen der Zoompyramide einschließlich der vollen Auflösung. */
+	private int levels;
+	
+	/**
+	 * Die Lage einer Datei im Gesamtbild.
+	 * 
+	 * @author smolli
+	 */
+	public static final class Placement {
+		
+		/** Die Java-Datei. */
+		private final File source;
+		/** Der Name im Index. */
+		private final String name;
+		/** Die X-Position. */
+		private int x;
+		/** Die Y-Position. */
+		private int y;
+		/** Die Breite. */
+		private int width;
+		/** Die Höhe. */
+		private int height;
+		/** Die Boxen vom Messen bis zum letzten Band, das die Datei schneidet, oder <code>null</code>. */
+		private CompactBoxCollection boxes;
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param source
+		 *            Die Java-Datei.
+		 * @param name
+		 *            Der Name im Index.
+		 */
+		Placement(final File source, final String name) {
+			this.source = source;
+			this.name = name;
+		}
+		
+		/**
+		 * Gibt den Namen im Index zurück.
+		 * 
+		 * @return Der Name.
+		 */
+		public String getName() {
+			return this.name;
+		}
+		
+		/**
+		 * Gibt die X-Position im Gesamtbild zurück.
+		 * 
+		 * @return Die X-Position.
+		 */
+		public int getX() {
+			return this.x;
+		}
+		
+		/**
+		 * Gibt die Y-Position im Gesamtbild zurück.
+		 * 
+		 * @return Die Y-Position.
+		 */
+		public int getY() {
+			return this.y;
+		}
+		
+		/**
+		 * Gibt die Breite zurück.
+		 * 
+		 * @return Die Breite.
+		 */
+		public int getWidth() {
+			return this.width;
+		}
+		
+		/**
+		 * Gibt die Höhe zurück.
+		 * 
+		 * @return Die Höhe.
+		 */
+		public int getHeight() {
+			return this.height;
+		}
+		
+		/**
+		 * Prüft, ob der Punkt im Gesamtbild innerhalb der Datei liegt.
+		 * 
+		 * @param px
+		 *            Die X-Position im Gesamtbild.
+		 * @param py
+		 *            Die Y-Position im Gesamtbild.
+		 * @return Gibt <code>true</code> zurück, wenn der Punkt zur Datei gehört.
+		 */
+		public boolean contains(final int px, final int py) {
+			return (px >= this.x) && (px < this.x + this.width) && (py >= this.y) && (py < this.y + this.height);
+		}
+		
+		/**
+		 * Gibt die Zeile zu einer Y-Position im Gesamtbild zurück.
+		 * 
+		 * @param py
+		 *            Die Y-Position im Gesamtbild.
+		 * @return Die Zeile, beginnend bei 1.
+		 */
+		public int getLine(final int py) {
+			return (py - this.y) / (Box.LINE_HEIGHT + Box.BOX_GAP) + 1;
+		}
+		
+		/**
+		 * Prüft, ob die Datei einen waagrechten Streifen schneidet.
+		 * 
+		 * @param top
+		 *            Der Beginn des Streifens.
+		 * @param bottom
+		 *            Das Ende des Streifens (exklusiv).
+		 * @return Gibt <code>true</code> zurück, wenn sich Datei und Streifen überschneiden.
+		 */
+		boolean intersects(final int top, final int bottom) {
+			return (this.y < bottom) && (this.y + this.height > top);
+		}
+	}
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param directory
+	 *            Das Ausgabeverzeichnis. Es muss existieren.
+	 * @param tileSize
+	 *            Die Kantenlänge einer Kachel in Pixeln.
+	 * @param threads
+	 *            Die Anzahl der Threads.
+	 */
+	public AtlasGenerator(final JavaSourceToBoxConverter converter, final File directory, final int tileSize, final int threads) {
+		this.converter = converter;
+		this.directory = directory;
+		this.tileSize = tileSize;
+		this.threads = threads;
+	}
+	
+	/**
+	 * Fügt eine Datei hinzu.
+	 * 
+	 * @param source
+	 *            Die Java-Datei.
+	 * @param name
+	 *            Der Name im Index, z. B. der relative Pfad.
+	 */
+	public void add(final File source, final String name) {
+		this.placements.add(new Placement(source, name));
+	}
+	
+	/**
+	 * Misst alle Dateien, ordnet sie an und schreibt Kacheln, Zoompyramide und Index.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn eine Datei nicht gelesen oder geschrieben werden konnte.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn die Verarbeitung unterbrochen wurde.
+	 */
+	public void generate() throws IOException, InterruptedException {
+		final ExecutorService executor = Executors.newFixedThreadPool(this.threads);
+		
+		try {
+			this.measure(executor);
+			this.pack();
+			this.renderTiles(executor);
+			this.renderPyramid(executor);
+			this.writeIndex();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Ermittelt die Ausdehnung aller Dateien und behält die Boxen, solange die Begrenzung {@link #MAX_KEPT_BOXES} nicht
+	 * erreicht ist.
+	 * 
+	 * @param executor
+	 *            Der Threadpool.
+	 * @throws IOException
+	 *             Wird geworfen, wenn eine Datei nicht gelesen werden konnte.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn die Verarbeitung unterbrochen wurde.
+	 */
+	private void measure(final ExecutorService executor) throws IOException, InterruptedException {
+		final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		final AtomicLong kept = new AtomicLong();
+		
+		for (final Placement placement : this.placements) {
+			tasks.add(new Callable<Void>() {
+				
+				@Override
+				public Void call() throws IOException {
+					final CompactBoxCollection boxes = new CompactBoxCollection();
+					
+					AtlasGenerator.this.converter.convert(placement.source, boxes);
+					
+					final Dimension dimension = boxes.getDimension();
+					
+					placement.width = dimension.width;
+					placement.height = dimension.height;
+					
+					if (kept.addAndGet(boxes.size()) <= AtlasGenerator.MAX_KEPT_BOXES) {
+						boxes.trimToSize();
+						placement.boxes = boxes;
+					} else {
+						kept.addAndGet(-boxes.size());
+					}
+					
+					return null;
+				}
+				
+			});
+		}
+		
+		AtlasGenerator.invokeAll(executor, tasks);
+	}
+	
+	/**
+	 * Ordnet die Dateien nach dem Skyline-Verfahren an. Die Dateien werden nach absteigender Höhe jeweils an die
+	 * X-Position gesetzt, an der sie auf der bisherigen Oberkante (der Skyline) am höchsten zu liegen kommen. Anders als
+	 * bei festen Regalen füllen kurze Dateien so die Lücken neben langen. Die Breite wird so gewählt, dass das
+	 * Gesamtbild ungefähr quadratisch wird, sofern die längste Datei das zulässt.
+	 */
+	private void pack() {
+		final List<Placement> sorted = new ArrayList<Placement>(this.placements);
+		long area = 0;
+		int widest = 1;
+		int tallest = 1;
+		
+		Collections.sort(sorted, new Comparator<Placement>() {
+			
+			@Override
+			public int compare(final Placement first, final Placement second) {
+				return second.height < first.height ? -1 : (second.height == first.height ? 0 : 1);
+			}
+			
+		});
+		
+		for (final Placement placement : sorted) {
+			area += (long) (placement.width + AtlasGenerator.PADDING) * (placement.height + AtlasGenerator.PADDING);
+			widest = Math.max(widest, placement.width + AtlasGenerator.PADDING);
+			tallest = Math.max(tallest, placement.height + AtlasGenerator.PADDING);
+		}
+		
+		// Ist die längste Datei höher als die Seite eines Quadrats, bestimmt sie die Höhe und die Breite wird schmaler.
+		final long side = Math.max(tallest, (long) Math.ceil(Math.sqrt(area)));
+		final int limit = AtlasGenerator.roundUp(Math.max(widest, (int) ((area + side - 1) / side)), this.tileSize);
+		// Die Skyline als Folge von Abschnitten: Beginn, Breite und Höhe der Oberkante.
+		final List<int[]> skyline = new ArrayList<int[]>();
+		int bottom = 0;
+		
+		skyline.add(new int[] { 0, limit, 0 });
+		
+		for (final Placement placement : sorted) {
+			final int width = Math.min(placement.width + AtlasGenerator.PADDING, limit);
+			int bestIndex = 0;
+			int bestY = Integer.MAX_VALUE;
+			
+			for (int i = 0; i < skyline.size(); i++) {
+				final int y = AtlasGenerator.fit(skyline, i, width, limit);
+				
+				if (y < bestY) {
+					bestY = y;
+					bestIndex = i;
+				}
+			}
+			
+			placement.x = skyline.get(bestIndex)[0];
+			placement.y = bestY;
+			
+			AtlasGenerator.raise(skyline, bestIndex, width, bestY + placement.height + AtlasGenerator.PADDING);
+			
+			bottom = Math.max(bottom, bestY + placement.height + AtlasGenerator.PADDING);
+		}
+		
+		this.width = limit;
+		this.height = AtlasGenerator.roundUp(Math.max(bottom, 1), this.tileSize);
+		this.levels = 1;
+		
+		for (int size = Math.max(this.width, this.height) / this.tileSize; size > 1; size = (size + 1) / 2) {
+			this.levels++;
+		}
+		
+		// Nach Y sortiert lassen sich die Dateien eines Bandes der Reihe nach laden und verwerfen.
+		Collections.sort(this.placements, new Comparator<Placement>() {
+			
+			@Override
+			public int compare(final Placement first, final Placement second) {
+				return first.y < second.y ? -1 : (first.y == second.y ? first.x - second.x : 1);
+			}
+			
+		});
+	}
+	
+	/**
+	 * Ermittelt, wie hoch ein Rechteck am Beginn eines Abschnitts der Skyline zu liegen käme.
+	 * 
+	 * @param skyline
+	 *            Die Skyline.
+	 * @param index
+	 *            Der Abschnitt.
+	 * @param width
+	 *            Die Breite des Rechtecks.
+	 * @param limit
+	 *            Die Breite des Gesamtbildes.
+	 * @return Die Y-Position oder {@link Integer#MAX_VALUE}, wenn das Rechteck dort nicht mehr in die Breite passt.
+	 */
+	private static int fit(final List<int[]> skyline, final int index, final int width, final int limit) {
+		final int x = skyline.get(index)[0];
+		
+		if (x + width > limit) {
+			return Integer.MAX_VALUE;
+		}
+		
+		int y = 0;
+		
+		for (int i = index; (i < skyline.size()) && (skyline.get(i)[0] < x + width); i++) {
+			y = Math.max(y, skyline.get(i)[2]);
+		}
+		
+		return y;
+	}
+	
+	/**
+	 * Hebt die Skyline unter einem neu gesetzten Rechteck an.
+	 * 
+	 * @param skyline
+	 *            Die Skyline.
+	 * @param index
+	 *            Der Abschnitt, an dessen Beginn das Rechteck liegt.
+	 * @param width
+	 *            Die Breite des Rechtecks.
+	 * @param y
+	 *            Die neue Oberkante unter dem Rechteck.
+	 */
+	private static void raise(final List<int[]> skyline, final int index, final int width, final int y) {
+		final int x = skyline.get(index)[0];
+		final int end = x + width;
+		
+		// Vollständig überdeckte Abschnitte entfallen, ein teilweise überdeckter wird gekürzt.
+		while ((index < skyline.size()) && (skyline.get(index)[0] < end)) {
+			final int[] segment = skyline.get(index);
+			
+			if (segment[0] + segment[1] <= end) {
+				skyline.remove(index);
+			} else {
+				segment[1] -= end - segment[0];
+				segment[0] = end;
+				break;
+			}
+		}
+		
+		skyline.add(index, new int[] { x, width, y });
+		
+		// Nachbarn gleicher Höhe zusammenfassen, damit die Skyline kurz bleibt.
+		if ((index + 1 < skyline.size()) && (skyline.get(index + 1)[2] == y)) {
+			skyline.get(index)[1] += skyline.remove(index + 1)[1];
+		}
+		
+		if ((index > 0) && (skyline.get(index - 1)[2] == y)) {
+			skyline.get(index - 1)[1] += skyline.remove(index)[1];
+		}
+	}
+	
+	/**
+	 * Zeichnet die Kacheln in voller Auflösung bandweise.
+	 * 
+	 * @param executor
+	 *            Der Threadpool.
+	 * @throws IOException
+	 *             Wird geworfen, wenn eine Datei nicht gelesen oder geschrieben werden konnte.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn die Verarbeitung unterbrochen wurde.
+	 */
+	private void renderTiles(final ExecutorService executor) throws IOException, InterruptedException {
+		final File level = this.createLevel(0);
+		final List<Placement> active = new ArrayList<Placement>();
+		int next = 0;
+		
+		for (int row = 0; row < this.height / this.tileSize; row++) {
+			final int top = row * this.tileSize;
+			final int bottom = top + this.tileSize;
+			final List<Callable<Void>> loads = new ArrayList<Callable<Void>>();
+			
+			while ((next < this.placements.size()) && (this.placements.get(next).y < bottom)) {
+				final Placement placement = this.placements.get(next++);
+				
+				active.add(placement);
+				
+				if (placement.boxes != null) {
+					continue;
+				}
+				
+				loads.add(new Callable<Void>() {
+					
+					@Override
+					public Void call() throws IOException {
+						final CompactBoxCollection boxes = new CompactBoxCollection();
+						
+						AtlasGenerator.this.converter.convert(placement.source, boxes);
+						
+						placement.boxes = boxes;
+						
+						return null;
+					}
+					
+				});
+			}
+			
+			AtlasGenerator.invokeAll(executor, loads);
+			
+			final List<Callable<Void>> tiles = new ArrayList<Callable<Void>>();
+			
+			for (int column = 0; column < this.width / this.tileSize; column++) {
+				final int tileRow = row;
+				final int tileColumn = column;
+				final List<Placement> band = new ArrayList<Placement>(active);
+				
+				tiles.add(new Callable<Void>() {
+					
+					@Override
+					public Void call() throws IOException {
+						AtlasGenerator.this.renderTile(level, tileColumn, tileRow, band);
+						
+						return null;
+					}
+					
+				});
+			}
+			
+			AtlasGenerator.invokeAll(executor, tiles);
+			
+			for (int i = active.size() - 1; i >= 0; i--) {
+				if (!active.get(i).intersects(bottom, Integer.MAX_VALUE)) {
+					active.remove(i).boxes = null;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Zeichnet eine Kachel in voller Auflösung.
+	 * 
+	 * @param level
+	 *            Das Verzeichnis der Stufe.
+	 * @param column
+	 *            Die Spalte der Kachel.
+	 * @param row
+	 *            Die Zeile der Kachel.
+	 * @param band
+	 *            Die Dateien, die das Band der Kachel schneiden.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Kachel nicht geschrieben werden konnte.
+	 */
+	private void renderTile(final File level, final int column, final int row, final List<Placement> band) throws IOException {
+		final int left = column * this.tileSize;
+		final int top = row * this.tileSize;
+		final BufferedImage tile = new BufferedImage(this.tileSize, this.tileSize, BufferedImage.TYPE_INT_RGB);
+		final int[] pixels = PNGGenerator.clear(tile);
+		boolean blank = true;
+		
+		for (final Placement placement : band) {
+			if ((placement.x >= left + this.tileSize) || (placement.x + placement.width <= left) || !placement.intersects(top, top + this.tileSize)) {
+				continue;
+			}
+			
+			final CompactBoxCollection boxes = placement.boxes;
+			final int offsetX = placement.x - left;
+			final int offsetY = placement.y - top;
+			
+			for (int i = AtlasGenerator.firstBox(boxes, top - placement.y - Box.LINE_HEIGHT); i < boxes.size(); i++) {
+				final int y = boxes.getY(i) + offsetY;
+				
+				if (y >= this.tileSize) {
+					break;
+				}
+				
+				PNGGenerator.fill(pixels, this.tileSize, this.tileSize, boxes.getX(i) + offsetX, y, boxes.getWidth(i), boxes.getType(i), boxes.getType(i).getColor());
+				blank = false;
+			}
+		}
+		
+		if (!blank) {
+			ImageIO.write(tile, "png", AtlasGenerator.tileFile(level, column, row));
+		}
+	}
+	
+	/**
+	 * Sucht die erste Box unterhalb einer Y-Position. Die Boxen liegen in Zeilenreihenfolge vor.
+	 * 
+	 * @param boxes
+	 *            Die Boxen.
+	 * @param y
+	 *            Die Y-Position innerhalb der Datei.
+	 * @return Der Index der ersten Box mit einer größeren Y-Position.
+	 */
+	private static int firstBox(final CompactBoxCollection boxes, final int y) {
+		int low = 0;
+		int high = boxes.size();
+		
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			
+			if (boxes.getY(middle) <= y) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		return low;
+	}
+	
+	/**
+	 * Erzeugt die Stufen der Zoompyramide. Jede Kachel einer Stufe mittelt je 2x2 Pixel der vier Kacheln der vorigen
+	 * Stufe, die von der Platte gelesen werden.
+	 * 
+	 * @param executor
+	 *            Der Threadpool.
+	 * @throws IOException
+	 *             Wird geworfen, wenn eine Kachel nicht gelesen oder geschrieben werden konnte.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn die Verarbeitung unterbrochen wurde.
+	 */
+	private void renderPyramid(final ExecutorService executor) throws IOException, InterruptedException {
+		int columns = this.width / this.tileSize;
+		int rows = this.height / this.tileSize;
+		
+		for (int level = 1; level < this.levels; level++) {
+			final File source = new File(this.directory, Integer.toString(level - 1));
+			final File target = this.createLevel(level);
+			final List<Callable<Void>> tiles = new ArrayList<Callable<Void>>();
+			
+			columns = (columns + 1) / 2;
+			rows = (rows + 1) / 2;
+			
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+					final int tileRow = row;
+					final int tileColumn = column;
+					
+					tiles.add(new Callable<Void>() {
+						
+						@Override
+						public Void call() throws IOException {
+							AtlasGenerator.this.reduceTile(source, target, tileColumn, tileRow);
+							
+							return null;
+						}
+						
+					});
+				}
+			}
+			
+			AtlasGenerator.invokeAll(executor, tiles);
+		}
+	}
+	
+	/**
+	 * Erzeugt eine Kachel aus den vier Kacheln der vorigen Stufe.
+	 * 
+	 * @param source
+	 *            Das Verzeichnis der vorigen Stufe.
+	 * @param target
+	 *            Das Verzeichnis der Stufe.
+	 * @param column
+	 *            Die Spalte der Kachel.
+	 * @param row
+	 *            Die Zeile der Kachel.
+	 * @throws IOException
+	 *             Wird geworfen, wenn eine Kachel nicht gelesen oder geschrieben werden konnte.
+	 */
+	private void reduceTile(final File source, final File target, final int column, final int row) throws IOException {
+		final BufferedImage tile = new BufferedImage(this.tileSize, this.tileSize, BufferedImage.TYPE_INT_RGB);
+		final int[] pixels = PNGGenerator.clear(tile);
+		final int half = this.tileSize / 2;
+		boolean blank = true;
+		
+		for (int quarter = 0; quarter < 4; quarter++) {
+			final File file = AtlasGenerator.tileFile(source, column * 2 + quarter % 2, row * 2 + quarter / 2);
+			
+			if (!file.isFile()) {
+				continue;
+			}
+			
+			final BufferedImage child = ImageIO.read(file);
+			
+			blank = false;
+			final int[] rgb = child.getRGB(0, 0, this.tileSize, this.tileSize, null, 0, this.tileSize);
+			final int offset = (quarter / 2) * half * this.tileSize + (quarter % 2) * half;
+			
+			for (int y = 0; y < half; y++) {
+				for (int x = 0; x < half; x++) {
+					final int index = 2 * y * this.tileSize + 2 * x;
+					
+					pixels[offset + y * this.tileSize + x] = AtlasGenerator.average(rgb[index], rgb[index + 1], rgb[index + this.tileSize], rgb[index + this.tileSize + 1]);
+				}
+			}
+		}
+		
+		if (!blank) {
+			ImageIO.write(tile, "png", AtlasGenerator.tileFile(target, column, row));
+		}
+	}
+	
+	/**
+	 * Mittelt vier Farben kanalweise.
+	 * 
+	 * @param first
+	 *            Die erste Farbe.
+	 * @param second
+	 *            Die zweite Farbe.
+	 * @param third
+	 *            Die dritte Farbe.
+	 * @param fourth
+	 *            Die vierte Farbe.
+	 * @return Die gemittelte Farbe ohne Alphakanal.
+	 */
+	private static int average(final int first, final int second, final int third, final int fourth) {
+		int result = 0;
+		
+		for (int shift = 0; shift < Integer.SIZE - Byte.SIZE; shift += Byte.SIZE) {
+			final int sum = ((first >> shift) & AtlasGenerator.CHANNEL_MASK) + ((second >> shift) & AtlasGenerator.CHANNEL_MASK) + ((third >> shift) & AtlasGenerator.CHANNEL_MASK) + ((fourth >> shift) & AtlasGenerator.CHANNEL_MASK);
+			
+			result |= ((sum + 2) / 4) << shift;
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Schreibt den Index als JSON. Er enthält die Größe des Gesamtbildes und der Kacheln, die Lage jeder Datei und für
+	 * jede Kachel der vollen Auflösung die Nummern der Dateien, die sie berühren. Leere Kacheln werden nicht geschrieben
+	 * und sind als weiß zu lesen. Die Zeile zu einem Pixel ergibt sich
+	 * aus dem Abstand zur Oberkante der Datei geteilt durch <code>lineHeight</code>.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Index nicht geschrieben werden konnte.
+	 */
+	private void writeIndex() throws IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(this.directory, AtlasGenerator.INDEX_FILENAME)), "UTF-8"));
+		
+		try {
+			writer.write(String.format("{\n  \"width\": %d,\n  \"height\": %d,\n  \"tileSize\": %d,\n  \"levels\": %d,\n  \"lineHeight\": %d,\n  \"files\": [", this.width, this.height, this.tileSize, this.levels, Box.LINE_HEIGHT + Box.BOX_GAP));
+			
+			for (int i = 0; i < this.placements.size(); i++) {
+				final Placement placement = this.placements.get(i);
+				
+				writer.write(String.format("%s\n    { \"name\": %s, \"x\": %d, \"y\": %d, \"width\": %d, \"height\": %d }", i == 0 ? "" : ",", JsonStrings.quote(placement.name), placement.x, placement.y, placement.width, placement.height));
+			}
+			
+			writer.write("\n  ],\n  \"tiles\": {");
+			
+			final int columns = this.width / this.tileSize;
+			final Map<Long, StringBuilder> tiles = new TreeMap<Long, StringBuilder>();
+			
+			for (int i = 0; i < this.placements.size(); i++) {
+				final Placement placement = this.placements.get(i);
+				
+				if ((placement.width == 0) || (placement.height == 0)) {
+					continue;
+				}
+				
+				for (int row = placement.y / this.tileSize; row <= (placement.y + placement.height - 1) / this.tileSize; row++) {
+					for (int column = placement.x / this.tileSize; column <= (placement.x + placement.width - 1) / this.tileSize; column++) {
+						final Long tile = Long.valueOf((long) row * columns + column);
+						StringBuilder files = tiles.get(tile);
+						
+						if (files == null) {
+							files = new StringBuilder();
+							tiles.put(tile, files);
+						} else {
+							files.append(", ");
+						}
+						
+						files.append(i);
+					}
+				}
+			}
+			
+			boolean first = true;
+			
+			for (final Map.Entry<Long, StringBuilder> entry : tiles.entrySet()) {
+				writer.write(String.format("%s\n    \"%d_%d\": [%s]", first ? "" : ",", entry.getKey().longValue() % columns, entry.getKey().longValue() / columns, entry.getValue()));
+				first = false;
+			}
+			
+			writer.write("\n  }\n}\n");
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Sucht die Datei zu einem Pixel des Gesamtbildes. Erst nach {@link #generate()} gültig.
+	 * 
+	 * @param x
+	 *            Die X-Position.
+	 * @param y
+	 *            Die Y-Position.
+	 * @return Die Datei oder <code>null</code>, wenn der Pixel zu keiner Datei gehört.
+	 */
+	public Placement locate(final int x, final int y) {
+		for (final Placement placement : this.placements) {
+			if (placement.y > y) {
+				break;
+			}
+			
+			if (placement.contains(x, y)) {
+				return placement;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Gibt die Lage aller Dateien zurück, nach Y-Position sortiert. Erst nach {@link #generate()} gültig.
+	 * 
+	 * @return Die Dateien.
+	 */
+	public List<Placement> getPlacements() {
+		return Collections.unmodifiableList(this.placements);
+	}
+	
+	/**
+	 * Gibt die Größe des Gesamtbildes zurück. Erst nach {@link #generate()} gültig.
+	 * 
+	 * @return Die Größe, ein Vielfaches der Kachelgröße.
+	 */
+	public Dimension getDimension() {
+		return new Dimension(this.width, this.height);
+	}
+	
+	/**
+	 * Legt das Verzeichnis einer Stufe an.
+	 * 
+	 * @param level
+	 *            Die Stufe, <code>0</code> für die volle Auflösung.
+	 * @return Das Verzeichnis.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das Verzeichnis nicht angelegt werden konnte.
+	 */
+	private File createLevel(final int level) throws IOException {
+		final File result = new File(this.directory, Integer.toString(level));
+		
+		if (!result.isDirectory() && !result.mkdirs()) {
+			throw new IOException("Cannot create directory " + result);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Gibt die Datei einer Kachel zurück.
+	 * 
+	 * @param level
+	 *            Das Verzeichnis der Stufe.
+	 * @param column
+	 *            Die Spalte.
+	 * @param row
+	 *            Die Zeile.
+	 * @return Die Datei.
+	 */
+	private static File tileFile(final File level, final int column, final int row) {
+		return new File(level, column + "_" + row + AtlasGenerator.PNG_SUFFIX);
+	}
+	
+	/**
+	 * Rundet auf ein Vielfaches auf.
+	 * 
+	 * @param value
+	 *            Der Wert.
+	 * @param multiple
+	 *            Das Vielfache.
+	 * @return Der gerundete Wert.
+	 */
+	private static int roundUp(final int value, final int multiple) {
+		return (value + multiple - 1) / multiple * multiple;
+	}
+	
+	/**
+	 * Führt die Aufgaben aus und wartet auf alle.
+	 * 
+	 * @param executor
+	 *            Der Threadpool.
+	 * @param tasks
+	 *            Die Aufgaben.
+	 * @throws IOException
+	 *             Wird geworfen, wenn eine Aufgabe mit einem Fehler endete.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn die Verarbeitung unterbrochen wurde.
+	 */
+	private static void invokeAll(final ExecutorService executor, final List<Callable<Void>> tasks) throws IOException, InterruptedException {
+		for (final Future<Void> future : executor.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (final ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				
+				throw new IOException(e.getCause());
+			}
+		}
+	}
+	
+}
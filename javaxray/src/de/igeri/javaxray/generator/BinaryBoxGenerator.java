@@ -0,0 +1,280 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Dimension;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+
+import de.igeri.javaxray.java2box.Box;
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Schreibt die {@link Box}en in ein kompaktes, versioniertes Binärformat für Werkzeuge, die das Layout weiterverarbeiten
+ * wollen, ohne ein PNG zu dekodieren. Gelesen wird es mit dem {@link BinaryBoxReader}.
+ * <p>
+ * Aufbau der Datei, alle Zahlen als vorzeichenlose Varints (sieben Bit je Byte, niederwertige zuerst):
+ * <ul>
+ * <li>Header, nie komprimiert: die vier Bytes <code>JXRB</code>, ein Byte {@link #VERSION}, ein Byte mit den Flags
+ * ({@link #FLAG_DEFLATE}), Breite und Höhe des Bildes in Pixeln.</li>
+ * <li>Je Zeile mit Boxen: der Abstand zur vorherigen Zeile mit Boxen (die erste Zeile hat die Nummer 0, der Abstand zu
+ * ihr ist 1), die Anzahl der Boxen und je Box der Abstand ihrer X-Position zum Ende der vorherigen Box der Zeile, ihre
+ * Breite und die Ordinalzahl ihres {@link Types} als einzelnes Byte.</li>
+ * <li>Eine 0 als Ende.</li>
+ * </ul>
+ * Ist {@link #FLAG_DEFLATE} gesetzt, sind die Zeilen und das Ende mit Deflate komprimiert. Die Y-Position ergibt sich aus
+ * der Zeilennummer, die Boxen müssen also wie beim Konvertieren in Zeilenreihenfolge und innerhalb einer Zeile von links
+ * nach rechts gemeldet werden. Eine {@link de.igeri.javaxray.java2box.BoxCollection} oder
+ * {@link de.igeri.javaxray.java2box.CompactBoxCollection} wird über <code>replay</code> geschrieben.
+ * <p>
+ * Wie beim {@link StreamingPNGGenerator} steht die Ausdehnung im Header und muss vorher bekannt sein. Fehler beim
+ * Schreiben werden gemerkt und von {@link #close()} geworfen.
+ * 
+ * @author smolli
+ */
+public final class BinaryBoxGenerator implements BoxSink, Closeable {
+	
+	/** Die übliche Dateiendung. */
+	public static final String SUFFIX = ".xrb";
+	/** Die übliche Dateiendung für komprimierte Dateien. */
+	public static final String DEFLATE_SUFFIX = ".xrbz";
+	/** Die Kennung am Anfang der Datei. */
+	static final byte[] MAGIC = { 'J', 'X', 'R', 'B' };
+	/** Die Version des Formats. */
+	static final int VERSION = 1;
+	/** Flag für Zeilen, die mit Deflate komprimiert sind. */
+	static final int FLAG_DEFLATE = 1;
+	/** Der Abstand zweier Zeilen in Pixeln. */
+	static final int LINE_PITCH = Box.LINE_HEIGHT + Box.BOX_GAP;
+	/** Die höchste Anzahl von Bytes eines Varints. */
+	static final int MAX_VARINT_BYTES = 5;
+	/** Die Nutzbits je Byte eines Varints. */
+	static final int VARINT_BITS = 7;
+	/** Die Nutzbits eines Bytes eines Varints. */
+	static final int VARINT_MASK = 0x7f;
+	/** Das Bit für ein folgendes Byte eines Varints. */
+	static final int VARINT_MORE = 0x80;
+	
+	/** Die Anfangsgröße des Zeilenpuffers. */
+	private static final int INITIAL_LINE_SIZE = 256;
+	
+	/** Der Ausgabestream, gegebenenfalls komprimierend. */
+	private final OutputStream out;
+	/** Der Puffer für einen einzelnen Varint. */
+	private final byte[] varint = new byte[BinaryBoxGenerator.MAX_VARINT_BYTES];
+	/** Die kodierten Boxen der aktuellen Zeile. */
+	private byte[] line = new byte[BinaryBoxGenerator.INITIAL_LINE_SIZE];
+	/** Die Anzahl der belegten Bytes in {@link #line}. */
+	private int lineSize;
+	/** Die Anzahl der Boxen in der aktuellen Zeile. */
+	private int lineBoxes;
+	/** Die Nummer der aktuellen Zeile. */
+	private int lineNumber;
+	/** Die Nummer der zuletzt geschriebenen Zeile. */
+	private int writtenLine = -1;
+	/** Das Ende der vorherigen Box der aktuellen Zeile. */
+	private int lineEnd;
+	/** Der erste Fehler beim Schreiben oder <code>null</code>. */
+	private IOException error;
+	
+	/**
+	 * Ctor. Legt die Datei an und schreibt den Header.
+	 * 
+	 * @param file
+	 *            Die Datei.
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @param deflate
+	 *            Gibt an, ob die Zeilen komprimiert werden.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht angelegt werden konnte.
+	 */
+	public BinaryBoxGenerator(final File file, final Dimension dimension, final boolean deflate) throws IOException {
+		this(new BufferedOutputStream(new FileOutputStream(file)), dimension, deflate);
+	}
+	
+	/**
+	 * Ctor. Schreibt den Header in den Stream, der mit {@link #close()} geschlossen wird.
+	 * 
+	 * @param output
+	 *            Der Stream.
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @param deflate
+	 *            Gibt an, ob die Zeilen komprimiert werden.
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Header nicht geschrieben werden konnte.
+	 */
+	public BinaryBoxGenerator(final OutputStream output, final Dimension dimension, final boolean deflate) throws IOException {
+		try {
+			output.write(BinaryBoxGenerator.MAGIC);
+			output.write(BinaryBoxGenerator.VERSION);
+			output.write(deflate ? BinaryBoxGenerator.FLAG_DEFLATE : 0);
+			this.writeVarint(output, dimension.width);
+			this.writeVarint(output, dimension.height);
+		} catch (final IOException e) {
+			output.close();
+			
+			throw e;
+		}
+		
+		this.out = deflate ? new DeflaterOutputStream(output) : output;
+	}
+	
+	/**
+	 * Gibt an, ob eine Datei nach ihrer Endung in diesem Format geschrieben wird.
+	 * 
+	 * @param file
+	 *            Die Datei.
+	 * @return Gibt <code>true</code> zurück, wenn die Endung {@link #SUFFIX} oder {@link #DEFLATE_SUFFIX} ist.
+	 */
+	public static boolean accepts(final File file) {
+		return file.getName().endsWith(BinaryBoxGenerator.SUFFIX) || file.getName().endsWith(BinaryBoxGenerator.DEFLATE_SUFFIX);
+	}
+	
+	@Override
+	public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+		final int boxLine = yPosition / BinaryBoxGenerator.LINE_PITCH;
+		
+		if (boxLine != this.lineNumber) {
+			if (boxLine < this.lineNumber) {
+				throw new IllegalArgumentException("Box at line " + boxLine + " after line " + this.lineNumber);
+			}
+			
+			this.flushLine();
+			this.lineNumber = boxLine;
+		}
+		
+		if (xPosition < this.lineEnd) {
+			throw new IllegalArgumentException("Box at " + xPosition + " overlaps previous box ending at " + this.lineEnd);
+		}
+		
+		if (this.lineSize + 2 * BinaryBoxGenerator.MAX_VARINT_BYTES + 1 > this.line.length) {
+			this.line = Arrays.copyOf(this.line, this.line.length * 2);
+		}
+		
+		this.lineSize = BinaryBoxGenerator.putVarint(this.line, this.lineSize, xPosition - this.lineEnd);
+		this.lineSize = BinaryBoxGenerator.putVarint(this.line, this.lineSize, width);
+		this.line[this.lineSize++] = (byte) type.ordinal();
+		this.lineBoxes++;
+		this.lineEnd = xPosition + width;
+	}
+	
+	@Override
+	public void lineFeedTrigger(final int line) {
+		// Die Zeilen ergeben sich aus den Y-Positionen.
+	}
+	
+	@Override
+	public void endTrigger() {
+		this.flushLine();
+		
+		try {
+			this.out.write(0);
+			
+			if (this.out instanceof DeflaterOutputStream) {
+				((DeflaterOutputStream) this.out).finish();
+			}
+		} catch (final IOException e) {
+			this.fail(e);
+		}
+	}
+	
+	/**
+	 * Schließt den Stream.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn beim Schreiben ein Fehler aufgetreten ist oder der Stream nicht geschlossen werden
+	 *             konnte.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.out.close();
+		
+		if (this.error != null) {
+			throw this.error;
+		}
+	}
+	
+	/**
+	 * Schreibt die aktuelle Zeile, sofern sie Boxen enthält, und leert den Zeilenpuffer.
+	 */
+	private void flushLine() {
+		if (this.lineBoxes > 0) {
+			try {
+				if (this.error != null) {
+					// Nach einem Fehler wird nichts mehr geschrieben.
+					throw this.error;
+				}
+				
+				this.writeVarint(this.out, this.lineNumber - this.writtenLine);
+				this.writeVarint(this.out, this.lineBoxes);
+				this.out.write(this.line, 0, this.lineSize);
+				this.writtenLine = this.lineNumber;
+			} catch (final IOException e) {
+				this.fail(e);
+			}
+		}
+		
+		this.lineSize = 0;
+		this.lineBoxes = 0;
+		this.lineEnd = 0;
+	}
+	
+	/**
+	 * Merkt den ersten Fehler für {@link #close()}.
+	 * 
+	 * @param e
+	 *            Der Fehler.
+	 */
+	private void fail(final IOException e) {
+		if (this.error == null) {
+			this.error = e;
+		}
+	}
+	
+	/**
+	 * Kodiert einen Varint in ein Array.
+	 * 
+	 * @param buffer
+	 *            Das Array mit Platz für {@link #MAX_VARINT_BYTES} Bytes.
+	 * @param offset
+	 *            Die Position im Array.
+	 * @param value
+	 *            Der Wert, nicht negativ.
+	 * @return Gibt die Position hinter dem Varint zurück.
+	 */
+	private static int putVarint(final byte[] buffer, final int offset, final int value) {
+		int position = offset;
+		int rest = value;
+		
+		while ((rest & ~BinaryBoxGenerator.VARINT_MASK) != 0) {
+			buffer[position++] = (byte) ((rest & BinaryBoxGenerator.VARINT_MASK) | BinaryBoxGenerator.VARINT_MORE);
+			rest >>>= BinaryBoxGenerator.VARINT_BITS;
+		}
+		
+		buffer[position++] = (byte) rest;
+		
+		return position;
+	}
+	
+	/**
+	 * Schreibt einen Varint in einen Stream.
+	 * 
+	 * @param output
+	 *            Der Stream.
+	 * @param value
+	 *            Der Wert, nicht negativ.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	private void writeVarint(final OutputStream output, final int value) throws IOException {
+		output.write(this.varint, 0, BinaryBoxGenerator.putVarint(this.varint, 0, value));
+	}
+	
+}
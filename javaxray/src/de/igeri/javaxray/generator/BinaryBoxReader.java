@@ -0,0 +1,297 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Dimension;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Liest eine Datei des {@link BinaryBoxGenerator} über {@link FileChannel#map} und spielt die Boxen einem
+ * {@link BoxSink} vor. Unkomprimierte Dateien werden direkt aus dem eingeblendeten Bereich dekodiert, je Box wird kein
+ * Objekt erzeugt. Komprimierte Dateien werden über zwei feste Puffer entpackt.
+ * <p>
+ * Die Boxen werden wie bei {@link de.igeri.javaxray.java2box.CompactBoxCollection#replay(BoxSink)} gemeldet, vor der
+ * ersten Box einer Zeile also alle noch offenen Zeilenwechsel. {@link #replay(BoxSink)} kann mehrfach aufgerufen werden,
+ * aber nicht von mehreren Threads gleichzeitig.
+ * 
+ * @author smolli
+ */
+public final class BinaryBoxReader implements Closeable {
+	
+	/** Die Größe der Puffer zum Entpacken. */
+	private static final int INFLATE_BUFFER_SIZE = 1 << 13;
+	/** Die Maske für ein Byte ohne Vorzeichen. */
+	private static final int BYTE_MASK = 0xff;
+	/** Alle Typen, indiziert über die Ordinalzahl. */
+	private static final Types[] TYPES = Types.values();
+	
+	/** Die Datei. */
+	private final RandomAccessFile file;
+	/** Der eingeblendete Inhalt. */
+	private final MappedByteBuffer buffer;
+	/** Die Version der Datei. */
+	private final int version;
+	/** Gibt an, ob die Zeilen komprimiert sind. */
+	private final boolean deflated;
+	/** Die Ausdehnung des Bildes. */
+	private final Dimension dimension;
+	/** Der Beginn der Zeilen in {@link #buffer}. */
+	private final int bodyStart;
+	/** Der Entpacker oder <code>null</code>. */
+	private final Inflater inflater;
+	/** Die gepackten Bytes für den {@link #inflater}. */
+	private final byte[] input;
+	/** Die entpackten Bytes. */
+	private final byte[] output;
+	/** Die Position des nächsten Bytes in {@link #output}. */
+	private int outputPosition;
+	/** Die Anzahl der entpackten Bytes in {@link #output}. */
+	private int outputSize;
+	
+	/**
+	 * Ctor. Blendet die Datei ein und liest den Header.
+	 * 
+	 * @param file
+	 *            Die Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht gelesen werden konnte, kein gültiger Header vorliegt oder die
+	 *             Version zu neu ist.
+	 */
+	public BinaryBoxReader(final File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		
+		try {
+			final FileChannel channel = this.file.getChannel();
+			
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("File too large: " + file);
+			}
+			
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			
+			for (final byte magic : BinaryBoxGenerator.MAGIC) {
+				if (this.readRaw() != magic) {
+					throw new IOException("Not a box file: " + file);
+				}
+			}
+			
+			this.version = this.readRaw();
+			
+			if (this.version > BinaryBoxGenerator.VERSION) {
+				throw new IOException("Unsupported version " + this.version + " of " + file);
+			}
+			
+			this.deflated = (this.readRaw() & BinaryBoxGenerator.FLAG_DEFLATE) != 0;
+			this.dimension = new Dimension(this.readVarint(true), this.readVarint(true));
+			this.bodyStart = this.buffer.position();
+		} catch (final IOException e) {
+			this.file.close();
+			
+			throw e;
+		}
+		
+		if (this.deflated) {
+			this.inflater = new Inflater();
+			this.input = new byte[BinaryBoxReader.INFLATE_BUFFER_SIZE];
+			this.output = new byte[BinaryBoxReader.INFLATE_BUFFER_SIZE];
+		} else {
+			this.inflater = null;
+			this.input = null;
+			this.output = null;
+		}
+	}
+	
+	/**
+	 * Gibt die Version der Datei zurück.
+	 * 
+	 * @return Die Version.
+	 */
+	public int getVersion() {
+		return this.version;
+	}
+	
+	/**
+	 * Gibt an, ob die Zeilen komprimiert sind.
+	 * 
+	 * @return Gibt <code>true</code> zurück, wenn die Zeilen mit Deflate komprimiert sind.
+	 */
+	public boolean isDeflated() {
+		return this.deflated;
+	}
+	
+	/**
+	 * Gibt die Ausdehnung des Bildes zurück.
+	 * 
+	 * @return Die Ausdehnung als {@link Dimension}.
+	 */
+	public Dimension getDimension() {
+		return new Dimension(this.dimension);
+	}
+	
+	/**
+	 * Reicht alle Boxen in Zeilenreihenfolge an einen {@link BoxSink} weiter.
+	 * 
+	 * @param sink
+	 *            Der Empfänger.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei beschädigt ist.
+	 */
+	public void replay(final BoxSink sink) throws IOException {
+		this.buffer.position(this.bodyStart);
+		
+		if (this.deflated) {
+			this.inflater.reset();
+			this.outputPosition = 0;
+			this.outputSize = 0;
+		}
+		
+		int line = 0;
+		int boxLine = this.readVarint(false) - 1;
+		
+		while (boxLine >= line) {
+			final int yPosition = boxLine * BinaryBoxGenerator.LINE_PITCH;
+			int xPosition = 0;
+			
+			while (line < boxLine) {
+				sink.lineFeedTrigger(line++);
+			}
+			
+			for (int count = this.readVarint(false); count > 0; count--) {
+				xPosition += this.readVarint(false);
+				
+				final int width = this.readVarint(false);
+				final int type = this.readByte();
+				
+				if (type >= BinaryBoxReader.TYPES.length) {
+					throw new IOException("Unknown type " + type);
+				}
+				
+				sink.boxTrigger(xPosition, yPosition, width, BinaryBoxReader.TYPES[type]);
+				xPosition += width;
+			}
+			
+			final int delta = this.readVarint(false);
+			
+			boxLine = delta == 0 ? -1 : boxLine + delta;
+		}
+		
+		sink.endTrigger();
+	}
+	
+	/**
+	 * Gibt die Datei frei. Der eingeblendete Bereich bleibt bis zur Garbage-Collection bestehen.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht geschlossen werden konnte.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.inflater != null) {
+			this.inflater.end();
+		}
+		
+		this.file.close();
+	}
+	
+	/**
+	 * Liest einen Varint.
+	 * 
+	 * @param header
+	 *            Gibt an, ob der Varint im Header steht, der nie komprimiert ist.
+	 * @return Der Wert.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei zu Ende oder beschädigt ist.
+	 */
+	private int readVarint(final boolean header) throws IOException {
+		int value = 0;
+		
+		for (int shift = 0; shift < BinaryBoxGenerator.MAX_VARINT_BYTES * BinaryBoxGenerator.VARINT_BITS; shift += BinaryBoxGenerator.VARINT_BITS) {
+			final int next = header ? this.readRaw() : this.readByte();
+			
+			value |= (next & BinaryBoxGenerator.VARINT_MASK) << shift;
+			
+			if ((next & BinaryBoxGenerator.VARINT_MORE) == 0) {
+				return value;
+			}
+		}
+		
+		throw new IOException("Malformed varint");
+	}
+	
+	/**
+	 * Liest das nächste Byte der Zeilen, gegebenenfalls entpackt.
+	 * 
+	 * @return Das Byte ohne Vorzeichen.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei zu Ende oder beschädigt ist.
+	 */
+	private int readByte() throws IOException {
+		if (!this.deflated) {
+			return this.readRaw();
+		}
+		
+		if (this.outputPosition == this.outputSize) {
+			this.inflate();
+		}
+		
+		return this.output[this.outputPosition++] & BinaryBoxReader.BYTE_MASK;
+	}
+	
+	/**
+	 * Liest das nächste Byte aus dem eingeblendeten Bereich.
+	 * 
+	 * @return Das Byte ohne Vorzeichen.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei zu Ende ist.
+	 */
+	private int readRaw() throws IOException {
+		if (!this.buffer.hasRemaining()) {
+			throw new EOFException("Unexpected end of box file");
+		}
+		
+		return this.buffer.get() & BinaryBoxReader.BYTE_MASK;
+	}
+	
+	/**
+	 * Entpackt die nächsten Bytes in {@link #output}.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei zu Ende oder beschädigt ist.
+	 */
+	private void inflate() throws IOException {
+		try {
+			int size = this.inflater.inflate(this.output);
+			
+			while (size == 0) {
+				if (this.inflater.finished() || this.inflater.needsDictionary()) {
+					throw new EOFException("Unexpected end of box file");
+				}
+				
+				final int length = Math.min(this.input.length, this.buffer.remaining());
+				
+				if (length == 0) {
+					throw new EOFException("Unexpected end of box file");
+				}
+				
+				this.buffer.get(this.input, 0, length);
+				this.inflater.setInput(this.input, 0, length);
+				size = this.inflater.inflate(this.output);
+			}
+			
+			this.outputPosition = 0;
+			this.outputSize = size;
+		} catch (final DataFormatException e) {
+			throw new IOException("Corrupt box file", e);
+		}
+	}
+	
+}
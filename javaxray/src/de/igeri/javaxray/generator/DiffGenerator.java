@@ -0,0 +1,322 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import de.igeri.javaxray.java2box.Box;
+import de.igeri.javaxray.java2box.CompactBoxCollection;
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Zeichnet die Unterschiede zweier Versionen einer Datei als Bild. Das Bild besteht aus Zeilen, die mit
+ * {@link #addRow(int, int, Change)} festgelegt werden. Jede Zeile zeigt eine Zeile der alten und/oder der neuen Version,
+ * entfernte Zeilen werden rot, hinzugefügte grün hinterlegt. Die Boxen beider Versionen kommen aus je einer
+ * {@link CompactBoxCollection}, in der die Zeilen der Ausschnitte fortlaufend nummeriert sind.
+ * <p>
+ * Bei {@link Layout#SideBySide} steht die alte Version links und die neue rechts, bei {@link Layout#Overlay} stehen
+ * beide in einer Spalte übereinander, eine Zeile zeigt dann die neue Zeile oder, falls es keine gibt, die alte.
+ * 
+ * @author smolli
+ */
+public final class DiffGenerator {
+	
+	/**
+	 * Die Anordnung der beiden Versionen.
+	 * 
+	 * @author smolli
+	 */
+	public enum Layout {
+		/** Alt links, neu rechts. */
+		SideBySide,
+		/** Alt und neu in einer Spalte. */
+		Overlay;
+		
+		/**
+		 * Sucht die Anordnung zu einem Namen, ohne Groß- und Kleinschreibung zu beachten.
+		 * 
+		 * @param name
+		 *            Der Name.
+		 * @return Die Anordnung.
+		 * @throws IllegalArgumentException
+		 *             Wird geworfen, wenn es keine Anordnung mit dem Namen gibt.
+		 */
+		public static Layout parse(final String name) {
+			for (final Layout layout : Layout.values()) {
+				if (layout.name().equalsIgnoreCase(name)) {
+					return layout;
+				}
+			}
+			
+			throw new IllegalArgumentException("Unknown layout: " + name);
+		}
+	}
+	
+	/**
+	 * Die Art einer Zeile.
+	 * 
+	 * @author smolli
+	 */
+	public enum Change {
+		/** Unverändert. */
+		Unchanged,
+		/** Nur in der alten Version. */
+		Removed,
+		/** Nur in der neuen Version. */
+		Added,
+		/** Alte Zeile durch neue ersetzt. */
+		Modified,
+		/** Trennt zwei Ausschnitte, zeigt keine Zeile. */
+		Separator
+	}
+	
+	/** Der Hintergrund entfernter Zeilen. */
+	private static final Color REMOVED_TINT = new Color(0xFF, 0xDD, 0xDD);
+	/** Der Hintergrund hinzugefügter Zeilen. */
+	private static final Color ADDED_TINT = new Color(0xDD, 0xFF, 0xDD);
+	/** Die Farbe der Trennzeilen und der Trennlinie zwischen den Spalten. */
+	private static final Color SEPARATOR = new Color(0xC0, 0xC0, 0xC0);
+	/** Die Breite der Trennlinie zwischen den Spalten in Pixeln. */
+	private static final int GUTTER = 2 * Box.CHAR_WIDTH;
+	/** Der Abstand zweier Zeilen in Pixeln. */
+	private static final int LINE_PITCH = Box.LINE_HEIGHT + Box.BOX_GAP;
+	/** Die Anfangskapazität der Zeilen. */
+	private static final int INITIAL_ROWS = 256;
+	
+	/** Die Anordnung. */
+	private final Layout layout;
+	/** Die alte Zeile je Bildzeile oder <code>-1</code>. */
+	private int[] oldRows = new int[DiffGenerator.INITIAL_ROWS];
+	/** Die neue Zeile je Bildzeile oder <code>-1</code>. */
+	private int[] newRows = new int[DiffGenerator.INITIAL_ROWS];
+	/** Die Art je Bildzeile. */
+	private Change[] changes = new Change[DiffGenerator.INITIAL_ROWS];
+	/** Die Anzahl der Bildzeilen. */
+	private int rows;
+	/** Das Bild. */
+	private BufferedImage image;
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param layout
+	 *            Die Anordnung der beiden Versionen.
+	 */
+	public DiffGenerator(final Layout layout) {
+		this.layout = layout;
+	}
+	
+	/**
+	 * Hängt eine Bildzeile an.
+	 * 
+	 * @param oldLine
+	 *            Die Zeile in den alten Boxen oder <code>-1</code>.
+	 * @param newLine
+	 *            Die Zeile in den neuen Boxen oder <code>-1</code>.
+	 * @param change
+	 *            Die Art der Zeile.
+	 */
+	public void addRow(final int oldLine, final int newLine, final Change change) {
+		if (this.rows == this.changes.length) {
+			this.oldRows = Arrays.copyOf(this.oldRows, this.rows * 2);
+			this.newRows = Arrays.copyOf(this.newRows, this.rows * 2);
+			this.changes = Arrays.copyOf(this.changes, this.rows * 2);
+		}
+		
+		this.oldRows[this.rows] = oldLine;
+		this.newRows[this.rows] = newLine;
+		this.changes[this.rows] = change;
+		this.rows++;
+	}
+	
+	/**
+	 * Gibt die Anzahl der Bildzeilen zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	public int getRows() {
+		return this.rows;
+	}
+	
+	/**
+	 * Zeichnet alle Bildzeilen.
+	 * 
+	 * @param oldBoxes
+	 *            Die Boxen der alten Ausschnitte.
+	 * @param newBoxes
+	 *            Die Boxen der neuen Ausschnitte.
+	 */
+	public void generate(final CompactBoxCollection oldBoxes, final CompactBoxCollection newBoxes) {
+		final int oldWidth = Math.max(oldBoxes.getDimension().width, 1);
+		final int newWidth = Math.max(newBoxes.getDimension().width, 1);
+		final int width = this.layout == Layout.SideBySide ? oldWidth + DiffGenerator.GUTTER + newWidth : Math.max(oldWidth, newWidth);
+		final int height = Math.max(this.rows * DiffGenerator.LINE_PITCH, 1);
+		final int newOffset = this.layout == Layout.SideBySide ? oldWidth + DiffGenerator.GUTTER : 0;
+		final int[] oldStarts = DiffGenerator.lineStarts(oldBoxes);
+		final int[] newStarts = DiffGenerator.lineStarts(newBoxes);
+		
+		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		
+		final int[] pixels = PNGGenerator.clear(this.image);
+		
+		for (int row = 0; row < this.rows; row++) {
+			final int y = row * DiffGenerator.LINE_PITCH;
+			final Change change = this.changes[row];
+			
+			if (change == Change.Separator) {
+				DiffGenerator.tint(pixels, width, y, 0, width, DiffGenerator.SEPARATOR);
+				
+				continue;
+			}
+			
+			if (this.layout == Layout.Overlay) {
+				if (change == Change.Removed) {
+					DiffGenerator.tint(pixels, width, y, 0, width, DiffGenerator.REMOVED_TINT);
+				} else if (change != Change.Unchanged) {
+					DiffGenerator.tint(pixels, width, y, 0, width, DiffGenerator.ADDED_TINT);
+				}
+				
+				if (this.newRows[row] >= 0) {
+					DiffGenerator.drawLine(pixels, width, height, newBoxes, newStarts, this.newRows[row], 0, y);
+				} else {
+					DiffGenerator.drawLine(pixels, width, height, oldBoxes, oldStarts, this.oldRows[row], 0, y);
+				}
+				
+				continue;
+			}
+			
+			if ((change == Change.Removed) || (change == Change.Modified)) {
+				DiffGenerator.tint(pixels, width, y, 0, oldWidth, DiffGenerator.REMOVED_TINT);
+			}
+			
+			if ((change == Change.Added) || (change == Change.Modified)) {
+				DiffGenerator.tint(pixels, width, y, newOffset, width, DiffGenerator.ADDED_TINT);
+			}
+			
+			DiffGenerator.tint(pixels, width, y, oldWidth, newOffset, DiffGenerator.SEPARATOR);
+			DiffGenerator.drawLine(pixels, width, height, oldBoxes, oldStarts, this.oldRows[row], 0, y);
+			DiffGenerator.drawLine(pixels, width, height, newBoxes, newStarts, this.newRows[row], newOffset, y);
+		}
+	}
+	
+	/**
+	 * Gibt das Bild zurück.
+	 * 
+	 * @return Das Bild oder <code>null</code> vor {@link #generate(CompactBoxCollection, CompactBoxCollection)}.
+	 */
+	public BufferedImage getImage() {
+		return this.image;
+	}
+	
+	/**
+	 * Speichert das Bild als PNG.
+	 * 
+	 * @param file
+	 *            Die Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public void save(final File file) throws IOException {
+		ImageIO.write(this.image, "png", file);
+	}
+	
+	/**
+	 * Kodiert das Bild als PNG in den Stream.
+	 * 
+	 * @param output
+	 *            Der Stream. Er wird nicht geschlossen.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public void write(final OutputStream output) throws IOException {
+		ImageIO.write(this.image, "png", output);
+	}
+	
+	/**
+	 * Ermittelt den Index der ersten Box jeder Zeile.
+	 * 
+	 * @param boxes
+	 *            Die Boxen in Zeilenreihenfolge.
+	 * @return Die Indizes, ein Eintrag mehr als Zeilen, der letzte ist die Anzahl der Boxen.
+	 */
+	private static int[] lineStarts(final CompactBoxCollection boxes) {
+		final int lines = boxes.getDimension().height / DiffGenerator.LINE_PITCH;
+		final int[] starts = new int[lines + 1];
+		int index = 0;
+		
+		for (int line = 0; line <= lines; line++) {
+			while ((index < boxes.size()) && (boxes.getY(index) / DiffGenerator.LINE_PITCH < line)) {
+				index++;
+			}
+			
+			starts[line] = index;
+		}
+		
+		return starts;
+	}
+	
+	/**
+	 * Zeichnet die Boxen einer Zeile an eine andere Stelle. Boxen in Weiß entfallen, damit der Hintergrund der Zeile
+	 * sichtbar bleibt.
+	 * 
+	 * @param pixels
+	 *            Das Pixelarray.
+	 * @param width
+	 *            Die Breite des Bildes.
+	 * @param height
+	 *            Die Höhe des Bildes.
+	 * @param boxes
+	 *            Die Boxen.
+	 * @param starts
+	 *            Der Index der ersten Box jeder Zeile.
+	 * @param line
+	 *            Die Zeile oder <code>-1</code>.
+	 * @param xOffset
+	 *            Die X-Position der Spalte.
+	 * @param yPosition
+	 *            Die Y-Position der Bildzeile.
+	 */
+	private static void drawLine(final int[] pixels, final int width, final int height, final CompactBoxCollection boxes, final int[] starts, final int line, final int xOffset, final int yPosition) {
+		if ((line < 0) || (line >= starts.length - 1)) {
+			return;
+		}
+		
+		for (int i = starts[line]; i < starts[line + 1]; i++) {
+			final Types type = boxes.getType(i);
+			
+			if (!Color.WHITE.equals(type.getColor())) {
+				PNGGenerator.fill(pixels, width, height, xOffset + boxes.getX(i), yPosition, boxes.getWidth(i), type, type.getColor());
+			}
+		}
+	}
+	
+	/**
+	 * Füllt einen Ausschnitt einer Bildzeile mit einer Farbe.
+	 * 
+	 * @param pixels
+	 *            Das Pixelarray.
+	 * @param width
+	 *            Die Breite des Bildes.
+	 * @param yPosition
+	 *            Die Y-Position der Bildzeile.
+	 * @param left
+	 *            Der Beginn des Ausschnitts.
+	 * @param right
+	 *            Das Ende des Ausschnitts (exklusiv).
+	 * @param color
+	 *            Die Farbe.
+	 */
+	private static void tint(final int[] pixels, final int width, final int yPosition, final int left, final int right, final Color color) {
+		final int rgb = color.getRGB() & PNGGenerator.RGB_MASK;
+		
+		for (int y = yPosition; y < yPosition + Box.LINE_HEIGHT; y++) {
+			Arrays.fill(pixels, y * width + left, y * width + right, rgb);
+		}
+	}
+	
+}
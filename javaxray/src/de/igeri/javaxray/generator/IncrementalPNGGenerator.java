@@ -0,0 +1,209 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.igeri.javaxray.java2box.Box;
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.Fragment.Types;
+import de.igeri.javaxray.java2box.IncrementalBoxLayout;
+import de.igeri.javaxray.java2box.IncrementalBoxLayout.Damage;
+
+/**
+ * Hält die Pixel zu einem {@link IncrementalBoxLayout} als Streifen je Zeile und zeichnet nach einer Änderung nur die
+ * Streifen der neu angeordneten Zeilen neu. Kommen Zeilen hinzu oder fallen weg, werden die übrigen Streifen nur in der
+ * Liste verschoben, es wird also kein Pixel außerhalb des geänderten Bereichs angefasst. Das Bild entsteht erst beim
+ * Speichern oder bei {@link #getImage()}.
+ * 
+ * @author smolli
+ */
+public final class IncrementalPNGGenerator {
+	
+	/** Der Abstand zweier Zeilen in Pixeln. */
+	private static final int LINE_STEP = Box.LINE_HEIGHT + Box.BOX_GAP;
+	/** Weiß ohne Alphakanal. */
+	private static final int WHITE = Color.WHITE.getRGB() & PNGGenerator.RGB_MASK;
+	/** Der Streifen einer Zeile ohne Boxen. */
+	private static final int[] EMPTY = new int[0];
+	/** Bytes je Pixel im RGB-Format. */
+	private static final int RGB_BYTES = 3;
+	
+	/** Die Anordnung der Boxen. */
+	private final IncrementalBoxLayout layout;
+	/** Die Streifen der Zeilen mit {@link Box#LINE_HEIGHT} Pixelzeilen in der Breite der Zeile. */
+	private final List<int[]> strips = new ArrayList<int[]>();
+	
+	/**
+	 * Füllt die Boxen einer Zeile in ihren Streifen.
+	 * 
+	 * @author smolli
+	 */
+	private static final class Painter implements BoxSink {
+		
+		/** Der Streifen. */
+		private int[] strip;
+		/** Die Breite des Streifens. */
+		private int width;
+		/** Die Y-Position der Zeile. */
+		private int top;
+		
+		@Override
+		public void boxTrigger(final int xPosition, final int yPosition, final int boxWidth, final Types type) {
+			PNGGenerator.fill(this.strip, this.width, Box.LINE_HEIGHT, xPosition, yPosition - this.top, boxWidth, type, type.getColor());
+		}
+		
+		@Override
+		public void lineFeedTrigger(final int line) {
+			// Es wird immer nur eine Zeile gezeichnet.
+		}
+		
+		@Override
+		public void endTrigger() {
+			// Es gibt nichts abzuschließen.
+		}
+	}
+	
+	/**
+	 * Ctor. Zeichnet die Streifen aller Zeilen.
+	 * 
+	 * @param layout
+	 *            Die Anordnung der Boxen.
+	 */
+	public IncrementalPNGGenerator(final IncrementalBoxLayout layout) {
+		this.layout = layout;
+		
+		final Painter painter = new Painter();
+		
+		for (int i = 0; i < layout.getLineCount(); i++) {
+			this.strips.add(this.paint(i, painter));
+		}
+	}
+	
+	/**
+	 * Gibt die Anordnung der Boxen zurück.
+	 * 
+	 * @return Die Anordnung.
+	 */
+	public IncrementalBoxLayout getLayout() {
+		return this.layout;
+	}
+	
+	/**
+	 * Aktualisiert die Streifen nach einer Änderung der Anordnung.
+	 * 
+	 * @param damage
+	 *            Der von {@link IncrementalBoxLayout#edit(int, int, char[])} gemeldete Bereich.
+	 */
+	public void update(final Damage damage) {
+		final List<int[]> band = this.strips.subList(damage.getFirstLine(), damage.getEndLine() - damage.getLineDelta());
+		final Painter painter = new Painter();
+		
+		band.clear();
+		
+		for (int i = damage.getFirstLine(); i < damage.getEndLine(); i++) {
+			band.add(this.paint(i, painter));
+		}
+	}
+	
+	/**
+	 * Zeichnet den Streifen einer Zeile.
+	 * 
+	 * @param line
+	 *            Die Zeile.
+	 * @param painter
+	 *            Der {@link Painter}.
+	 * @return Der Streifen.
+	 */
+	private int[] paint(final int line, final Painter painter) {
+		final int width = this.layout.getLineWidth(line);
+		
+		if (width == 0) {
+			return IncrementalPNGGenerator.EMPTY;
+		}
+		
+		painter.strip = new int[width * Box.LINE_HEIGHT];
+		painter.width = width;
+		painter.top = line * IncrementalPNGGenerator.LINE_STEP;
+		
+		Arrays.fill(painter.strip, IncrementalPNGGenerator.WHITE);
+		
+		this.layout.replay(line, line + 1, painter);
+		
+		return painter.strip;
+	}
+	
+	/**
+	 * Setzt die Streifen zu einem Bild zusammen, das dem von {@link PNGGenerator} entspricht.
+	 * 
+	 * @return Das Bild.
+	 */
+	public BufferedImage getImage() {
+		final Dimension dimension = this.layout.getDimension();
+		final BufferedImage image = new BufferedImage(dimension.width, dimension.height, BufferedImage.TYPE_INT_RGB);
+		final int[] pixels = PNGGenerator.clear(image);
+		
+		for (int y = 0; y < dimension.height; y++) {
+			final int[] strip = this.strips.get(y / IncrementalPNGGenerator.LINE_STEP);
+			final int row = y % IncrementalPNGGenerator.LINE_STEP;
+			
+			if ((row < Box.LINE_HEIGHT) && (strip.length > 0)) {
+				final int width = strip.length / Box.LINE_HEIGHT;
+				
+				System.arraycopy(strip, row * width, pixels, y * dimension.width, width);
+			}
+		}
+		
+		return image;
+	}
+	
+	/**
+	 * Speichert die Streifen zeilenweise als PNG, ohne ein Bild zusammenzusetzen.
+	 * 
+	 * @param file
+	 *            Die Zieldatei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public void save(final File file) throws IOException {
+		final Dimension dimension = this.layout.getDimension();
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		
+		try {
+			final PNGStreamWriter writer = new PNGStreamWriter(out, dimension.width, dimension.height, Byte.SIZE, PNGStreamWriter.COLOR_TYPE_TRUECOLOR);
+			final byte[] bytes = new byte[1 + dimension.width * IncrementalPNGGenerator.RGB_BYTES];
+			
+			for (int y = 0; y < dimension.height; y++) {
+				final int[] strip = this.strips.get(y / IncrementalPNGGenerator.LINE_STEP);
+				final int row = y % IncrementalPNGGenerator.LINE_STEP;
+				final int width = row < Box.LINE_HEIGHT ? strip.length / Box.LINE_HEIGHT : 0;
+				
+				bytes[0] = PNGStreamWriter.FILTER_NONE;
+				
+				for (int x = 0; x < dimension.width; x++) {
+					final int rgb = x < width ? strip[row * width + x] : IncrementalPNGGenerator.WHITE;
+					final int offset = 1 + x * IncrementalPNGGenerator.RGB_BYTES;
+					
+					bytes[offset] = (byte) (rgb >> 16);
+					bytes[offset + 1] = (byte) (rgb >> 8);
+					bytes[offset + 2] = (byte) rgb;
+				}
+				
+				writer.writeRow(bytes, bytes.length);
+			}
+			
+			writer.finish();
+		} finally {
+			out.close();
+		}
+	}
+	
+}
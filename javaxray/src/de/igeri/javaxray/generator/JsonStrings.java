@@ -0,0 +1,41 @@
+package de.igeri.javaxray.generator;
+
+/**
+ * Hilfsmethoden für Zeichenketten in den JSON-Dateien, z. B. im Index eines Atlas und in der Zusammenfassung der
+ * Stapelverarbeitung.
+ * 
+ * @author smolli
+ */
+public final class JsonStrings {
+	
+	/**
+	 * Setzt eine Zeichenkette als JSON-String.
+	 * 
+	 * @param value
+	 *            Die Zeichenkette.
+	 * @return Die Zeichenkette in Anführungszeichen mit maskierten Sonderzeichen.
+	 */
+	public static String quote(final String value) {
+		final StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+		
+		for (int i = 0; i < value.length(); i++) {
+			final char element = value.charAt(i);
+			
+			if ((element == '"') || (element == '\\')) {
+				builder.append('\\').append(element);
+			} else if (element < ' ') {
+				builder.append(String.format("\\u%04x", (int) element));
+			} else {
+				builder.append(element);
+			}
+		}
+		
+		return builder.append('"').toString();
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private JsonStrings() {}
+	
+}
@@ -4,29 +4,58 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 
 import javax.imageio.ImageIO;
 
 import de.igeri.javaxray.java2box.Box;
 import de.igeri.javaxray.java2box.BoxCollection;
+import de.igeri.javaxray.java2box.CompactBoxCollection;
 import de.igeri.javaxray.java2box.Fragment.Types;
 
 public class PNGGenerator {
 	
+	static final int RGB_MASK = 0xFFFFFF;
+	
 	private String filename = "output.png";
 	private Image image;
+	private boolean rasterFill = true;
 	
 	public void setFilename(final String value) {
 		this.filename = value;
 	}
 	
+	/**
+	 * Legt fest, ob direkt in das Raster des Bildes geschrieben wird (Standard) oder jede Box über
+	 * {@link Graphics2D#fillRect(int, int, int, int)} gezeichnet wird. Beide Wege liefern dasselbe Bild.
+	 * 
+	 * @param value
+	 *            <code>false</code> für den Weg über {@link Graphics2D}.
+	 */
+	public void setRasterFill(final boolean value) {
+		this.rasterFill = value;
+	}
+	
 	public void generate(final BoxCollection boxes) {
 		final int width = boxes.getDimension().width;
 		final int height = boxes.getDimension().height;
 		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		
+		if (this.rasterFill) {
+			final int[] pixels = PNGGenerator.clear((BufferedImage) this.image);
+			
+			for (final Box box : boxes) {
+				PNGGenerator.fill(pixels, width, height, box.getPosition().x, box.getPosition().y, box.getWidth(), box.getFragment().getType(), box.getColor());
+			}
+			
+			return;
+		}
+		
 		final Graphics2D graphics = (Graphics2D) this.image.getGraphics();
 		
 		graphics.setColor(Color.WHITE);
@@ -35,11 +64,119 @@ public class PNGGenerator {
 		for (final Box box : boxes) {
 			graphics.setColor(box.getColor());
 			
-			if (box.getFragment().getType() == Types.Delimeter) {
-				graphics.fillRect(box.getPosition().x, box.getPosition().y + Box.LINE_HEIGHT / 2, box.getWidth(), Box.LINE_HEIGHT / 2);
-			} else {
-				graphics.fillRect(box.getPosition().x, box.getPosition().y, box.getWidth(), Box.LINE_HEIGHT);
+			PNGGenerator.draw(graphics, box.getPosition().x, box.getPosition().y, box.getWidth(), box.getFragment().getType());
+		}
+	}
+	
+	/**
+	 * Zeichnet die Boxen einer {@link CompactBoxCollection}, ohne {@link Box}-Objekte zu erzeugen.
+	 * 
+	 * @param boxes
+	 *            Die Boxen.
+	 */
+	public void generate(final CompactBoxCollection boxes) {
+		final int width = boxes.getDimension().width;
+		final int height = boxes.getDimension().height;
+		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		
+		if (this.rasterFill) {
+			final int[] pixels = PNGGenerator.clear((BufferedImage) this.image);
+			
+			for (int i = 0; i < boxes.size(); i++) {
+				final Types type = boxes.getType(i);
+				
+				PNGGenerator.fill(pixels, width, height, boxes.getX(i), boxes.getY(i), boxes.getWidth(i), type, type.getColor());
 			}
+			
+			return;
+		}
+		
+		final Graphics2D graphics = (Graphics2D) this.image.getGraphics();
+		
+		graphics.setColor(Color.WHITE);
+		graphics.fillRect(0, 0, width, height);
+		
+		for (int i = 0; i < boxes.size(); i++) {
+			final Types type = boxes.getType(i);
+			
+			graphics.setColor(type.getColor());
+			
+			PNGGenerator.draw(graphics, boxes.getX(i), boxes.getY(i), boxes.getWidth(i), type);
+		}
+	}
+	
+	/**
+	 * Zeichnet eine Box über {@link Graphics2D}. Trennzeichen werden nur in halber Höhe gezeichnet.
+	 * 
+	 * @param graphics
+	 *            Die Zeichenfläche mit der Farbe der Box.
+	 * @param xPosition
+	 *            Die X-Position.
+	 * @param yPosition
+	 *            Die Y-Position.
+	 * @param width
+	 *            Die Breite.
+	 * @param type
+	 *            Der Typ.
+	 */
+	private static void draw(final Graphics2D graphics, final int xPosition, final int yPosition, final int width, final Types type) {
+		if (type == Types.Delimeter) {
+			graphics.fillRect(xPosition, yPosition + Box.LINE_HEIGHT / 2, width, Box.LINE_HEIGHT / 2);
+		} else {
+			graphics.fillRect(xPosition, yPosition, width, Box.LINE_HEIGHT);
+		}
+	}
+	
+	/**
+	 * Füllt das Pixelarray des Bildes mit Weiß. Danach wird direkt in das Array gezeichnet, ohne Umweg über
+	 * {@link Graphics2D}.
+	 * 
+	 * @param target
+	 *            Das Bild vom Typ {@link BufferedImage#TYPE_INT_RGB}.
+	 * @return Das Pixelarray.
+	 */
+	static int[] clear(final BufferedImage target) {
+		final int[] pixels = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+		
+		Arrays.fill(pixels, Color.WHITE.getRGB() & PNGGenerator.RGB_MASK);
+		
+		return pixels;
+	}
+	
+	/**
+	 * Füllt eine Box zeilenweise in das Pixelarray. Wie bei {@link Graphics2D#fillRect(int, int, int, int)} wird am
+	 * Bildrand abgeschnitten, Trennzeichen werden nur in halber Höhe gefüllt.
+	 * 
+	 * @param pixels
+	 *            Das Pixelarray.
+	 * @param width
+	 *            Die Breite des Bildes.
+	 * @param height
+	 *            Die Höhe des Bildes.
+	 * @param xPosition
+	 *            Die X-Position.
+	 * @param yPosition
+	 *            Die Y-Position.
+	 * @param boxWidth
+	 *            Die Breite der Box.
+	 * @param type
+	 *            Der Typ.
+	 * @param color
+	 *            Die Farbe.
+	 */
+	static void fill(final int[] pixels, final int width, final int height, final int xPosition, final int yPosition, final int boxWidth, final Types type, final Color color) {
+		final int rgb = color.getRGB() & PNGGenerator.RGB_MASK;
+		final int top = type == Types.Delimeter ? yPosition + Box.LINE_HEIGHT / 2 : yPosition;
+		final int bottom = Math.min(yPosition + Box.LINE_HEIGHT, height);
+		final int left = Math.max(xPosition, 0);
+		final int right = Math.min(xPosition + boxWidth, width);
+		
+		if (left >= right) {
+			return;
+		}
+		
+		for (int y = Math.max(top, 0); y < bottom; y++) {
+			Arrays.fill(pixels, y * width + left, y * width + right, rgb);
 		}
 	}
 	
@@ -47,4 +184,16 @@ public class PNGGenerator {
 		ImageIO.write((RenderedImage) this.image, "png", new File(this.filename));
 	}
 	
+	/**
+	 * Kodiert das Bild als PNG in den Stream, etwa um das Kodieren vom Schreiben der Datei zu trennen.
+	 * 
+	 * @param output
+	 *            Der Stream. Er wird nicht geschlossen.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public void write(final OutputStream output) throws IOException {
+		ImageIO.write((RenderedImage) this.image, "png", output);
+	}
+	
 }
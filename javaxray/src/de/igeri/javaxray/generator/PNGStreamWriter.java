@@ -0,0 +1,243 @@
+package de.igeri.javaxray.generator;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Schreibt ein PNG zeilenweise in einen Stream. Die Zeilen werden direkt komprimiert und in IDAT-Chunks fester Größe
+ * ausgegeben, das Bild muss also nie vollständig im Speicher liegen.
+ * 
+ * @author smolli
+ */
+public final class PNGStreamWriter {
+	
+	/** Farbtyp für RGB-Bilder. */
+	public static final int COLOR_TYPE_TRUECOLOR = 2;
+	/** Farbtyp für Bilder mit Palette. */
+	public static final int COLOR_TYPE_INDEXED = 3;
+	/** Filter ohne Vorhersage. */
+	public static final int FILTER_NONE = 0;
+	/** Filter mit der Zeile darüber als Vorhersage. */
+	public static final int FILTER_UP = 2;
+	
+	/** Die Signatur jeder PNG-Datei. */
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	/** Die maximale Größe eines IDAT-Chunks. */
+	private static final int CHUNK_SIZE = 1 << 15;
+	/** Die Länge des IHDR-Chunks. */
+	private static final int HEADER_LENGTH = 13;
+	
+	/** Der Ausgabestream. */
+	private final DataOutputStream out;
+	/** Der Kompressor. */
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+	/** Komprimiert die Zeilen in die IDAT-Chunks. */
+	private final DeflaterOutputStream data;
+	/** Die Prüfsumme der Chunks. */
+	private final CRC32 crc = new CRC32();
+	/** Die Anzahl der Zeilen. */
+	private final int height;
+	/** Die Anzahl der geschriebenen Zeilen. */
+	private int rows;
+	
+	/**
+	 * Puffert die komprimierten Daten und gibt sie als IDAT-Chunks aus.
+	 * 
+	 * @author smolli
+	 */
+	private final class ChunkOutputStream extends OutputStream {
+		
+		/** Der Puffer des aktuellen Chunks. */
+		private final byte[] buffer = new byte[PNGStreamWriter.CHUNK_SIZE];
+		/** Die Anzahl der Bytes im Puffer. */
+		private int count;
+		
+		@Override
+		public void write(final int value) throws IOException {
+			if (this.count == this.buffer.length) {
+				this.flush();
+			}
+			
+			this.buffer[this.count++] = (byte) value;
+		}
+		
+		@Override
+		public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+			int position = offset;
+			int remaining = length;
+			
+			while (remaining > 0) {
+				if (this.count == this.buffer.length) {
+					this.flush();
+				}
+				
+				final int part = Math.min(remaining, this.buffer.length - this.count);
+				
+				System.arraycopy(bytes, position, this.buffer, this.count, part);
+				
+				this.count += part;
+				position += part;
+				remaining -= part;
+			}
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			if (this.count > 0) {
+				PNGStreamWriter.this.writeChunk("IDAT", this.buffer, this.count);
+				
+				this.count = 0;
+			}
+		}
+		
+	}
+	
+	/**
+	 * Ctor. Schreibt die Signatur und den Header.
+	 * 
+	 * @param out
+	 *            Der Ausgabestream. Er wird nicht geschlossen.
+	 * @param width
+	 *            Die Breite in Pixeln.
+	 * @param height
+	 *            Die Höhe in Pixeln.
+	 * @param bitDepth
+	 *            Die Bits je Farbwert oder Palettenindex.
+	 * @param colorType
+	 *            Der Farbtyp, z. B. {@link #COLOR_TYPE_TRUECOLOR}.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public PNGStreamWriter(final OutputStream out, final int width, final int height, final int bitDepth, final int colorType) throws IOException {
+		if ((width <= 0) || (height <= 0)) {
+			throw new IllegalArgumentException("Width (" + width + ") and height (" + height + ") cannot be <= 0");
+		}
+		
+		this.out = new DataOutputStream(out);
+		this.height = height;
+		this.data = new DeflaterOutputStream(new ChunkOutputStream(), this.deflater, PNGStreamWriter.CHUNK_SIZE);
+		
+		final byte[] header = new byte[PNGStreamWriter.HEADER_LENGTH];
+		
+		PNGStreamWriter.putInt(header, 0, width);
+		PNGStreamWriter.putInt(header, 4, height);
+		header[8] = (byte) bitDepth;
+		header[9] = (byte) colorType;
+		
+		this.out.write(PNGStreamWriter.SIGNATURE);
+		this.writeChunk("IHDR", header, header.length);
+	}
+	
+	/**
+	 * Schreibt die Palette. Sie muss vor der ersten Zeile geschrieben werden.
+	 * 
+	 * @param rgb
+	 *            Die Farben der Palette als RGB-Bytes.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public void writePalette(final byte[] rgb) throws IOException {
+		if (this.rows > 0) {
+			throw new IllegalStateException("Palette must precede the image data");
+		}
+		
+		this.writeChunk("PLTE", rgb, rgb.length);
+	}
+	
+	/**
+	 * Schreibt die nächste Zeile.
+	 * 
+	 * @param row
+	 *            Die Zeile, beginnend mit dem Filtertyp, gefolgt von den gefilterten Pixeldaten.
+	 * @param length
+	 *            Die Länge der Zeile einschließlich des Filtertyps.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public void writeRow(final byte[] row, final int length) throws IOException {
+		if (this.rows == this.height) {
+			throw new IOException("Image has only " + this.height + " rows");
+		}
+		
+		this.data.write(row, 0, length);
+		this.rows++;
+	}
+	
+	/**
+	 * Gibt die Anzahl der bereits geschriebenen Zeilen zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	public int getRows() {
+		return this.rows;
+	}
+	
+	/**
+	 * Schließt die komprimierten Daten ab und schreibt das Ende des Bildes.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht alle Zeilen geschrieben wurden oder nicht geschrieben werden konnte.
+	 */
+	public void finish() throws IOException {
+		if (this.rows != this.height) {
+			throw new IOException("Only " + this.rows + " of " + this.height + " rows written");
+		}
+		
+		try {
+			this.data.finish();
+			this.data.flush();
+		} finally {
+			this.deflater.end();
+		}
+		
+		this.writeChunk("IEND", new byte[0], 0);
+		this.out.flush();
+	}
+	
+	/**
+	 * Schreibt einen Chunk mit Länge und Prüfsumme.
+	 * 
+	 * @param type
+	 *            Der Typ des Chunks.
+	 * @param chunk
+	 *            Die Daten.
+	 * @param length
+	 *            Die Länge der Daten.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	private void writeChunk(final String type, final byte[] chunk, final int length) throws IOException {
+		final byte[] name = type.getBytes("US-ASCII");
+		
+		this.crc.reset();
+		this.crc.update(name);
+		this.crc.update(chunk, 0, length);
+		
+		this.out.writeInt(length);
+		this.out.write(name);
+		this.out.write(chunk, 0, length);
+		this.out.writeInt((int) this.crc.getValue());
+	}
+	
+	/**
+	 * Schreibt einen Integer in Netzwerk-Bytereihenfolge.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Die Position im Puffer.
+	 * @param value
+	 *            Der Wert.
+	 */
+	private static void putInt(final byte[] buffer, final int offset, final int value) {
+		buffer[offset] = (byte) (value >>> 24);
+		buffer[offset + 1] = (byte) (value >>> 16);
+		buffer[offset + 2] = (byte) (value >>> 8);
+		buffer[offset + 3] = (byte) value;
+	}
+	
+}
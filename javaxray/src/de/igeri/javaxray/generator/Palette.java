@@ -0,0 +1,108 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Die feste Farbpalette der Bilder. Sie enthält den weißen Hintergrund und jede Farbe aus {@link Types} genau einmal,
+ * sodass jeder Pixel als kleiner Index dargestellt werden kann.
+ * 
+ * @author smolli
+ */
+final class Palette {
+	
+	/** Der Index des Hintergrunds. */
+	static final byte BACKGROUND = 0;
+	
+	/** Die maximale Anzahl an Farben für Indizes mit vier Bit. */
+	private static final int NIBBLE_COLORS = 16;
+	/** Die Farben der Palette. */
+	private static final Color[] COLORS;
+	/** Die Indizes aller Typen, indiziert über die Ordinalzahl. */
+	private static final byte[] INDICES = new byte[Types.values().length];
+	
+	static {
+		final List<Color> colors = new ArrayList<Color>();
+		
+		colors.add(Color.WHITE);
+		
+		for (final Types type : Types.values()) {
+			int index = colors.indexOf(type.getColor());
+			
+			if (index < 0) {
+				index = colors.size();
+				colors.add(type.getColor());
+			}
+			
+			Palette.INDICES[type.ordinal()] = (byte) index;
+		}
+		
+		COLORS = colors.toArray(new Color[colors.size()]);
+	}
+	
+	/**
+	 * Gibt den Index eines Typs zurück.
+	 * 
+	 * @param type
+	 *            Der Typ.
+	 * @return Der Index.
+	 */
+	static byte indexOf(final Types type) {
+		return Palette.INDICES[type.ordinal()];
+	}
+	
+	/**
+	 * Gibt die Farbe zu einem Index zurück.
+	 * 
+	 * @param index
+	 *            Der Index.
+	 * @return Die Farbe.
+	 */
+	static Color getColor(final int index) {
+		return Palette.COLORS[index];
+	}
+	
+	/**
+	 * Gibt die Anzahl der Farben zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	static int size() {
+		return Palette.COLORS.length;
+	}
+	
+	/**
+	 * Gibt die Bits je Index zurück, vier wenn die Palette klein genug ist, sonst acht.
+	 * 
+	 * @return Die Bits je Index.
+	 */
+	static int getBitDepth() {
+		return Palette.COLORS.length <= Palette.NIBBLE_COLORS ? 4 : Byte.SIZE;
+	}
+	
+	/**
+	 * Gibt die Palette als RGB-Bytes zurück, wie sie im PLTE-Chunk stehen.
+	 * 
+	 * @return Die RGB-Bytes.
+	 */
+	static byte[] toRGB() {
+		final byte[] rgb = new byte[Palette.COLORS.length * 3];
+		
+		for (int i = 0; i < Palette.COLORS.length; i++) {
+			rgb[i * 3] = (byte) Palette.COLORS[i].getRed();
+			rgb[i * 3 + 1] = (byte) Palette.COLORS[i].getGreen();
+			rgb[i * 3 + 2] = (byte) Palette.COLORS[i].getBlue();
+		}
+		
+		return rgb;
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private Palette() {}
+	
+}
@@ -0,0 +1,293 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import de.igeri.javaxray.java2box.Box;
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Schreibt die {@link Box}en zeilenweise als SVG, während sie erzeugt werden. Es wird kein Dokumentbaum aufgebaut,
+ * gehalten wird nur die aktuelle Quellcodezeile. Aneinandergrenzende Boxen einer Zeile mit gleicher Farbe werden zu
+ * einem einzigen <code>&lt;rect&gt;</code> zusammengefasst, Boxen in der Hintergrundfarbe entfallen. Die Rechtecke
+ * einer Zeile werden je Farbe in einem <code>&lt;g&gt;</code> gruppiert, die Farben stehen als CSS-Klassen
+ * (<code>c1</code>, <code>c2</code>, ...) der {@link Palette} einmal im Kopf. Das Ergebnis entspricht Pixel für Pixel dem
+ * {@link PNGGenerator}, Trennzeichen werden also nur in der unteren Hälfte der Zeile gezeichnet.
+ * <p>
+ * Wie beim {@link StreamingPNGGenerator} steht die Ausdehnung im Kopf und muss vorher bekannt sein. Die Boxen einer
+ * Zeile müssen von links nach rechts gemeldet werden. Fehler beim Schreiben werden gemerkt und von {@link #close()}
+ * geworfen.
+ * 
+ * @author smolli
+ */
+public final class SVGGenerator implements BoxSink, Closeable {
+	
+	/** Die übliche Dateiendung. */
+	public static final String SUFFIX = ".svg";
+	
+	/** Die Anfangskapazität der Zeile in Rechtecken. */
+	private static final int INITIAL_RUNS = 64;
+	/** Die Anfangskapazität des Puffers einer Zeile in Zeichen. */
+	private static final int INITIAL_LINE_LENGTH = 1024;
+	/** Die Maske für die RGB-Anteile einer Farbe. */
+	private static final int RGB_MASK = 0xffffff;
+	/** Die Stellen einer Farbe in Hexadezimalschreibweise. */
+	private static final int RGB_DIGITS = 6;
+	
+	/** Der Ausgabestrom. */
+	private final Writer out;
+	/** Der Puffer für die Ausgabe einer Zeile. */
+	private final StringBuilder text = new StringBuilder(SVGGenerator.INITIAL_LINE_LENGTH);
+	/** Die X-Positionen der Rechtecke der aktuellen Zeile. */
+	private int[] runX = new int[SVGGenerator.INITIAL_RUNS];
+	/** Die Breiten der Rechtecke der aktuellen Zeile. */
+	private int[] runWidth = new int[SVGGenerator.INITIAL_RUNS];
+	/** Die Palettenindizes der Rechtecke der aktuellen Zeile. */
+	private byte[] runColor = new byte[SVGGenerator.INITIAL_RUNS];
+	/** Gibt je Rechteck der aktuellen Zeile an, ob es nur die untere Hälfte füllt. */
+	private boolean[] runHalf = new boolean[SVGGenerator.INITIAL_RUNS];
+	/** Die Anzahl der Rechtecke der aktuellen Zeile. */
+	private int runs;
+	/** Die Y-Position der aktuellen Zeile. */
+	private int linePosition;
+	/** Die Anzahl der geschriebenen Rechtecke. */
+	private long rectangles;
+	/** Der erste Fehler beim Schreiben oder <code>null</code>. */
+	private IOException error;
+	
+	/**
+	 * Ctor. Legt die Datei an und schreibt den Kopf.
+	 * 
+	 * @param file
+	 *            Die SVG-Datei.
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht angelegt werden konnte.
+	 */
+	public SVGGenerator(final File file, final Dimension dimension) throws IOException {
+		this(new BufferedOutputStream(new FileOutputStream(file)), dimension);
+	}
+	
+	/**
+	 * Ctor. Schreibt den Kopf in den Stream, der mit {@link #close()} geschlossen wird.
+	 * 
+	 * @param output
+	 *            Der Stream.
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Kopf nicht geschrieben werden konnte.
+	 */
+	public SVGGenerator(final OutputStream output, final Dimension dimension) throws IOException {
+		this.out = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+		
+		try {
+			this.writeHeader(dimension);
+		} catch (final IOException e) {
+			this.out.close();
+			
+			throw e;
+		}
+	}
+	
+	/**
+	 * Schreibt den XML-Kopf, das Stylesheet mit einer Klasse je Farbe der {@link Palette} und den Hintergrund.
+	 * 
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	private void writeHeader(final Dimension dimension) throws IOException {
+		final StringBuilder header = new StringBuilder();
+		
+		header.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		header.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(dimension.width).append("\" height=\"").append(dimension.height);
+		header.append("\" viewBox=\"0 0 ").append(dimension.width).append(' ').append(dimension.height).append("\" shape-rendering=\"crispEdges\">\n");
+		header.append("<style>");
+		
+		for (int i = 0; i < Palette.size(); i++) {
+			if (i != Palette.BACKGROUND) {
+				header.append(".c").append(i).append("{fill:").append(SVGGenerator.toHex(Palette.getColor(i))).append('}');
+			}
+		}
+		
+		header.append("</style>\n");
+		header.append("<rect width=\"100%\" height=\"100%\" fill=\"").append(SVGGenerator.toHex(Palette.getColor(Palette.BACKGROUND))).append("\"/>\n");
+		
+		this.out.write(header.toString());
+	}
+	
+	@Override
+	public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+		if (yPosition != this.linePosition) {
+			this.flushLine();
+			this.linePosition = yPosition;
+		}
+		
+		final byte color = Palette.indexOf(type);
+		final boolean half = type == Types.Delimeter;
+		
+		if ((color == Palette.BACKGROUND) || (width <= 0)) {
+			return;
+		}
+		
+		if (this.runs > 0) {
+			final int last = this.runs - 1;
+			
+			if ((this.runColor[last] == color) && (this.runHalf[last] == half) && (this.runX[last] + this.runWidth[last] == xPosition)) {
+				this.runWidth[last] += width;
+				
+				return;
+			}
+		}
+		
+		if (this.runs == this.runX.length) {
+			this.runX = Arrays.copyOf(this.runX, this.runs * 2);
+			this.runWidth = Arrays.copyOf(this.runWidth, this.runs * 2);
+			this.runColor = Arrays.copyOf(this.runColor, this.runs * 2);
+			this.runHalf = Arrays.copyOf(this.runHalf, this.runs * 2);
+		}
+		
+		this.runX[this.runs] = xPosition;
+		this.runWidth[this.runs] = width;
+		this.runColor[this.runs] = color;
+		this.runHalf[this.runs] = half;
+		this.runs++;
+	}
+	
+	@Override
+	public void lineFeedTrigger(final int line) {
+		this.flushLine();
+		this.linePosition = (line + 1) * (Box.LINE_HEIGHT + Box.BOX_GAP);
+	}
+	
+	@Override
+	public void endTrigger() {
+		this.flushLine();
+		
+		try {
+			this.out.write("</svg>\n");
+			this.out.flush();
+		} catch (final IOException e) {
+			this.fail(e);
+		}
+	}
+	
+	/**
+	 * Schließt die Datei.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn beim Schreiben ein Fehler aufgetreten ist oder die Datei nicht geschlossen werden
+	 *             konnte.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.out.close();
+		
+		if (this.error != null) {
+			throw this.error;
+		}
+	}
+	
+	/**
+	 * Gibt die Anzahl der bisher geschriebenen Rechtecke zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	public long getRectangles() {
+		return this.rectangles;
+	}
+	
+	/**
+	 * Schreibt die Rechtecke der aktuellen Zeile, nach Farben gruppiert, und leert die Zeile.
+	 */
+	private void flushLine() {
+		if (this.runs == 0) {
+			return;
+		}
+		
+		this.text.setLength(0);
+		
+		for (int color = 0; color < Palette.size(); color++) {
+			boolean open = false;
+			
+			for (int i = 0; i < this.runs; i++) {
+				if (this.runColor[i] != color) {
+					continue;
+				}
+				
+				if (!open) {
+					this.text.append("<g class=\"c").append(color).append("\">");
+					open = true;
+				}
+				
+				final int offset = this.runHalf[i] ? Box.LINE_HEIGHT / 2 : 0;
+				
+				this.text.append("<rect x=\"").append(this.runX[i]).append("\" y=\"").append(this.linePosition + offset);
+				this.text.append("\" width=\"").append(this.runWidth[i]).append("\" height=\"").append(Box.LINE_HEIGHT - offset).append("\"/>");
+			}
+			
+			if (open) {
+				this.text.append("</g>\n");
+			}
+		}
+		
+		this.rectangles += this.runs;
+		this.runs = 0;
+		
+		try {
+			if (this.error != null) {
+				// Nach einem Fehler wird nichts mehr geschrieben.
+				throw this.error;
+			}
+			
+			this.out.append(this.text);
+		} catch (final IOException e) {
+			this.fail(e);
+		}
+	}
+	
+	/**
+	 * Merkt sich den ersten Fehler.
+	 * 
+	 * @param e
+	 *            Der Fehler.
+	 */
+	private void fail(final IOException e) {
+		if (this.error == null) {
+			this.error = e;
+		}
+	}
+	
+	/**
+	 * Gibt eine Farbe in CSS-Schreibweise zurück.
+	 * 
+	 * @param color
+	 *            Die Farbe.
+	 * @return Die Farbe als <code>#rrggbb</code>.
+	 */
+	private static String toHex(final Color color) {
+		final String hex = Integer.toHexString(color.getRGB() & SVGGenerator.RGB_MASK);
+		final StringBuilder result = new StringBuilder("#");
+		
+		for (int i = hex.length(); i < SVGGenerator.RGB_DIGITS; i++) {
+			result.append('0');
+		}
+		
+		return result.append(hex).toString();
+	}
+	
+}
@@ -0,0 +1,376 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import de.igeri.javaxray.java2box.Box;
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Zeichnet die {@link Box}en zeilenweise in ein PNG, während sie erzeugt werden. Gehalten wird nur das Band der aktuellen
+ * Quellcodezeile ({@link Box#LINE_HEIGHT} Pixelzeilen), der Speicherbedarf hängt also nur von der Breite des Bildes ab.
+ * Das Band enthält je Pixel den Index in der {@link Palette}, eine Box wird also durch einfaches Füllen von Bytes
+ * gezeichnet. Erst beim Schreiben wird je nach {@link Format} in RGB umgesetzt oder in Indizes mit vier oder acht Bit
+ * gepackt. Das Ergebnis entspricht Pixel für Pixel dem {@link PNGGenerator}.
+ * <p>
+ * Da der Header die Ausdehnung enthält, muss sie vorher bekannt sein, z. B. über einen ersten Durchlauf mit einem
+ * {@link de.igeri.javaxray.java2box.DimensionSink}. Fehler beim Schreiben werden gemerkt und von {@link #close()}
+ * geworfen.
+ * 
+ * @author smolli
+ */
+public final class StreamingPNGGenerator implements BoxSink, Closeable {
+	
+	/**
+	 * Die möglichen Ausgabeformate.
+	 * 
+	 * @author smolli
+	 */
+	public enum Format {
+		/** RGB mit acht Bit je Farbwert. */
+		Rgb,
+		/** Palette mit den Farben aus {@link Types}, vier oder acht Bit je Pixel. */
+		Indexed;
+		
+		/**
+		 * Sucht das Format zu einem Namen, ohne Groß- und Kleinschreibung zu beachten.
+		 * 
+		 * @param name
+		 *            Der Name.
+		 * @return Das Format.
+		 * @throws IllegalArgumentException
+		 *             Wird geworfen, wenn es kein Format mit dem Namen gibt.
+		 */
+		public static Format parse(final String name) {
+			for (final Format format : Format.values()) {
+				if (format.name().equalsIgnoreCase(name)) {
+					return format;
+				}
+			}
+			
+			throw new IllegalArgumentException("Unknown format: " + name);
+		}
+	}
+	
+	/** Bytes je Pixel im RGB-Format. */
+	private static final int BYTES_PER_PIXEL = 3;
+	
+	/** Der Ausgabestream. */
+	private final OutputStream out;
+	/** Der PNG-Schreiber. */
+	private final PNGStreamWriter writer;
+	/** Das Ausgabeformat. */
+	private final Format format;
+	/** Die Bits je Palettenindex. */
+	private final int bitDepth;
+	/** Die Breite in Pixeln. */
+	private final int width;
+	/** Die Höhe in Pixeln. */
+	private final int height;
+	/** Die Pixelzeilen des aktuellen Bandes als Palettenindizes. */
+	private final byte[][] band = new byte[Box.LINE_HEIGHT][];
+	/** Eine leere Pixelzeile. */
+	private final byte[] blank;
+	/** Die aktuelle Zeile im Ausgabeformat, ungefiltert. */
+	private byte[] current;
+	/** Die zuletzt geschriebene Zeile im Ausgabeformat, ungefiltert. */
+	private byte[] previous;
+	/** Die gefilterte Zeile mit dem Filtertyp vorweg. */
+	private final byte[] filtered;
+	/** Die Y-Position des aktuellen Bandes. */
+	private int bandPosition;
+	/** Der erste Fehler beim Schreiben oder <code>null</code>. */
+	private IOException error;
+	
+	/**
+	 * Ctor. Legt die Datei im RGB-Format an und schreibt den Header.
+	 * 
+	 * @param file
+	 *            Die PNG-Datei.
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht angelegt werden konnte.
+	 */
+	public StreamingPNGGenerator(final File file, final Dimension dimension) throws IOException {
+		this(file, dimension, Format.Rgb);
+	}
+	
+	/**
+	 * Ctor. Legt die Datei an und schreibt den Header.
+	 * 
+	 * @param file
+	 *            Die PNG-Datei.
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @param format
+	 *            Das Ausgabeformat.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht angelegt werden konnte.
+	 */
+	public StreamingPNGGenerator(final File file, final Dimension dimension, final Format format) throws IOException {
+		this(StreamingPNGGenerator.open(file, dimension), dimension, format);
+	}
+	
+	/**
+	 * Ctor. Schreibt den Header in den Stream, der mit {@link #close()} geschlossen wird.
+	 * 
+	 * @param output
+	 *            Der Stream.
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @param format
+	 *            Das Ausgabeformat.
+	 * @throws IOException
+	 *             Wird geworfen, wenn der Header nicht geschrieben werden konnte.
+	 */
+	public StreamingPNGGenerator(final OutputStream output, final Dimension dimension, final Format format) throws IOException {
+		if ((dimension.width <= 0) || (dimension.height <= 0)) {
+			throw new IllegalArgumentException("Width (" + dimension.width + ") and height (" + dimension.height + ") cannot be <= 0");
+		}
+		
+		this.format = format;
+		this.bitDepth = format == Format.Indexed ? Palette.getBitDepth() : Byte.SIZE;
+		this.width = dimension.width;
+		this.height = dimension.height;
+		this.out = output;
+		
+		try {
+			if (format == Format.Indexed) {
+				this.writer = new PNGStreamWriter(this.out, this.width, this.height, this.bitDepth, PNGStreamWriter.COLOR_TYPE_INDEXED);
+				this.writer.writePalette(Palette.toRGB());
+			} else {
+				this.writer = new PNGStreamWriter(this.out, this.width, this.height, this.bitDepth, PNGStreamWriter.COLOR_TYPE_TRUECOLOR);
+			}
+		} catch (final IOException e) {
+			this.out.close();
+			
+			throw e;
+		}
+		
+		for (int i = 0; i < this.band.length; i++) {
+			this.band[i] = new byte[this.width];
+		}
+		
+		final int length = format == Format.Indexed ? (this.width * this.bitDepth + Byte.SIZE - 1) / Byte.SIZE : this.width * StreamingPNGGenerator.BYTES_PER_PIXEL;
+		
+		this.blank = new byte[this.width];
+		this.current = new byte[length];
+		this.previous = new byte[length];
+		this.filtered = new byte[length + 1];
+		
+		Arrays.fill(this.blank, Palette.BACKGROUND);
+		this.clearBand();
+	}
+	
+	/**
+	 * Prüft die Ausdehnung und legt erst dann die Datei an, damit bei einem leeren Bild keine Datei entsteht.
+	 * 
+	 * @param file
+	 *            Die PNG-Datei.
+	 * @param dimension
+	 *            Die Ausdehnung des Bildes.
+	 * @return Der gepufferte Stream in die Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht angelegt werden konnte.
+	 */
+	private static OutputStream open(final File file, final Dimension dimension) throws IOException {
+		if ((dimension.width <= 0) || (dimension.height <= 0)) {
+			throw new IllegalArgumentException("Width (" + dimension.width + ") and height (" + dimension.height + ") cannot be <= 0");
+		}
+		
+		return new BufferedOutputStream(new FileOutputStream(file));
+	}
+	
+	@Override
+	public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+		if (yPosition != this.bandPosition) {
+			this.flushBand();
+			this.bandPosition = yPosition;
+		}
+		
+		final int end = Math.min(xPosition + width, this.width);
+		final byte index = Palette.indexOf(type);
+		final int firstRow = type == Types.Delimeter ? Box.LINE_HEIGHT / 2 : 0;
+		
+		if (xPosition < end) {
+			for (int row = firstRow; row < Box.LINE_HEIGHT; row++) {
+				Arrays.fill(this.band[row], xPosition, end, index);
+			}
+		}
+	}
+	
+	@Override
+	public void lineFeedTrigger(final int line) {
+		this.flushBand();
+		this.bandPosition = (line + 1) * (Box.LINE_HEIGHT + Box.BOX_GAP);
+	}
+	
+	@Override
+	public void endTrigger() {
+		this.flushBand();
+		
+		try {
+			while (this.writer.getRows() < this.height) {
+				this.writeRow(this.blank);
+			}
+			
+			this.writer.finish();
+		} catch (final IOException e) {
+			this.fail(e);
+		}
+	}
+	
+	/**
+	 * Schließt die Datei.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn beim Schreiben ein Fehler aufgetreten ist oder die Datei nicht geschlossen werden
+	 *             konnte.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.out.close();
+		
+		if (this.error != null) {
+			throw this.error;
+		}
+	}
+	
+	/**
+	 * Schreibt das aktuelle Band und die Lücke davor, soweit sie innerhalb des Bildes liegen, und leert das Band.
+	 */
+	private void flushBand() {
+		try {
+			while ((this.writer.getRows() < this.bandPosition) && (this.writer.getRows() < this.height)) {
+				this.writeRow(this.blank);
+			}
+			
+			for (int row = 0; (row < Box.LINE_HEIGHT) && (this.writer.getRows() < this.height); row++) {
+				this.writeRow(this.band[row]);
+			}
+		} catch (final IOException e) {
+			this.fail(e);
+		}
+		
+		this.clearBand();
+	}
+	
+	/**
+	 * Setzt eine Pixelzeile in das Ausgabeformat um, filtert sie gegen die vorherige und schreibt sie.
+	 * 
+	 * @param indices
+	 *            Die Pixelzeile als Palettenindizes.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	private void writeRow(final byte[] indices) throws IOException {
+		if (this.error != null) {
+			// Nach einem Fehler wird nichts mehr geschrieben.
+			throw this.error;
+		}
+		
+		if (this.format == Format.Rgb) {
+			this.expand(indices);
+		} else {
+			this.pack(indices);
+		}
+		
+		this.filtered[0] = PNGStreamWriter.FILTER_UP;
+		
+		for (int i = 0; i < this.current.length; i++) {
+			this.filtered[i + 1] = (byte) (this.current[i] - this.previous[i]);
+		}
+		
+		final byte[] swap = this.previous;
+		
+		this.previous = this.current;
+		this.current = swap;
+		
+		this.writer.writeRow(this.filtered, this.filtered.length);
+	}
+	
+	/**
+	 * Setzt die Palettenindizes in RGB-Bytes um.
+	 * 
+	 * @param indices
+	 *            Die Pixelzeile als Palettenindizes.
+	 */
+	private void expand(final byte[] indices) {
+		final byte[] rgb = this.current;
+		int index = -1;
+		int red = 0;
+		int green = 0;
+		int blue = 0;
+		
+		for (int i = 0, j = 0; i < indices.length; i++, j += StreamingPNGGenerator.BYTES_PER_PIXEL) {
+			if (indices[i] != index) {
+				index = indices[i];
+				
+				final Color color = Palette.getColor(index);
+				
+				red = color.getRed();
+				green = color.getGreen();
+				blue = color.getBlue();
+			}
+			
+			rgb[j] = (byte) red;
+			rgb[j + 1] = (byte) green;
+			rgb[j + 2] = (byte) blue;
+		}
+	}
+	
+	/**
+	 * Packt die Palettenindizes mit der eingestellten Bittiefe, das höchstwertige Bit zuerst.
+	 * 
+	 * @param indices
+	 *            Die Pixelzeile als Palettenindizes.
+	 */
+	private void pack(final byte[] indices) {
+		if (this.bitDepth == Byte.SIZE) {
+			System.arraycopy(indices, 0, this.current, 0, indices.length);
+			
+			return;
+		}
+		
+		final int perByte = Byte.SIZE / this.bitDepth;
+		
+		Arrays.fill(this.current, (byte) 0);
+		
+		for (int i = 0; i < indices.length; i++) {
+			final int shift = Byte.SIZE - this.bitDepth * (i % perByte + 1);
+			
+			this.current[i / perByte] |= indices[i] << shift;
+		}
+	}
+	
+	/**
+	 * Merkt sich den ersten Fehler.
+	 * 
+	 * @param e
+	 *            Der Fehler.
+	 */
+	private void fail(final IOException e) {
+		if (this.error == null) {
+			this.error = e;
+		}
+	}
+	
+	/**
+	 * Füllt das Band mit dem Hintergrund.
+	 */
+	private void clearBand() {
+		for (final byte[] pixels : this.band) {
+			System.arraycopy(this.blank, 0, pixels, 0, pixels.length);
+		}
+	}
+	
+}
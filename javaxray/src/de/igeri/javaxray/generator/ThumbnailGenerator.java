@@ -0,0 +1,193 @@
+package de.igeri.javaxray.generator;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import de.igeri.javaxray.java2box.Box;
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Erzeugt ein verkleinertes Bild direkt aus dem Strom der {@link Box}en, ohne das Bild in voller Größe zu zeichnen. Ein
+ * Pixel fasst eine feste Anzahl von Zeichen und Zeilen zusammen; seine Farbe ist der nach Fläche gewichtete Mittelwert
+ * der Boxen darin, der Rest zählt als Weiß. Das Ergebnis entspricht also einem Bild von {@link PNGGenerator}, das
+ * blockweise gemittelt wurde.
+ * <p>
+ * Gespeichert werden nur Summen je Pixel des verkleinerten Bildes. Der Speicherbedarf sinkt daher mit dem Produkt der
+ * beiden Faktoren, auch bei sehr langen Dateien.
+ * 
+ * @author smolli
+ */
+public final class ThumbnailGenerator implements BoxSink {
+	
+	/** Anzahl der Summen je Pixel: Rot, Grün, Blau und die bedeckte Fläche. */
+	private static final int SUMS = 4;
+	/** Maske eines Farbkanals. */
+	private static final int CHANNEL_MASK = 0xFF;
+	/** Der Wert eines Farbkanals von Weiß. */
+	private static final int WHITE = 0xFF;
+	
+	/** Die Breite eines Pixels in Pixeln des vollen Bildes. */
+	private final int cellWidth;
+	/** Die Höhe eines Pixels in Pixeln des vollen Bildes. */
+	private final int cellHeight;
+	/** Die Summen je Pixelzeile des verkleinerten Bildes. */
+	private final List<long[]> rows = new ArrayList<long[]>();
+	/** Die Breite des vollen Bildes. */
+	private int maxx;
+	/** Die Höhe des vollen Bildes. */
+	private int maxy;
+	/** Das fertige Bild oder <code>null</code>, solange noch Boxen kommen. */
+	private BufferedImage image;
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param charsPerPixel
+	 *            Die Anzahl der Zeichen je Pixel in der Breite.
+	 * @param linesPerPixel
+	 *            Die Anzahl der Zeilen je Pixel in der Höhe.
+	 */
+	public ThumbnailGenerator(final int charsPerPixel, final int linesPerPixel) {
+		if ((charsPerPixel <= 0) || (linesPerPixel <= 0)) {
+			throw new IllegalArgumentException("Scale (" + charsPerPixel + "x" + linesPerPixel + ") cannot be <= 0");
+		}
+		
+		this.cellWidth = charsPerPixel * Box.CHAR_WIDTH;
+		this.cellHeight = linesPerPixel * (Box.LINE_HEIGHT + Box.BOX_GAP);
+	}
+	
+	@Override
+	public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+		final int top = type == Types.Delimeter ? yPosition + Box.LINE_HEIGHT / 2 : yPosition;
+		final int bottom = yPosition + Box.LINE_HEIGHT;
+		final int right = xPosition + width;
+		final int rgb = type.getColor().getRGB();
+		
+		this.maxx = Math.max(this.maxx, right);
+		this.maxy = Math.max(this.maxy, bottom);
+		
+		for (int row = top / this.cellHeight; row * this.cellHeight < bottom; row++) {
+			final int height = Math.min(bottom, (row + 1) * this.cellHeight) - Math.max(top, row * this.cellHeight);
+			final long[] sums = this.getRow(row, (right - 1) / this.cellWidth + 1);
+			
+			for (int column = xPosition / this.cellWidth; column * this.cellWidth < right; column++) {
+				final long area = (long) height * (Math.min(right, (column + 1) * this.cellWidth) - Math.max(xPosition, column * this.cellWidth));
+				final int index = column * ThumbnailGenerator.SUMS;
+				
+				sums[index] += area * ((rgb >> 16) & ThumbnailGenerator.CHANNEL_MASK);
+				sums[index + 1] += area * ((rgb >> 8) & ThumbnailGenerator.CHANNEL_MASK);
+				sums[index + 2] += area * (rgb & ThumbnailGenerator.CHANNEL_MASK);
+				sums[index + 3] += area;
+			}
+		}
+	}
+	
+	@Override
+	public void lineFeedTrigger(final int line) {
+		// Die Zeile ergibt sich aus der Y-Position der Boxen.
+	}
+	
+	/**
+	 * Berechnet aus den Summen das verkleinerte Bild. Pixel am rechten und unteren Rand werden nur über den Teil
+	 * gemittelt, der innerhalb des vollen Bildes liegt.
+	 */
+	@Override
+	public void endTrigger() {
+		final int width = Math.max((this.maxx + this.cellWidth - 1) / this.cellWidth, 1);
+		final int height = Math.max((this.maxy + this.cellHeight - 1) / this.cellHeight, 1);
+		
+		this.image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		
+		final int[] pixels = ((DataBufferInt) this.image.getRaster().getDataBuffer()).getData();
+		
+		Arrays.fill(pixels, Color.WHITE.getRGB() & PNGGenerator.RGB_MASK);
+		
+		for (int row = 0; row < Math.min(height, this.rows.size()); row++) {
+			final long[] sums = this.rows.get(row);
+			final long cellHeightInside = Math.min(this.maxy, (row + 1) * this.cellHeight) - row * this.cellHeight;
+			
+			for (int column = 0; (column < width) && (column * ThumbnailGenerator.SUMS < sums.length); column++) {
+				final long cellArea = cellHeightInside * (Math.min(this.maxx, (column + 1) * this.cellWidth) - column * this.cellWidth);
+				final int index = column * ThumbnailGenerator.SUMS;
+				final long white = ThumbnailGenerator.WHITE * (cellArea - sums[index + 3]);
+				int rgb = 0;
+				
+				for (int channel = 0; channel < 3; channel++) {
+					rgb = (rgb << 8) | (int) ((sums[index + channel] + white + cellArea / 2) / cellArea);
+				}
+				
+				pixels[row * width + column] = rgb;
+			}
+		}
+		
+		this.rows.clear();
+	}
+	
+	/**
+	 * Gibt die Summen einer Pixelzeile zurück und legt sie bei Bedarf an oder verlängert sie.
+	 * 
+	 * @param row
+	 *            Die Pixelzeile.
+	 * @param columns
+	 *            Die Anzahl der benötigten Pixel.
+	 * @return Die Summen.
+	 */
+	private long[] getRow(final int row, final int columns) {
+		while (this.rows.size() <= row) {
+			this.rows.add(new long[0]);
+		}
+		
+		long[] sums = this.rows.get(row);
+		
+		if (sums.length < columns * ThumbnailGenerator.SUMS) {
+			sums = Arrays.copyOf(sums, Math.max(columns, sums.length / ThumbnailGenerator.SUMS * 2) * ThumbnailGenerator.SUMS);
+			this.rows.set(row, sums);
+		}
+		
+		return sums;
+	}
+	
+	/**
+	 * Gibt das verkleinerte Bild zurück.
+	 * 
+	 * @return Das Bild oder <code>null</code> vor {@link #endTrigger()}.
+	 */
+	public BufferedImage getImage() {
+		return this.image;
+	}
+	
+	/**
+	 * Speichert das verkleinerte Bild als PNG.
+	 * 
+	 * @param file
+	 *            Die Zieldatei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public void save(final File file) throws IOException {
+		ImageIO.write(this.image, "png", file);
+	}
+	
+	/**
+	 * Kodiert das verkleinerte Bild als PNG in den Stream.
+	 * 
+	 * @param output
+	 *            Der Stream. Er wird nicht geschlossen.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	public void write(final OutputStream output) throws IOException {
+		ImageIO.write(this.image, "png", output);
+	}
+	
+}
@@ -0,0 +1,819 @@
+package de.igeri.javaxray.java2box;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Maschine zum Zerlegen eines Puffers in Tokens. Die Tokens werden als Bereiche (Offset, Länge, Typ) im Originalpuffer
+ * gemeldet, es werden also keine Objekte je Token erzeugt. Der Zustand der Maschine bleibt zwischen zwei Blöcken erhalten,
+ * sodass auch aus einem {@link Reader} in Blöcken fester Größe gelesen werden kann.
+ * <p>
+ * Zerlegt wird der Sprachumfang bis Java 21 in einem Durchgang: Textblöcke werden zeilenweise als
+ * {@link Types#StringLiteral} gemeldet, <code>-&gt;</code> und <code>non-sealed</code> sind je ein Token, Unicode-Escapes
+ * gehören zum Bezeichner und qualifizierte Annotationen bleiben ein Wort. Vorausgeschaut wird dabei nie mehr als ein
+ * Zeichen. Nicht geschlossene Zeichenketten und Zeichen enden mit der Zeile.
+ * 
+ * @author smolli
+ */
+public abstract class AbstractTokenMachine {
+	
+	/** Die Breite eines Tabulators in Zeichen. */
+	static final int TAB_WIDTH = 4;
+	/** Die Größe eines Blocks beim Lesen aus einem {@link Reader}. */
+	private static final int CHUNK_SIZE = 65536;
+	/** Markiert im gesicherten Zustand ein maskiertes Zeichen im Literal. */
+	private static final int SKIP_END_OF_LITERAL = 0x100;
+	/** Maske für den Zustand im gesicherten Zustand. */
+	private static final int STATE_MASK = 0xFF;
+	/** Die Position der gezählten Anführungszeichen im gesicherten Zustand. */
+	private static final int QUOTES_SHIFT = 9;
+	/** Die Anzahl der Anführungszeichen, die einen Textblock öffnen und schließen. */
+	private static final int TEXT_BLOCK_QUOTES = 3;
+	/** Die Anzahl der Hexadezimalziffern eines Unicode-Escapes. */
+	private static final int UNICODE_DIGITS = 4;
+	/** Die Basis der Hexadezimalziffern. */
+	private static final int HEX_RADIX = 16;
+	/** Das Wort vor dem Bindestrich in <code>non-sealed</code>. */
+	private static final char[] NON = "non".toCharArray();
+	private States currentState = States.Idle;
+	private boolean skipEndOfLiteral;
+	/** Die Anzahl der aufeinanderfolgenden Anführungszeichen am Beginn oder im Inhalt eines Textblocks. */
+	private int quotes;
+	
+	private enum States {
+		Idle,
+		IdleCommentPending,
+		String,
+		Character,
+		BlockComment,
+		LineComment,
+		BlockCommentIdlePending,
+		Delimeter,
+		Numeric,
+		TextBlockPending,
+		TextBlock,
+		Arrow
+	}
+	
+	/** Alle Zustände, indiziert über die Ordinalzahl. */
+	private static final States[] STATES = States.values();
+	/** Der mit {@link #saveState()} gesicherte Zustand am Anfang der Eingabe. */
+	static final int IDLE_STATE = States.Idle.ordinal();
+	
+	/**
+	 * Parst den Puffer.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 */
+	public void parse(final char[] buffer) {
+		this.parse(buffer, 0, buffer.length);
+	}
+	
+	/**
+	 * Parst einen Ausschnitt des Puffers.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Ausschnitts.
+	 * @param length
+	 *            Die Länge des Ausschnitts.
+	 */
+	public void parse(final char[] buffer, final int offset, final int length) {
+		this.reset();
+		
+		final int start = this.scan(buffer, offset, offset, offset + length, offset + length);
+		
+		this.finish(buffer, start, offset + length);
+	}
+	
+	/**
+	 * Parst den gesamten Inhalt des {@link Reader}s in Blöcken fester Größe. Ein am Blockende angefangenes Token wird an
+	 * den Anfang des nächsten Blocks verschoben; Literale und Kommentare werden am Blockende stückweise gemeldet. Der
+	 * Speicherbedarf hängt daher nur von der Blockgröße und dem längsten Wort ab, nicht von der Länge der Eingabe. Die
+	 * gemeldeten Bereiche sind nur während des Aufrufs von {@link #tokenTrigger(char[], int, int, Types)} gültig.
+	 * 
+	 * @param reader
+	 *            Der {@link Reader}. Er wird nicht geschlossen.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht gelesen werden konnte.
+	 */
+	public void parse(final Reader reader) throws IOException {
+		char[] buffer = new char[AbstractTokenMachine.CHUNK_SIZE];
+		int start = 0;
+		int position = 0;
+		int limit = 0;
+		
+		this.reset();
+		
+		while (true) {
+			final int read = reader.read(buffer, limit, buffer.length - limit);
+			
+			if (read < 0) {
+				start = this.scan(buffer, start, position, limit, limit);
+				this.finish(buffer, start, limit);
+				
+				return;
+			}
+			
+			limit += read;
+			
+			// Das letzte Zeichen zurückhalten, damit immer ein Zeichen Vorschau bleibt.
+			if (position < limit - 1) {
+				start = this.scan(buffer, start, position, limit - 1, limit);
+				position = limit - 1;
+				start = this.flushLiteral(buffer, start, position);
+			}
+			
+			if (start > 0) {
+				System.arraycopy(buffer, start, buffer, 0, limit - start);
+				position -= start;
+				limit -= start;
+				start = 0;
+			} else if (limit == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+		}
+	}
+	
+	/**
+	 * Setzt die Maschine in den Ausgangszustand zurück.
+	 */
+	void reset() {
+		currentState = States.Idle;
+		skipEndOfLiteral = false;
+		quotes = 0;
+	}
+	
+	/**
+	 * Sichert den Zustand der Maschine als Zahl. Zusammen mit dem Beginn des offenen Tokens reicht er aus, um mit
+	 * {@link #restoreState(int)} an derselben Stelle weiterzuzerlegen. Zwei Stellen mit gleichem Zustand und gleichem
+	 * folgenden Text liefern dieselben Tokens.
+	 * 
+	 * @return Der Zustand.
+	 */
+	int saveState() {
+		return currentState.ordinal() | (skipEndOfLiteral ? AbstractTokenMachine.SKIP_END_OF_LITERAL : 0) | (quotes << AbstractTokenMachine.QUOTES_SHIFT);
+	}
+	
+	/**
+	 * Stellt einen mit {@link #saveState()} gesicherten Zustand wieder her.
+	 * 
+	 * @param state
+	 *            Der Zustand.
+	 */
+	void restoreState(final int state) {
+		currentState = AbstractTokenMachine.STATES[state & AbstractTokenMachine.STATE_MASK];
+		skipEndOfLiteral = (state & AbstractTokenMachine.SKIP_END_OF_LITERAL) != 0;
+		quotes = state >>> AbstractTokenMachine.QUOTES_SHIFT;
+	}
+	
+	/**
+	 * Meldet am Ende der Eingabe das noch offene Token.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param start
+	 *            Der Beginn des offenen Tokens.
+	 * @param end
+	 *            Das Ende der Eingabe (exklusiv).
+	 */
+	void finish(final char[] buffer, final int start, final int end) {
+		switch (currentState) {
+			case Numeric:
+				if (end > start) {
+					this.emitNumber(buffer, start, end);
+				}
+				break;
+			
+			case Delimeter:
+			case IdleCommentPending:
+			case Arrow:
+				this.emit(buffer, start, end, Types.Delimeter);
+				break;
+			
+			case Idle:
+				this.emitWord(buffer, start, end);
+				break;
+			
+			default:
+				this.flushLiteral(buffer, start, end);
+				break;
+		}
+		
+		this.reset();
+	}
+	
+	/**
+	 * Meldet den bisher gelesenen Teil eines Literals oder Kommentars, damit er nicht in den nächsten Block übernommen
+	 * werden muss. Aufeinanderfolgende Teile gleichen Typs werden später ohnehin zusammengefasst.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param start
+	 *            Der Beginn des offenen Tokens.
+	 * @param end
+	 *            Das Ende des gelesenen Teils (exklusiv).
+	 * @return Der neue Beginn des offenen Tokens.
+	 */
+	private int flushLiteral(final char[] buffer, final int start, final int end) {
+		final Types type;
+		
+		switch (currentState) {
+			case String:
+			case TextBlockPending:
+			case TextBlock:
+				type = Types.StringLiteral;
+				break;
+			
+			case Character:
+				type = Types.CharacterLiteral;
+				break;
+			
+			case BlockComment:
+			case BlockCommentIdlePending:
+				type = Types.BlockComment;
+				break;
+			
+			case LineComment:
+				type = Types.LineComment;
+				break;
+			
+			default:
+				return start;
+		}
+		
+		this.emit(buffer, start, end, type);
+		
+		return end;
+	}
+	
+	/**
+	 * Zerlegt einen Ausschnitt des Puffers ab dem aktuellen Zustand. Aufeinanderfolgende Ausschnitte liefern dieselben
+	 * Tokens wie ein einzelner, solange der zurückgegebene Beginn des offenen Tokens weitergereicht wird.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param tokenStart
+	 *            Der Beginn des offenen Tokens.
+	 * @param from
+	 *            Das erste zu lesende Zeichen.
+	 * @param end
+	 *            Das Ende des zu lesenden Ausschnitts (exklusiv).
+	 * @param limit
+	 *            Das Ende der gültigen Zeichen im Puffer (exklusiv), bis zu dem vorausgeschaut werden darf.
+	 * @return Der Beginn des danach noch offenen Tokens.
+	 */
+	int scan(final char[] buffer, final int tokenStart, final int from, final int end, final int limit) {
+		int start = tokenStart;
+		
+		for (int i = from; i < end; i++) {
+			final char element = buffer[i];
+			
+			// Zustände, die nur ein Zeichen vorausschauen, geben das Zeichen an den Folgezustand weiter.
+			if ((currentState == States.Numeric) && !AbstractTokenMachine.continuesNumber(buffer, start, i)) {
+				this.emitNumber(buffer, start, i);
+				start = i;
+				currentState = States.Idle;
+			} else if ((currentState == States.IdleCommentPending) && (element != '*') && (element != '/')) {
+				this.emit(buffer, start, i, Types.Delimeter);
+				start = i;
+				currentState = States.Idle;
+			} else if ((currentState == States.BlockCommentIdlePending) && (element != '*') && (element != '/')) {
+				currentState = States.BlockComment;
+			}
+			
+			switch (currentState) {
+				default:
+					break;
+				
+				case Delimeter:
+					if (!CharacterClasses.isDelimeter(element)) {
+						this.emit(buffer, start, i, Types.Delimeter);
+						start = i;
+						currentState = States.Idle;
+					}
+					
+				case Idle:
+					switch (element) {
+						case '\n':
+							this.emitWord(buffer, start, i);
+							this.tokenTrigger(buffer, i, 1, Types.LineFeed);
+							start = i + 1;
+							continue;
+							
+						case '\r':
+							this.emitWord(buffer, start, i);
+							start = i + 1;
+							continue;
+							
+						case '/':
+							this.emitWord(buffer, start, i);
+							start = i;
+							currentState = States.IdleCommentPending;
+							break;
+						
+						case '"':
+							this.emitWord(buffer, start, i);
+							start = i;
+							
+							if ((i + 1 < limit) && (buffer[i + 1] == '"')) {
+								quotes = 1;
+								currentState = States.TextBlockPending;
+							} else {
+								currentState = States.String;
+							}
+							break;
+						
+						case '\'':
+							this.emitWord(buffer, start, i);
+							start = i;
+							currentState = States.Character;
+							break;
+						
+						case ' ':
+						case '\t':
+							this.emitWord(buffer, start, i);
+							this.tokenTrigger(buffer, i, 1, Types.Space);
+							start = i + 1;
+							continue;
+							
+						default:
+							if (!CharacterClasses.isDelimeter(element)) {
+								if ((start == i) && CharacterClasses.isDigit(element)) {
+									currentState = States.Numeric;
+								}
+							} else if ((currentState == States.Idle) && (start < i) && AbstractTokenMachine.continuesWord(buffer, start, i, limit)) {
+								// Teil von non-sealed, eines Unicode-Escapes oder eines qualifizierten Annotationsnamens.
+								break;
+							} else if ((element == '\\') && (i + 1 < limit) && (buffer[i + 1] == 'u')) {
+								// Ein Wort beginnt mit einem Unicode-Escape.
+								this.emit(buffer, start, i, Types.Delimeter);
+								start = i;
+								currentState = States.Idle;
+							} else {
+								this.emitWord(buffer, start, i);
+								start = i;
+								
+								if ((element == '.') && (i + 1 < limit) && CharacterClasses.isDigit(buffer[i + 1])) {
+									currentState = States.Numeric;
+								} else if ((element == '-') && (i + 1 < limit) && (buffer[i + 1] == '>') && ((currentState == States.Idle) || (buffer[i - 1] != '-'))) {
+									currentState = States.Arrow;
+								} else {
+									currentState = States.Delimeter;
+								}
+							}
+					}
+					break;
+				
+				case Numeric:
+					break;
+				
+				case Arrow:
+					// Das '>' des Lambda-Pfeils.
+					this.emit(buffer, start, i + 1, Types.Delimeter);
+					start = i + 1;
+					currentState = States.Idle;
+					continue;
+					
+				case IdleCommentPending:
+					currentState = element == '*' ? States.BlockComment : States.LineComment;
+					break;
+				
+				case BlockComment:
+					switch (element) {
+						case ' ':
+						case '\t':
+							this.emit(buffer, start, i, Types.BlockComment);
+							this.tokenTrigger(buffer, i, 1, Types.Space);
+							start = i + 1;
+							continue;
+							
+						case '*':
+							currentState = States.BlockCommentIdlePending;
+							break;
+						
+						case '\n':
+							this.emit(buffer, start, i, Types.BlockComment);
+							this.tokenTrigger(buffer, i, 1, Types.LineFeed);
+							start = i + 1;
+							continue;
+							
+						default:
+							break;
+					}
+					break;
+				
+				case BlockCommentIdlePending:
+					if (element == '/') {
+						this.emit(buffer, start, i + 1, Types.BlockComment);
+						start = i + 1;
+						currentState = States.Idle;
+						continue;
+					}
+					break;
+				
+				case LineComment:
+					switch (element) {
+						case ' ':
+						case '\t':
+							this.emit(buffer, start, i, Types.LineComment);
+							this.tokenTrigger(buffer, i, 1, Types.Space);
+							start = i + 1;
+							continue;
+							
+						case '\n':
+							this.emit(buffer, start, i, Types.LineComment);
+							this.tokenTrigger(buffer, i, 1, Types.LineFeed);
+							start = i + 1;
+							currentState = States.Idle;
+							continue;
+							
+						default:
+							break;
+					}
+					break;
+				
+				case Character:
+					if ((element == '\'') && !skipEndOfLiteral) {
+						this.emit(buffer, start, i + 1, Types.CharacterLiteral);
+						start = i + 1;
+						currentState = States.Idle;
+						continue;
+					} else if (element == '\n') {
+						// Nicht geschlossen, das Literal endet mit der Zeile.
+						this.emit(buffer, start, i, Types.CharacterLiteral);
+						this.tokenTrigger(buffer, i, 1, Types.LineFeed);
+						start = i + 1;
+						skipEndOfLiteral = false;
+						currentState = States.Idle;
+						continue;
+					} else if ((element == '\\') && !skipEndOfLiteral) {
+						skipEndOfLiteral = true;
+					} else {
+						skipEndOfLiteral = false;
+					}
+					break;
+				
+				case String:
+					if ((element == '"') && !skipEndOfLiteral) {
+						this.emit(buffer, start, i + 1, Types.StringLiteral);
+						start = i + 1;
+						currentState = States.Idle;
+						continue;
+					} else if (element == '\n') {
+						// Nicht geschlossen, das Literal endet mit der Zeile.
+						this.emit(buffer, start, i, Types.StringLiteral);
+						this.tokenTrigger(buffer, i, 1, Types.LineFeed);
+						start = i + 1;
+						skipEndOfLiteral = false;
+						currentState = States.Idle;
+						continue;
+					} else if ((element == '\\') && !skipEndOfLiteral) {
+						skipEndOfLiteral = true;
+					} else {
+						skipEndOfLiteral = false;
+					}
+					break;
+				
+				case TextBlockPending:
+					// Das zweite oder dritte Anführungszeichen.
+					if (++quotes == AbstractTokenMachine.TEXT_BLOCK_QUOTES) {
+						quotes = 0;
+						currentState = States.TextBlock;
+					} else if ((i + 1 >= limit) || (buffer[i + 1] != '"')) {
+						this.emit(buffer, start, i + 1, Types.StringLiteral);
+						start = i + 1;
+						quotes = 0;
+						currentState = States.Idle;
+						continue;
+					}
+					break;
+				
+				case TextBlock:
+					switch (element) {
+						case ' ':
+						case '\t':
+							this.emit(buffer, start, i, Types.StringLiteral);
+							this.tokenTrigger(buffer, i, 1, Types.Space);
+							start = i + 1;
+							quotes = 0;
+							skipEndOfLiteral = false;
+							continue;
+							
+						case '\n':
+							this.emit(buffer, start, i, Types.StringLiteral);
+							this.tokenTrigger(buffer, i, 1, Types.LineFeed);
+							start = i + 1;
+							quotes = 0;
+							skipEndOfLiteral = false;
+							continue;
+							
+						case '"':
+							if (skipEndOfLiteral) {
+								skipEndOfLiteral = false;
+							} else if (++quotes == AbstractTokenMachine.TEXT_BLOCK_QUOTES) {
+								this.emit(buffer, start, i + 1, Types.StringLiteral);
+								start = i + 1;
+								quotes = 0;
+								currentState = States.Idle;
+								continue;
+							}
+							break;
+						
+						case '\\':
+							quotes = 0;
+							skipEndOfLiteral = !skipEndOfLiteral;
+							break;
+						
+						default:
+							quotes = 0;
+							skipEndOfLiteral = false;
+							break;
+					}
+					break;
+			}
+		}
+		
+		return start;
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen in der Zeichenkette enthalten ist.
+	 * 
+	 * @param element
+	 *            Das Zeichen.
+	 * @param elements
+	 *            Die Zeichenkette.
+	 * @return Gibt <code>true</code> zurück, wenn das Zeichen enthalten ist.
+	 * @deprecated Durchsucht die Zeichenkette bei jedem Aufruf, stattdessen {@link CharacterClasses} verwenden.
+	 */
+	@Deprecated
+	public static boolean elementOf(final char element, final String elements) {
+		for (final char item : elements.toCharArray()) {
+			if (item == element) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen an der Position das begonnene Zahlenliteral fortsetzt. Dazu gehören Ziffern, Buchstaben,
+	 * Unterstriche, der Dezimalpunkt und das Vorzeichen direkt nach einem Exponenten.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param start
+	 *            Der Beginn des Zahlenliterals.
+	 * @param position
+	 *            Die Position des Zeichens.
+	 * @return Gibt <code>true</code> zurück, wenn das Zeichen zum Zahlenliteral gehört.
+	 */
+	private static boolean continuesNumber(final char[] buffer, final int start, final int position) {
+		final char element = buffer[position];
+		
+		if (CharacterClasses.isIdentifierPart(element) || (element == '.')) {
+			return true;
+		}
+		
+		return ((element == '+') || (element == '-')) && NumericLiterals.isExponent(buffer, start, position - 1);
+	}
+	
+	/**
+	 * Prüft, ob ein Trennzeichen das offene Wort fortsetzt. Das gilt für den Bindestrich in <code>non-sealed</code>, für
+	 * den Backslash eines Unicode-Escapes (<code>&#92;uXXXX</code>) und für die Punkte eines qualifizierten
+	 * Annotationsnamens wie <code>@java.lang.Override</code>. Geschaut wird höchstens ein Zeichen voraus, ein Wort wie
+	 * <code>non-s</code> wird daher erst von {@link #emitWord(char[], int, int)} wieder geteilt.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param start
+	 *            Der Beginn des offenen Wortes.
+	 * @param position
+	 *            Die Position des Trennzeichens.
+	 * @param limit
+	 *            Das Ende der gültigen Zeichen im Puffer (exklusiv).
+	 * @return Gibt <code>true</code> zurück, wenn das Trennzeichen zum Wort gehört.
+	 */
+	private static boolean continuesWord(final char[] buffer, final int start, final int position, final int limit) {
+		if (position + 1 >= limit) {
+			return false;
+		}
+		
+		final char next = buffer[position + 1];
+		
+		switch (buffer[position]) {
+			case '-':
+				return (next == 's') && (position - start == AbstractTokenMachine.NON.length) && AbstractTokenMachine.startsWith(buffer, start, AbstractTokenMachine.NON);
+				
+			case '\\':
+				return next == 'u';
+				
+			case '.':
+				return (buffer[start] == '@') && CharacterClasses.isIdentifierStart(next);
+				
+			default:
+				return false;
+		}
+	}
+	
+	/**
+	 * Prüft, ob der Bereich ab dem Offset mit dem Wort beginnt.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Bereichs.
+	 * @param word
+	 *            Das Wort.
+	 * @return Gibt <code>true</code> zurück, wenn der Bereich mit dem Wort beginnt.
+	 */
+	private static boolean startsWith(final char[] buffer, final int offset, final char[] word) {
+		for (int i = 0; i < word.length; i++) {
+			if (buffer[offset + i] != word[i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Klassifiziert ein Wort anhand seines Inhalts als Symbol, Keyword, Datentyp, Bezeichner oder Annotation.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Wortes.
+	 * @param length
+	 *            Die Länge des Wortes.
+	 * @return Der Typ, {@link Types#Undefined} falls das Wort in keine Klasse passt.
+	 */
+	private static Types classify(final char[] buffer, final int offset, final int length) {
+		final char first = buffer[offset];
+		
+		if (first == '@') {
+			return KeywordTable.lookup(buffer, offset, length) == Types.Keyword ? Types.Keyword : Types.Annotation;
+		}
+		
+		if ((length == 1) && CharacterClasses.isSymbol(first)) {
+			return Types.Symbol;
+		}
+		
+		if (!CharacterClasses.isIdentifierStart(first)) {
+			return first == '\\' ? AbstractTokenMachine.classifyEscaped(buffer, offset, length) : Types.Undefined;
+		}
+		
+		for (int i = offset + 1; i < offset + length; i++) {
+			if (!CharacterClasses.isIdentifierPart(buffer[i])) {
+				return AbstractTokenMachine.classifyEscaped(buffer, offset, length);
+			}
+		}
+		
+		return KeywordTable.lookup(buffer, offset, length);
+	}
+	
+	/**
+	 * Klassifiziert ein Wort mit Unicode-Escapes oder Bindestrich. Die Escapes werden wie vom Compiler vorher übersetzt,
+	 * ein Bindestrich ist nur in <code>non-sealed</code> erlaubt.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Wortes.
+	 * @param length
+	 *            Die Länge des Wortes.
+	 * @return Der Typ, {@link Types#Undefined} falls das Wort kein gültiger Bezeichner und kein Keyword ist.
+	 */
+	private static Types classifyEscaped(final char[] buffer, final int offset, final int length) {
+		final char[] word = new char[length];
+		int size = 0;
+		boolean hyphen = false;
+		
+		for (int i = offset; i < offset + length; i++) {
+			char element = buffer[i];
+			
+			if (element == '\\') {
+				int next = i + 1;
+				
+				while ((next < offset + length) && (buffer[next] == 'u')) {
+					next++;
+				}
+				
+				if ((next == i + 1) || (next + AbstractTokenMachine.UNICODE_DIGITS > offset + length)) {
+					return Types.Undefined;
+				}
+				
+				int value = 0;
+				
+				for (int j = next; j < next + AbstractTokenMachine.UNICODE_DIGITS; j++) {
+					final int digit = Character.digit(buffer[j], AbstractTokenMachine.HEX_RADIX);
+					
+					if (digit < 0) {
+						return Types.Undefined;
+					}
+					
+					value = value * AbstractTokenMachine.HEX_RADIX + digit;
+				}
+				
+				element = (char) value;
+				i = next + AbstractTokenMachine.UNICODE_DIGITS - 1;
+			}
+			
+			if (element == '-') {
+				hyphen = true;
+			} else if ((size == 0) ? !CharacterClasses.isIdentifierStart(element) : !CharacterClasses.isIdentifierPart(element)) {
+				return Types.Undefined;
+			}
+			
+			word[size++] = element;
+		}
+		
+		final Types type = KeywordTable.lookup(word, 0, size);
+		
+		return hyphen && (type != Types.Keyword) ? Types.Undefined : type;
+	}
+	
+	/**
+	 * Meldet ein Wort zwischen zwei Trennzeichen klassifiziert, sofern es nicht leer ist.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param start
+	 *            Der Beginn des Wortes.
+	 * @param end
+	 *            Das Ende des Wortes (exklusiv).
+	 */
+	private void emitWord(final char[] buffer, final int start, final int end) {
+		if (end > start) {
+			final Types type = AbstractTokenMachine.classify(buffer, start, end - start);
+			final int hyphen = start + AbstractTokenMachine.NON.length;
+			
+			if ((type == Types.Undefined) && (hyphen < end) && (buffer[hyphen] == '-')) {
+				// Doch nicht non-sealed: Bezeichner, Minus und Rest einzeln melden.
+				this.emitWord(buffer, start, hyphen);
+				this.tokenTrigger(buffer, hyphen, 1, Types.Delimeter);
+				this.emitWord(buffer, hyphen + 1, end);
+			} else {
+				this.tokenTrigger(buffer, start, end - start, type);
+			}
+		}
+	}
+	
+	/**
+	 * Meldet ein Zahlenliteral. Ungültige Literale werden als {@link Types#Undefined} gemeldet.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param start
+	 *            Der Beginn des Literals.
+	 * @param end
+	 *            Das Ende des Literals (exklusiv).
+	 */
+	private void emitNumber(final char[] buffer, final int start, final int end) {
+		final Types type = NumericLiterals.isNumber(buffer, start, end - start) ? Types.Numeric : Types.Undefined;
+		
+		this.tokenTrigger(buffer, start, end - start, type);
+	}
+	
+	/**
+	 * Meldet den Bereich von <code>start</code> bis ausschließlich <code>end</code>, sofern er nicht leer ist.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param start
+	 *            Der Beginn des Tokens.
+	 * @param end
+	 *            Das Ende des Tokens (exklusiv).
+	 * @param type
+	 *            Der Typ des Tokens.
+	 */
+	private void emit(final char[] buffer, final int start, final int end, final Types type) {
+		if (end > start) {
+			this.tokenTrigger(buffer, start, end - start, type);
+		}
+	}
+	
+	/**
+	 * Wird aufgerufen, wenn ein neues Token gefunden wurde. Leerzeichen und Tabulatoren werden einzeln als
+	 * {@link Types#Space} gemeldet, Zeilenvorschübe einzeln als {@link Types#LineFeed}. Wörter und Zahlen sind bereits
+	 * klassifiziert, {@link Types#Undefined} bleibt nur für Tokens, die in keine Klasse passen.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Tokens im Puffer.
+	 * @param length
+	 *            Die Länge des Tokens.
+	 * @param type
+	 *            Der Typ des Tokens.
+	 */
+	protected abstract void tokenTrigger(char[] buffer, int offset, int length, Types type);
+	
+}
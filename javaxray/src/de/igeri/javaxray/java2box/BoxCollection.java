@@ -42,4 +42,27 @@ public final class BoxCollection extends ArrayList<Box> {
 		return new Dimension(this.maxx, this.maxy);
 	}
 	
+	/**
+	 * Reicht alle {@link Box}en in Zeilenreihenfolge an einen {@link BoxSink} weiter. Zeilenumbrüche werden aus den
+	 * Y-Positionen abgeleitet, leere Zeilen am Ende entfallen.
+	 * 
+	 * @param sink
+	 *            Der Empfänger.
+	 */
+	public void replay(final BoxSink sink) {
+		int line = 0;
+		
+		for (final Box box : this) {
+			final int boxLine = box.getPosition().y / (Box.LINE_HEIGHT + Box.BOX_GAP);
+			
+			while (line < boxLine) {
+				sink.lineFeedTrigger(line++);
+			}
+			
+			sink.boxTrigger(box.getPosition().x, box.getPosition().y, box.getWidth(), box.getFragment().getType());
+		}
+		
+		sink.endTrigger();
+	}
+	
 }
@@ -0,0 +1,93 @@
+package de.igeri.javaxray.java2box;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Ordnet die Tokens direkt beim Zerlegen als {@link Box}en an und reicht sie an einen {@link BoxSink} weiter.
+ * Aufeinanderfolgende Tokens gleichen Typs werden dabei wie in {@link JavaSourceToBoxConverter} zu einer Box
+ * zusammengefasst, ohne dass Fragmente oder Listen entstehen.
+ * 
+ * @author smolli
+ */
+final class BoxLayoutMachine extends AbstractTokenMachine {
+	
+	/** Der Empfänger der Boxen. */
+	private final BoxSink sink;
+	/** Die X-Position der nächsten Box. */
+	private int xPosition;
+	/** Die aktuelle Zeile. */
+	private int line;
+	/** Der Typ der offenen Box oder <code>null</code>. */
+	private Types pendingType;
+	/** Die Breite der offenen Box. */
+	private int pendingWidth;
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param sink
+	 *            Der Empfänger der Boxen.
+	 */
+	BoxLayoutMachine(final BoxSink sink) {
+		this.sink = sink;
+	}
+	
+	@Override
+	protected void tokenTrigger(final char[] buffer, final int offset, final int length, final Types type) {
+		if (type == Types.LineFeed) {
+			this.flush();
+			this.sink.lineFeedTrigger(this.line);
+			this.line++;
+			this.xPosition = 0;
+			
+			return;
+		}
+		
+		final int columns = (type == Types.Space) && (buffer[offset] == '\t') ? AbstractTokenMachine.TAB_WIDTH : length;
+		
+		if ((type != this.pendingType) || (type == Types.Undefined)) {
+			this.flush();
+			this.pendingType = type;
+		}
+		
+		this.pendingWidth += columns * Box.CHAR_WIDTH;
+	}
+	
+	/**
+	 * Setzt die Anordnung am Anfang einer Zeile fort, die mit dem angegebenen Zustand begonnen hat.
+	 * 
+	 * @param startLine
+	 *            Die Nummer der Zeile.
+	 * @param state
+	 *            Der mit {@link #saveState()} gesicherte Zustand am Zeilenanfang.
+	 */
+	void resume(final int startLine, final int state) {
+		this.restoreState(state);
+		this.line = startLine;
+		this.xPosition = 0;
+		this.pendingType = null;
+		this.pendingWidth = 0;
+	}
+	
+	/**
+	 * Meldet die letzte offene Box und das Ende an den Empfänger.
+	 */
+	void end() {
+		this.flush();
+		this.sink.endTrigger();
+	}
+	
+	/**
+	 * Meldet die offene Box an den Empfänger.
+	 */
+	private void flush() {
+		if (this.pendingType != null) {
+			this.sink.boxTrigger(this.xPosition, this.line * (Box.LINE_HEIGHT + Box.BOX_GAP), this.pendingWidth, this.pendingType);
+			
+			this.xPosition += this.pendingWidth + Box.BOX_GAP;
+			this.pendingType = null;
+			this.pendingWidth = 0;
+		}
+	}
+	
+}
@@ -0,0 +1,40 @@
+package de.igeri.javaxray.java2box;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Empfänger für {@link Box}en, die beim Konvertieren nacheinander in Zeilenreihenfolge erzeugt werden. Anders als die
+ * {@link BoxCollection} muss ein Empfänger die Boxen nicht aufheben.
+ * 
+ * @author smolli
+ */
+public interface BoxSink {
+	
+	/**
+	 * Wird für jede erzeugte Box aufgerufen.
+	 * 
+	 * @param xPosition
+	 *            Die X-Position in Pixeln.
+	 * @param yPosition
+	 *            Die Y-Position in Pixeln.
+	 * @param width
+	 *            Die Breite in Pixeln.
+	 * @param type
+	 *            Der Typ des Fragments.
+	 */
+	void boxTrigger(int xPosition, int yPosition, int width, Types type);
+	
+	/**
+	 * Wird am Ende jeder Zeile aufgerufen. Danach folgen keine Boxen mehr für diese Zeile.
+	 * 
+	 * @param line
+	 *            Die Nummer der beendeten Zeile, beginnend bei 0.
+	 */
+	void lineFeedTrigger(int line);
+	
+	/**
+	 * Wird aufgerufen, nachdem die letzte Box gemeldet wurde.
+	 */
+	void endTrigger();
+	
+}
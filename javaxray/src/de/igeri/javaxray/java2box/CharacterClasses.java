@@ -0,0 +1,139 @@
+package de.igeri.javaxray.java2box;
+
+/**
+ * Vorberechnete Zeichenklassen für die Zerlegung und die Klassifizierung. Ersetzt das lineare Durchsuchen von
+ * Zeichenketten durch einen einzelnen Tabellenzugriff je Zeichen.
+ * 
+ * @author smolli
+ */
+final class CharacterClasses {
+	
+	/** Trennzeichen, an denen die Zerlegung ein Token beendet. */
+	static final int DELIMETER = 1;
+	/** Symbole, die als einzelnes Zeichen ein {@link Fragment.Types#Symbol} ergeben. */
+	static final int SYMBOL = 2;
+	/** Zeichen, mit denen ein Bezeichner beginnen darf. */
+	static final int IDENTIFIER_START = 4;
+	/** Zeichen, die in einem Bezeichner vorkommen dürfen. */
+	static final int IDENTIFIER_PART = 8;
+	/** Dezimalziffern. */
+	static final int DIGIT = 16;
+	
+	/** Alle Trennzeichen. */
+	private static final String DELIMETERS = "[!%&()=?{\\[\\]}+*-.:,;|<>^~]";
+	/** Alle Symbole. */
+	private static final String SYMBOLS = "+*~#-.:,;?=)(/&%!{}[]<>|^";
+	/** Alle Ziffern. */
+	private static final String DIGITS = "0123456789";
+	/** Alle ASCII-Buchstaben und die in Bezeichnern erlaubten Sonderzeichen. */
+	private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ_$";
+	/** Anzahl der Zeichen in der Tabelle. */
+	private static final int TABLE_SIZE = 128;
+	/** Die Zeichenklassen aller ASCII-Zeichen. */
+	private static final byte[] TABLE = new byte[CharacterClasses.TABLE_SIZE];
+	
+	static {
+		CharacterClasses.register(CharacterClasses.DELIMETERS, CharacterClasses.DELIMETER);
+		CharacterClasses.register(CharacterClasses.SYMBOLS, CharacterClasses.SYMBOL);
+		CharacterClasses.register(CharacterClasses.DIGITS, CharacterClasses.DIGIT | CharacterClasses.IDENTIFIER_PART);
+		CharacterClasses.register(CharacterClasses.LETTERS, CharacterClasses.IDENTIFIER_START | CharacterClasses.IDENTIFIER_PART);
+	}
+	
+	/**
+	 * Trägt die Zeichen mit der Klasse in die Tabelle ein.
+	 * 
+	 * @param characters
+	 *            Die Zeichen.
+	 * @param characterClass
+	 *            Die Klasse.
+	 */
+	private static void register(final String characters, final int characterClass) {
+		for (int i = 0; i < characters.length(); i++) {
+			CharacterClasses.TABLE[characters.charAt(i)] |= characterClass;
+		}
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen zu einer der Klassen gehört.
+	 * 
+	 * @param element
+	 *            Das Zeichen.
+	 * @param characterClasses
+	 *            Die Klassen als Bitmaske.
+	 * @return Gibt <code>true</code> zurück, wenn das Zeichen zu einer der Klassen gehört.
+	 */
+	static boolean is(final char element, final int characterClasses) {
+		return (element < CharacterClasses.TABLE_SIZE) && ((CharacterClasses.TABLE[element] & characterClasses) != 0);
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen ein Trennzeichen ist.
+	 * 
+	 * @param element
+	 *            Das Zeichen.
+	 * @return Gibt <code>true</code> zurück, wenn es sich um ein Trennzeichen handelt.
+	 */
+	static boolean isDelimeter(final char element) {
+		return CharacterClasses.is(element, CharacterClasses.DELIMETER);
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen ein Symbol ist.
+	 * 
+	 * @param element
+	 *            Das Zeichen.
+	 * @return Gibt <code>true</code> zurück, wenn es sich um ein Symbol handelt.
+	 */
+	static boolean isSymbol(final char element) {
+		return CharacterClasses.is(element, CharacterClasses.SYMBOL);
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen eine Dezimalziffer ist.
+	 * 
+	 * @param element
+	 *            Das Zeichen.
+	 * @return Gibt <code>true</code> zurück, wenn es sich um eine Ziffer handelt.
+	 */
+	static boolean isDigit(final char element) {
+		return CharacterClasses.is(element, CharacterClasses.DIGIT);
+	}
+	
+	/**
+	 * Prüft, ob ein Bezeichner mit dem Zeichen beginnen darf. Außerhalb von ASCII entscheidet
+	 * {@link Character#isJavaIdentifierStart(char)}.
+	 * 
+	 * @param element
+	 *            Das Zeichen.
+	 * @return Gibt <code>true</code> zurück, wenn das Zeichen einen Bezeichner beginnen darf.
+	 */
+	static boolean isIdentifierStart(final char element) {
+		if (element < CharacterClasses.TABLE_SIZE) {
+			return (CharacterClasses.TABLE[element] & CharacterClasses.IDENTIFIER_START) != 0;
+		}
+		
+		return Character.isJavaIdentifierStart(element);
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen in einem Bezeichner vorkommen darf. Außerhalb von ASCII entscheidet
+	 * {@link Character#isJavaIdentifierPart(char)}.
+	 * 
+	 * @param element
+	 *            Das Zeichen.
+	 * @return Gibt <code>true</code> zurück, wenn das Zeichen in einem Bezeichner vorkommen darf.
+	 */
+	static boolean isIdentifierPart(final char element) {
+		if (element < CharacterClasses.TABLE_SIZE) {
+			return (CharacterClasses.TABLE[element] & CharacterClasses.IDENTIFIER_PART) != 0;
+		}
+		
+		return Character.isJavaIdentifierPart(element);
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private CharacterClasses() {}
+	
+}
@@ -0,0 +1,284 @@
+package de.igeri.javaxray.java2box;
+
+import java.awt.Dimension;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Speichert {@link Box}en platzsparend in parallelen Spalten aus primitiven Arrays: Position, Breite und die
+ * Ordinalzahl des Typs. Eine Box belegt so 13 Bytes statt eines {@link Box}-Objekts mit {@link java.awt.Point},
+ * {@link java.awt.Color} und {@link Fragment}. Gefüllt wird sie als {@link BoxSink} direkt beim Konvertieren.
+ * <p>
+ * Renderer lesen die Spalten über die Indexmethoden oder lassen sich die Boxen mit {@link #replay(BoxSink)} vorspielen.
+ * Die Iteration über {@link Box}-Objekte ist nur zur Verträglichkeit da und erzeugt jede Box neu. Der Inhalt der Fragmente
+ * wird nicht gespeichert.
+ * 
+ * @author smolli
+ */
+public final class CompactBoxCollection implements BoxSink, Iterable<Box> {
+	
+	/** Die Anfangskapazität. */
+	private static final int INITIAL_CAPACITY = 256;
+	/** Alle Typen, indiziert über die Ordinalzahl. */
+	private static final Types[] TYPES = Types.values();
+	
+	/** Die X-Positionen. */
+	private int[] xPositions;
+	/** Die Y-Positionen. */
+	private int[] yPositions;
+	/** Die Breiten. */
+	private int[] widths;
+	/** Die Ordinalzahlen der Typen. */
+	private byte[] types;
+	/** Die Anzahl der Boxen. */
+	private int size;
+	/** Maximaler X-Wert. */
+	private int maxx;
+	/** Maximaler Y-Wert. */
+	private int maxy;
+	
+	/**
+	 * Ctor.
+	 */
+	public CompactBoxCollection() {
+		this(CompactBoxCollection.INITIAL_CAPACITY);
+	}
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param capacity
+	 *            Die Anfangskapazität.
+	 */
+	public CompactBoxCollection(final int capacity) {
+		this.xPositions = new int[capacity];
+		this.yPositions = new int[capacity];
+		this.widths = new int[capacity];
+		this.types = new byte[capacity];
+	}
+	
+	/**
+	 * Fügt eine Box hinzu.
+	 * 
+	 * @param xPosition
+	 *            Die X-Position in Pixeln.
+	 * @param yPosition
+	 *            Die Y-Position in Pixeln.
+	 * @param width
+	 *            Die Breite in Pixeln.
+	 * @param type
+	 *            Der Typ des Fragments.
+	 */
+	public void add(final int xPosition, final int yPosition, final int width, final Types type) {
+		if (this.size == this.types.length) {
+			this.resize(Math.max(this.size * 2, CompactBoxCollection.INITIAL_CAPACITY));
+		}
+		
+		this.xPositions[this.size] = xPosition;
+		this.yPositions[this.size] = yPosition;
+		this.widths[this.size] = width;
+		this.types[this.size] = (byte) type.ordinal();
+		this.size++;
+		
+		final int xMax = xPosition + width;
+		final int yMax = yPosition + Box.LINE_HEIGHT;
+		
+		if (xMax > this.maxx) {
+			this.maxx = xMax;
+		}
+		
+		if (yMax > this.maxy) {
+			this.maxy = yMax;
+		}
+	}
+	
+	@Override
+	public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+		this.add(xPosition, yPosition, width, type);
+	}
+	
+	@Override
+	public void lineFeedTrigger(final int line) {
+		// Die Zeilen ergeben sich aus den Y-Positionen.
+	}
+	
+	@Override
+	public void endTrigger() {
+		this.trimToSize();
+	}
+	
+	/**
+	 * Gibt die Anzahl der Boxen zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Gibt die X-Position einer Box zurück.
+	 * 
+	 * @param index
+	 *            Der Index der Box.
+	 * @return Die X-Position in Pixeln.
+	 */
+	public int getX(final int index) {
+		this.check(index);
+		
+		return this.xPositions[index];
+	}
+	
+	/**
+	 * Gibt die Y-Position einer Box zurück.
+	 * 
+	 * @param index
+	 *            Der Index der Box.
+	 * @return Die Y-Position in Pixeln.
+	 */
+	public int getY(final int index) {
+		this.check(index);
+		
+		return this.yPositions[index];
+	}
+	
+	/**
+	 * Gibt die Breite einer Box zurück.
+	 * 
+	 * @param index
+	 *            Der Index der Box.
+	 * @return Die Breite in Pixeln.
+	 */
+	public int getWidth(final int index) {
+		this.check(index);
+		
+		return this.widths[index];
+	}
+	
+	/**
+	 * Gibt den Typ einer Box zurück.
+	 * 
+	 * @param index
+	 *            Der Index der Box.
+	 * @return Der Typ.
+	 */
+	public Types getType(final int index) {
+		this.check(index);
+		
+		return CompactBoxCollection.TYPES[this.types[index]];
+	}
+	
+	/**
+	 * Gibt die maximale Ausdehnung zurück.
+	 * 
+	 * @return Die Ausdehnung als {@link Dimension}.
+	 */
+	public Dimension getDimension() {
+		return new Dimension(this.maxx, this.maxy);
+	}
+	
+	/**
+	 * Reicht alle {@link Box}en in Zeilenreihenfolge an einen {@link BoxSink} weiter, siehe
+	 * {@link BoxCollection#replay(BoxSink)}.
+	 * 
+	 * @param sink
+	 *            Der Empfänger.
+	 */
+	public void replay(final BoxSink sink) {
+		int line = 0;
+		
+		for (int i = 0; i < this.size; i++) {
+			final int boxLine = this.yPositions[i] / (Box.LINE_HEIGHT + Box.BOX_GAP);
+			
+			while (line < boxLine) {
+				sink.lineFeedTrigger(line++);
+			}
+			
+			sink.boxTrigger(this.xPositions[i], this.yPositions[i], this.widths[i], CompactBoxCollection.TYPES[this.types[i]]);
+		}
+		
+		sink.endTrigger();
+	}
+	
+	/**
+	 * Erzeugt für jede Box ein {@link Box}-Objekt. Das Fragment trägt nur den Typ, der Inhalt ist leer.
+	 */
+	@Override
+	public Iterator<Box> iterator() {
+		return new Iterator<Box>() {
+			
+			/** Der Index der nächsten Box. */
+			private int next;
+			
+			@Override
+			public boolean hasNext() {
+				return this.next < CompactBoxCollection.this.size;
+			}
+			
+			@Override
+			public Box next() {
+				if (!this.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				
+				final Types type = CompactBoxCollection.this.getType(this.next);
+				final Fragment fragment = new Fragment();
+				final Box box = new Box();
+				
+				fragment.setType(type);
+				box.setPosition(CompactBoxCollection.this.xPositions[this.next], CompactBoxCollection.this.yPositions[this.next]);
+				box.setWidth(CompactBoxCollection.this.widths[this.next]);
+				box.setColor(type.getColor());
+				box.setFragment(fragment);
+				
+				this.next++;
+				
+				return box;
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+			
+		};
+	}
+	
+	/**
+	 * Verkleinert die Spalten auf die Anzahl der Boxen.
+	 */
+	public void trimToSize() {
+		if (this.size < this.types.length) {
+			this.resize(this.size);
+		}
+	}
+	
+	/**
+	 * Ändert die Kapazität aller Spalten.
+	 * 
+	 * @param capacity
+	 *            Die neue Kapazität.
+	 */
+	private void resize(final int capacity) {
+		this.xPositions = Arrays.copyOf(this.xPositions, capacity);
+		this.yPositions = Arrays.copyOf(this.yPositions, capacity);
+		this.widths = Arrays.copyOf(this.widths, capacity);
+		this.types = Arrays.copyOf(this.types, capacity);
+	}
+	
+	/**
+	 * Prüft den Index.
+	 * 
+	 * @param index
+	 *            Der Index.
+	 */
+	private void check(final int index) {
+		if ((index < 0) || (index >= this.size)) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+		}
+	}
+	
+}
@@ -0,0 +1,53 @@
+package de.igeri.javaxray.java2box;
+
+import java.awt.Dimension;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Ermittelt beim Konvertieren nur die Ausdehnung der {@link Box}en, genau wie {@link BoxCollection#getDimension()}, ohne
+ * die Boxen aufzuheben.
+ * 
+ * @author smolli
+ */
+public final class DimensionSink implements BoxSink {
+	
+	/** Maximaler X-Wert. */
+	private int maxx;
+	/** Maximaler Y-Wert. */
+	private int maxy;
+	
+	@Override
+	public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+		final int xMax = xPosition + width;
+		final int yMax = yPosition + Box.LINE_HEIGHT;
+		
+		if (xMax > this.maxx) {
+			this.maxx = xMax;
+		}
+		
+		if (yMax > this.maxy) {
+			this.maxy = yMax;
+		}
+	}
+	
+	@Override
+	public void lineFeedTrigger(final int line) {
+		// Zeilenumbrüche ändern die Ausdehnung nicht.
+	}
+	
+	@Override
+	public void endTrigger() {
+		// Nichts abzuschließen.
+	}
+	
+	/**
+	 * Gibt die maximale Ausdehnung zurück.
+	 * 
+	 * @return Die Ausdehnung als {@link Dimension}.
+	 */
+	public Dimension getDimension() {
+		return new Dimension(this.maxx, this.maxy);
+	}
+	
+}
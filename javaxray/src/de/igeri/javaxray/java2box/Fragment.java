@@ -67,8 +67,10 @@ public class Fragment {
 		}
 	}
 	
-	/** Der Inhalt des Fragments. */
+	/** Der Inhalt des Fragments oder <code>null</code>, solange angehängte Inhalte nur im {@link #builder} stehen. */
 	private String content = "";
+	/** Die mit {@link #join(Fragment)} angehängten Inhalte oder <code>null</code>. */
+	private StringBuilder builder;
 	/** Der Typ des Fragments. */
 	private Types type = Types.Undefined;
 	
@@ -80,6 +82,7 @@ public class Fragment {
 	 */
 	public void setContent(final String string) {
 		this.content = string;
+		this.builder = null;
 	}
 	
 	/**
@@ -94,7 +97,7 @@ public class Fragment {
 	
 	@Override
 	public String toString() {
-		return "[Type: " + this.type.toString() + ", Content: '" + this.content + "']";
+		return "[Type: " + this.type.toString() + ", Content: '" + this.getContent() + "']";
 	}
 	
 	/**
@@ -107,16 +110,31 @@ public class Fragment {
 	}
 	
 	/**
-	 * Gibt den Inhalt des Fragments zurück.
+	 * Gibt den Inhalt des Fragments zurück. Nach {@link #join(Fragment)} wird er hier einmal zusammengesetzt.
 	 * 
 	 * @return Der Inhalt.
 	 */
 	public String getContent() {
+		if (this.builder != null) {
+			this.content = this.builder.toString();
+			this.builder = null;
+		}
+		
 		return this.content;
 	}
 	
 	/**
-	 * Verbindet dieses Fragment mit dem anderen.
+	 * Gibt die Länge des Inhalts zurück, ohne ihn zusammenzusetzen.
+	 * 
+	 * @return Die Anzahl der Zeichen.
+	 */
+	public int getLength() {
+		return this.builder == null ? this.content.length() : this.builder.length();
+	}
+	
+	/**
+	 * Verbindet dieses Fragment mit dem anderen. Der Inhalt wird nur an einen Puffer angehängt, eine Folge von
+	 * Verbindungen kostet also Zeit linear in der Gesamtlänge statt jedes Mal den bisherigen Inhalt zu kopieren.
 	 * 
 	 * @param fragment
 	 *            Das andere Fragment.
@@ -128,7 +146,16 @@ public class Fragment {
 			throw new FragmentException("Types must be equal!");
 		}
 		
-		this.content += fragment.content;
+		if (this.builder == null) {
+			this.builder = new StringBuilder(this.content.length() + fragment.getLength()).append(this.content);
+			this.content = null;
+		}
+		
+		if (fragment.builder == null) {
+			this.builder.append(fragment.content);
+		} else {
+			this.builder.append(fragment.builder);
+		}
 	}
 	
 }
@@ -0,0 +1,437 @@
+package de.igeri.javaxray.java2box;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Hält die {@link Box}en einer Datei zeilenweise und ordnet nach einer Änderung nur die betroffenen Zeilen neu an. Zu
+ * jeder Zeile wird der Zustand der Zerlegung an ihrem Anfang gemerkt. Nach einer Änderung wird ab der Zeile mit der
+ * Änderung neu zerlegt, bis hinter der Änderung eine Zeile mit demselben Anfangszustand wie vorher erreicht ist. Ab dort
+ * ergeben sich dieselben Tokens wie vorher, die alten Zeilen werden übernommen.
+ * <p>
+ * Zeilen sind hier wie in {@link BoxSink} durch gemeldete Zeilenvorschübe getrennt. Die Boxen werden genau wie beim
+ * vollständigen Konvertieren angeordnet.
+ * 
+ * @author smolli
+ */
+public final class IncrementalBoxLayout {
+	
+	/** Einträge je Box: X-Position, Breite und Ordinalzahl des Typs. */
+	private static final int BOX_FIELDS = 3;
+	/** Alle Typen, indiziert über die Ordinalzahl. */
+	private static final Types[] TYPES = Types.values();
+	
+	/** Der Text. */
+	private char[] text;
+	/** Die Zeilen. */
+	private final List<Line> lines = new ArrayList<Line>();
+	
+	/**
+	 * Eine Zeile mit ihrem Beginn, dem Zustand an ihrem Anfang und ihren Boxen.
+	 * 
+	 * @author smolli
+	 */
+	private static final class Line {
+		
+		/** Der Beginn der Zeile im Text. */
+		private int start;
+		/** Der Zustand der Zerlegung am Zeilenanfang. */
+		private final int state;
+		/** Die Boxen als X-Position, Breite und Typ. */
+		private int[] boxes = new int[0];
+		/** Die Anzahl der Einträge in {@link #boxes}. */
+		private int size;
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param start
+		 *            Der Beginn der Zeile im Text.
+		 * @param state
+		 *            Der Zustand der Zerlegung am Zeilenanfang.
+		 */
+		Line(final int start, final int state) {
+			this.start = start;
+			this.state = state;
+		}
+		
+		/**
+		 * Gibt die Breite der Zeile in Pixeln zurück.
+		 * 
+		 * @return Die Breite.
+		 */
+		int getWidth() {
+			// X-Position plus Breite der letzten Box.
+			return this.size == 0 ? 0 : this.boxes[this.size - IncrementalBoxLayout.BOX_FIELDS] + this.boxes[this.size - IncrementalBoxLayout.BOX_FIELDS + 1];
+		}
+	}
+	
+	/**
+	 * Das Ergebnis einer Änderung: der Bereich der neu angeordneten Zeilen und die Verschiebung der Zeilen dahinter.
+	 * 
+	 * @author smolli
+	 */
+	public static final class Damage {
+		
+		/** Die erste neu angeordnete Zeile. */
+		private final int firstLine;
+		/** Die Zeile nach der letzten neu angeordneten Zeile. */
+		private final int endLine;
+		/** Die Verschiebung der Zeilen hinter dem Bereich. */
+		private final int lineDelta;
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param firstLine
+		 *            Die erste neu angeordnete Zeile.
+		 * @param endLine
+		 *            Die Zeile nach der letzten neu angeordneten Zeile.
+		 * @param lineDelta
+		 *            Die Verschiebung der Zeilen hinter dem Bereich.
+		 */
+		Damage(final int firstLine, final int endLine, final int lineDelta) {
+			this.firstLine = firstLine;
+			this.endLine = endLine;
+			this.lineDelta = lineDelta;
+		}
+		
+		/**
+		 * Gibt die erste neu angeordnete Zeile zurück.
+		 * 
+		 * @return Die Zeilennummer.
+		 */
+		public int getFirstLine() {
+			return this.firstLine;
+		}
+		
+		/**
+		 * Gibt die Zeile nach der letzten neu angeordneten Zeile zurück, gezählt nach der Änderung.
+		 * 
+		 * @return Die Zeilennummer (exklusiv).
+		 */
+		public int getEndLine() {
+			return this.endLine;
+		}
+		
+		/**
+		 * Gibt zurück, um wie viele Zeilen sich die Zeilen hinter dem Bereich verschoben haben.
+		 * 
+		 * @return Die Verschiebung, negativ wenn Zeilen entfernt wurden.
+		 */
+		public int getLineDelta() {
+			return this.lineDelta;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("[Lines: %d-%d, Delta: %d]", this.firstLine, this.endLine, this.lineDelta);
+		}
+	}
+	
+	/**
+	 * Sammelt die Boxen der neu zerlegten Zeilen.
+	 * 
+	 * @author smolli
+	 */
+	private static final class Collector implements BoxSink {
+		
+		/** Die neu zerlegten Zeilen. */
+		private final List<Line> result = new ArrayList<Line>();
+		/** Die aktuelle Zeile. */
+		private Line current;
+		/** Wird gesetzt, wenn seit der letzten Abfrage eine Zeile beendet wurde. */
+		private boolean lineEnded;
+		
+		@Override
+		public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+			final Line line = this.current;
+			
+			if (line.size == line.boxes.length) {
+				line.boxes = Arrays.copyOf(line.boxes, Math.max(line.size * 2, IncrementalBoxLayout.BOX_FIELDS * 4));
+			}
+			
+			line.boxes[line.size++] = xPosition;
+			line.boxes[line.size++] = width;
+			line.boxes[line.size++] = type.ordinal();
+		}
+		
+		@Override
+		public void lineFeedTrigger(final int line) {
+			this.lineEnded = true;
+		}
+		
+		@Override
+		public void endTrigger() {
+			// Die letzte Zeile ist bereits in der Liste.
+		}
+		
+		/**
+		 * Beginnt eine neue Zeile.
+		 * 
+		 * @param start
+		 *            Der Beginn der Zeile im Text.
+		 * @param state
+		 *            Der Zustand der Zerlegung am Zeilenanfang.
+		 */
+		void begin(final int start, final int state) {
+			this.current = new Line(start, state);
+			this.result.add(this.current);
+		}
+	}
+	
+	/**
+	 * Ctor. Zerlegt den Text vollständig.
+	 * 
+	 * @param text
+	 *            Der Text. Er wird übernommen und nicht kopiert.
+	 */
+	public IncrementalBoxLayout(final char[] text) {
+		this.text = text;
+		this.lines.addAll(this.relex(0, 0, 0, 0, Integer.MAX_VALUE).result);
+	}
+	
+	/**
+	 * Ersetzt einen Bereich des Textes und ordnet die betroffenen Zeilen neu an.
+	 * 
+	 * @param offset
+	 *            Der Beginn des ersetzten Bereichs.
+	 * @param removed
+	 *            Die Länge des ersetzten Bereichs.
+	 * @param inserted
+	 *            Der neue Text für den Bereich.
+	 * @return Der Bereich der neu angeordneten Zeilen.
+	 */
+	public Damage edit(final int offset, final int removed, final char[] inserted) {
+		if ((offset < 0) || (removed < 0) || (offset + removed > this.text.length)) {
+			throw new IndexOutOfBoundsException("Offset: " + offset + ", Removed: " + removed + ", Length: " + this.text.length);
+		}
+		
+		final int delta = inserted.length - removed;
+		final char[] changed = new char[this.text.length + delta];
+		
+		System.arraycopy(this.text, 0, changed, 0, offset);
+		System.arraycopy(inserted, 0, changed, offset, inserted.length);
+		System.arraycopy(this.text, offset + removed, changed, offset + inserted.length, this.text.length - offset - removed);
+		
+		this.text = changed;
+		
+		final int first = this.lineAt(offset);
+		final Line firstLine = this.lines.get(first);
+		final Collector collector = this.relex(first, firstLine.start, firstLine.state, offset + inserted.length, delta);
+		final List<Line> relexed = collector.result;
+		// Die letzte neue Zeile ist die wiedergefundene alte Zeile, sofern die Zerlegung wieder eingerastet ist.
+		final Line last = relexed.get(relexed.size() - 1);
+		final int sync = last.start >= 0 ? -1 : -last.start - 1;
+		final int oldEnd = sync < 0 ? this.lines.size() : sync;
+		final int newEnd = first + (sync < 0 ? relexed.size() : relexed.size() - 1);
+		final List<Line> tail = this.lines.subList(first, this.lines.size());
+		final List<Line> kept = new ArrayList<Line>(this.lines.subList(oldEnd, this.lines.size()));
+		
+		tail.clear();
+		this.lines.addAll(sync < 0 ? relexed : relexed.subList(0, relexed.size() - 1));
+		
+		for (final Line line : kept) {
+			line.start += delta;
+		}
+		
+		this.lines.addAll(kept);
+		
+		return new Damage(first, newEnd, newEnd - oldEnd);
+	}
+	
+	/**
+	 * Zerlegt ab einem Zeilenanfang neu.
+	 * 
+	 * @param line
+	 *            Die Nummer der Zeile.
+	 * @param start
+	 *            Der Beginn der Zeile im Text.
+	 * @param state
+	 *            Der Zustand am Zeilenanfang.
+	 * @param syncFrom
+	 *            Ab diesem Beginn im neuen Text darf eine alte Zeile wiedergefunden werden.
+	 * @param delta
+	 *            Die Verschiebung der alten Zeilen hinter der Änderung, {@link Integer#MAX_VALUE} um bis zum Ende zu zerlegen.
+	 * @return Die neuen Zeilen. Wurde eine alte Zeile wiedergefunden, ist die letzte ein Platzhalter, dessen Beginn
+	 *         <code>-(Index + 1)</code> der alten Zeile ist.
+	 */
+	private Collector relex(final int line, final int start, final int state, final int syncFrom, final int delta) {
+		final Collector collector = new Collector();
+		final BoxLayoutMachine machine = new BoxLayoutMachine(collector);
+		final char[] buffer = this.text;
+		int tokenStart = start;
+		int from = start;
+		
+		machine.resume(line, state);
+		collector.begin(start, state);
+		
+		while (from < buffer.length) {
+			int end = from;
+			
+			while ((end < buffer.length) && (buffer[end] != '\n')) {
+				end++;
+			}
+			
+			end = Math.min(end + 1, buffer.length);
+			tokenStart = machine.scan(buffer, tokenStart, from, end, buffer.length);
+			from = end;
+			
+			if (collector.lineEnded) {
+				collector.lineEnded = false;
+				
+				final int lineState = machine.saveState();
+				final int old = delta == Integer.MAX_VALUE || from < syncFrom ? -1 : this.findLine(from - delta, lineState, line + 1);
+				
+				if (old >= 0) {
+					collector.result.add(new Line(-old - 1, lineState));
+					
+					return collector;
+				}
+				
+				collector.begin(from, lineState);
+			}
+		}
+		
+		machine.finish(buffer, tokenStart, buffer.length);
+		machine.end();
+		
+		return collector;
+	}
+	
+	/**
+	 * Sucht eine alte Zeile mit dem angegebenen Beginn und Anfangszustand.
+	 * 
+	 * @param start
+	 *            Der Beginn im alten Text.
+	 * @param state
+	 *            Der Anfangszustand.
+	 * @param fromLine
+	 *            Die erste in Frage kommende Zeile.
+	 * @return Der Index der Zeile oder <code>-1</code>.
+	 */
+	private int findLine(final int start, final int state, final int fromLine) {
+		int low = fromLine;
+		int high = this.lines.size() - 1;
+		
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final Line line = this.lines.get(middle);
+			
+			if (line.start < start) {
+				low = middle + 1;
+			} else if (line.start > start) {
+				high = middle - 1;
+			} else {
+				return line.state == state ? middle : -1;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Sucht die Zeile, die die Position enthält.
+	 * 
+	 * @param offset
+	 *            Die Position im Text.
+	 * @return Der Index der Zeile.
+	 */
+	private int lineAt(final int offset) {
+		int low = 0;
+		int high = this.lines.size() - 1;
+		
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			
+			if (this.lines.get(middle).start <= offset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		
+		return low;
+	}
+	
+	/**
+	 * Gibt den aktuellen Text zurück.
+	 * 
+	 * @return Der Text. Er darf nicht verändert werden.
+	 */
+	public char[] getText() {
+		return this.text;
+	}
+	
+	/**
+	 * Gibt die Anzahl der Zeilen zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	public int getLineCount() {
+		return this.lines.size();
+	}
+	
+	/**
+	 * Gibt die Breite einer Zeile zurück.
+	 * 
+	 * @param line
+	 *            Die Zeile.
+	 * @return Die Breite in Pixeln, also das Ende der letzten Box.
+	 */
+	public int getLineWidth(final int line) {
+		return this.lines.get(line).getWidth();
+	}
+	
+	/**
+	 * Gibt die maximale Ausdehnung zurück, genau wie {@link BoxCollection#getDimension()}.
+	 * 
+	 * @return Die Ausdehnung als {@link Dimension}.
+	 */
+	public Dimension getDimension() {
+		int width = 0;
+		int height = 0;
+		
+		for (int i = 0; i < this.lines.size(); i++) {
+			final Line line = this.lines.get(i);
+			
+			if (line.size > 0) {
+				width = Math.max(width, line.getWidth());
+				height = i * (Box.LINE_HEIGHT + Box.BOX_GAP) + Box.LINE_HEIGHT;
+			}
+		}
+		
+		return new Dimension(width, height);
+	}
+	
+	/**
+	 * Reicht die {@link Box}en eines Zeilenbereichs an einen {@link BoxSink} weiter. Nach jeder Zeile des Bereichs wird
+	 * ein Zeilenvorschub gemeldet, am Ende {@link BoxSink#endTrigger()}.
+	 * 
+	 * @param firstLine
+	 *            Die erste Zeile.
+	 * @param endLine
+	 *            Die Zeile nach der letzten Zeile (exklusiv).
+	 * @param sink
+	 *            Der Empfänger.
+	 */
+	public void replay(final int firstLine, final int endLine, final BoxSink sink) {
+		for (int i = firstLine; i < endLine; i++) {
+			final Line line = this.lines.get(i);
+			final int yPosition = i * (Box.LINE_HEIGHT + Box.BOX_GAP);
+			
+			for (int j = 0; j < line.size; j += IncrementalBoxLayout.BOX_FIELDS) {
+				sink.boxTrigger(line.boxes[j], yPosition, line.boxes[j + 1], IncrementalBoxLayout.TYPES[line.boxes[j + 2]]);
+			}
+			
+			sink.lineFeedTrigger(i);
+		}
+		
+		sink.endTrigger();
+	}
+	
+}
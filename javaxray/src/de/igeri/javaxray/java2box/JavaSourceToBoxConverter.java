@@ -1,12 +1,15 @@
 package de.igeri.javaxray.java2box;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
 
 import de.igeri.javaxray.java2box.Fragment.Types;
 
@@ -17,75 +20,50 @@ import de.igeri.javaxray.java2box.Fragment.Types;
  */
 public class JavaSourceToBoxConverter {
 	
-	/** Pattern zum Ermitteln, ob es sich um ein Wort handelt. */
-	private static final Pattern WORD = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
-	/** Pattern zum Ermitteln, ob es sich um eine Zahl handlet. */
-	private static final Pattern NUMERIC = Pattern.compile("[0-9a-fA-Fx]+[lL]?");
-	/** Pattern zum Ermitteln, ob es sich um einen Leerraum handelt. */
-	private static final Pattern SPACE = Pattern.compile("[ \t]+", Pattern.DOTALL);
-	/** Symbole. */
-	private static final String SYMBOLS = "+*~#-.:,;?=)(/&%!{}[]<>|";
-	/** Alle bekannten Datentypen. */
-	private static final String[] DATATYPES = {
-			"boolean",
-			"byte",
-			"char",
-			"double",
-			"float",
-			"int",
-			"long",
-			"short",
-			"void" };
-	/** Alle bekannten Keywords. */
-	private static final String[] KEYWORDS = {
-			"assert",
-			"abstract",
-			"default",
-			"if",
-			"private",
-			"this",
-			"do",
-			"implements",
-			"protected",
-			"throw",
-			"break",
-			"import",
-			"public",
-			"throws",
-			"else",
-			"instanceof",
-			"return",
-			"transient",
-			"case",
-			"extends",
-			"try",
-			"catch",
-			"final",
-			"interface",
-			"static",
-			"finally",
-			"strictfp",
-			"volatile",
-			"class",
-			"native",
-			"super",
-			"while",
-			"const",
-			"for",
-			"new",
-			"strictfp",
-			"switch",
-			"continue",
-			"goto",
-			"package",
-			"synchronized",
-			"threadsafe",
-			"null",
-			"true",
-			"false",
-			// Enum keyword from JDK1.5 (TypeSafe Enums)
-			"enum",
-			"@interface" };
+	/** Der Standardzeichensatz der Java-Dateien. */
+	public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+	
+	/** Der Zeichensatz der Java-Dateien. */
+	private Charset charset = JavaSourceToBoxConverter.DEFAULT_CHARSET;
+	/** Zerlegt große Puffer parallel oder <code>null</code>, wenn nur sequenziell zerlegt wird. */
+	private ParallelTokenizer tokenizer;
+	
+	/**
+	 * Gibt den Zeichensatz der Java-Dateien zurück.
+	 * 
+	 * @return Der Zeichensatz.
+	 */
+	public Charset getCharset() {
+		return this.charset;
+	}
+	
+	/**
+	 * Setzt den Zeichensatz der Java-Dateien. Voreingestellt ist {@link #DEFAULT_CHARSET}, unabhängig vom Zeichensatz der
+	 * Plattform.
+	 * 
+	 * @param charset
+	 *            Der Zeichensatz.
+	 */
+	public void setCharset(final Charset charset) {
+		this.charset = charset;
+	}
+	
+	/**
+	 * Legt fest, mit wie vielen Threads ein großer Puffer zerlegt wird. Er wird dazu an Zeilengrenzen geteilt, siehe
+	 * {@link ParallelTokenizer}; das Ergebnis ist dasselbe wie beim sequenziellen Zerlegen. Kleine Puffer und die
+	 * blockweise gelesenen Eingaben werden immer sequenziell zerlegt. Voreingestellt ist <code>1</code>. Der Pool eines
+	 * vorherigen Aufrufs wird beendet, daher darf währenddessen nichts konvertiert werden.
+	 * 
+	 * @param threads
+	 *            Die Anzahl der Threads.
+	 */
+	public void setParallelism(final int threads) {
+		if (this.tokenizer != null) {
+			this.tokenizer.shutdown();
+		}
+		
+		this.tokenizer = threads > 1 ? new ParallelTokenizer(new ForkJoinPool(threads), ParallelTokenizer.MIN_CHUNK_SIZE) : null;
+	}
 	
 	/**
 	 * Konvertiert die angegebene Datei in eine {@link BoxCollection}.
@@ -99,15 +77,23 @@ public class JavaSourceToBoxConverter {
 	 *             Wird geworfen, wenn die Fragmente nicht bearbeitet werden konnten.
 	 */
 	public BoxCollection convert(final File file) throws IOException, FragmentException {
-		
-		final char[] buffer = this.readFile(file);
-		
+		return this.convert(this.readFile(file));
+	}
+	
+	/**
+	 * Konvertiert den angegebenen Puffer in eine {@link BoxCollection}.
+	 * 
+	 * @param buffer
+	 *            Der Inhalt der Java-Datei.
+	 * @return Die {@link BoxCollection}.
+	 * @throws FragmentException
+	 *             Wird geworfen, wenn die Fragmente nicht bearbeitet werden konnten.
+	 */
+	public BoxCollection convert(final char[] buffer) throws FragmentException {
 		List<Fragment> fragments = this.createFragments(buffer);
 		
 		// fragments = this.easeFragments(fragments);
 		
-		this.classifyFragments(fragments);
-		
 		fragments = this.easeFragments(fragments);
 		
 		final BoxCollection boxes = this.generateBoxes(fragments);
@@ -116,23 +102,92 @@ public class JavaSourceToBoxConverter {
 	}
 	
 	/**
-	 * Liest die Datei ein und wandelt sie in ein byte-Array.
+	 * Konvertiert den angegebenen Puffer und reicht die {@link Box}en an den {@link BoxSink}, z. B. eine
+	 * {@link CompactBoxCollection}. Anders als {@link #convert(char[])} entstehen dabei keine Fragmente.
+	 * 
+	 * @param buffer
+	 *            Der Inhalt der Java-Datei.
+	 * @param sink
+	 *            Der Empfänger der {@link Box}en.
+	 */
+	public void convert(final char[] buffer, final BoxSink sink) {
+		final BoxLayoutMachine machine = new BoxLayoutMachine(sink);
+		
+		this.tokenize(buffer, machine);
+		machine.end();
+	}
+	
+	/**
+	 * Konvertiert den Inhalt des {@link Reader}s, ohne die Datei oder eine Fragmentliste vollständig im Speicher zu halten.
+	 * Gelesen wird in Blöcken fester Größe, die {@link Box}en werden in Zeilenreihenfolge an den {@link BoxSink}
+	 * gereicht.
+	 * 
+	 * @param reader
+	 *            Der {@link Reader}. Er wird nicht geschlossen.
+	 * @param sink
+	 *            Der Empfänger der {@link Box}en.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht gelesen werden konnte.
+	 */
+	public void convert(final Reader reader, final BoxSink sink) throws IOException {
+		final BoxLayoutMachine machine = new BoxLayoutMachine(sink);
+		
+		machine.parse(reader);
+		machine.end();
+	}
+	
+	/**
+	 * Konvertiert den Inhalt des Kanals blockweise, siehe {@link #convert(Reader, BoxSink)}.
+	 * 
+	 * @param channel
+	 *            Der Kanal. Er wird nicht geschlossen.
+	 * @param charset
+	 *            Der Zeichensatz des Inhalts.
+	 * @param sink
+	 *            Der Empfänger der {@link Box}en.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht gelesen werden konnte.
+	 */
+	public void convert(final ReadableByteChannel channel, final Charset charset, final BoxSink sink) throws IOException {
+		final Reader reader = Channels.newReader(channel, charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE), -1);
+		
+		this.convert(reader, sink);
+	}
+	
+	/**
+	 * Konvertiert die angegebene Datei blockweise, siehe {@link #convert(Reader, BoxSink)}.
+	 * 
+	 * @param file
+	 *            Die Java-Datei.
+	 * @param sink
+	 *            Der Empfänger der {@link Box}en.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht gelesen werden konnte.
+	 */
+	public void convert(final File file, final BoxSink sink) throws IOException {
+		final MappedSourceReader reader = new MappedSourceReader(file, this.charset);
+		
+		try {
+			this.convert(reader, sink);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Liest die Datei im eingestellten Zeichensatz vollständig ein, siehe {@link MappedSourceReader}.
 	 * 
 	 * @param file
 	 *            Die Datei.
-	 * @return Gibt den Puffer zurück.
+	 * @return Gibt den Puffer zurück. Er ist genau so lang wie der dekodierte Inhalt.
 	 * @throws IOException
 	 *             Wird geworfen, wenn die Datei nicht gelesen werden konnte.
 	 */
-	private char[] readFile(final File file) throws IOException {
-		final InputStreamReader reader = new InputStreamReader(new FileInputStream(file));
+	public char[] readFile(final File file) throws IOException {
+		final MappedSourceReader reader = new MappedSourceReader(file, this.charset);
 		
 		try {
-			final char[] buffer = new char[(int) file.length()];
-			
-			reader.read(buffer);
-			
-			return buffer;
+			return reader.readFully();
 		} finally {
 			reader.close();
 		}
@@ -145,7 +200,7 @@ public class JavaSourceToBoxConverter {
 	 *            Der Puffer.
 	 * @return Die Fragmenteliste.
 	 */
-	private List<Fragment> createFragments(final char[] buffer) {
+	List<Fragment> createFragments(final char[] buffer) {
 		final List<Fragment> fragments = new ArrayList<Fragment>();
 		
 		final AbstractFragmentMachine machine = new AbstractFragmentMachine() {
@@ -157,11 +212,27 @@ public class JavaSourceToBoxConverter {
 			
 		};
 		
-		machine.parse(buffer);
+		this.tokenize(buffer, machine);
 		
 		return fragments;
 	}
 	
+	/**
+	 * Zerlegt den Puffer mit der Maschine, bei eingestellter Parallelität über den {@link ParallelTokenizer}.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param machine
+	 *            Die Maschine, die die Tokens erhält.
+	 */
+	private void tokenize(final char[] buffer, final AbstractTokenMachine machine) {
+		if (this.tokenizer == null) {
+			machine.parse(buffer);
+		} else {
+			this.tokenizer.parse(buffer, machine);
+		}
+	}
+	
 	/**
 	 * Vereinfacht die Liste der Fragmente.
 	 * 
@@ -171,14 +242,14 @@ public class JavaSourceToBoxConverter {
 	 * @throws FragmentException
 	 *             Wird geworfen, wenn die Fragemente, nicht verbunden werden können.
 	 */
-	private List<Fragment> easeFragments(final List<Fragment> fragments) throws FragmentException {
+	List<Fragment> easeFragments(final List<Fragment> fragments) throws FragmentException {
 		final ArrayList<Fragment> newFragments = new ArrayList<Fragment>();
 		Fragment currentFragment = fragments.get(0);
 		
 		for (int i = 1; i < fragments.size(); i++) {
 			final Fragment fragment = fragments.get(i);
 			
-			if (fragment.getContent().isEmpty()) {
+			if (fragment.getLength() == 0) {
 				continue;
 			} else if ((currentFragment.getType() == fragment.getType()) && (fragment.getType() != Types.Undefined) && (fragment.getType() != Types.LineFeed)) {
 				currentFragment.join(fragment);
@@ -194,90 +265,6 @@ public class JavaSourceToBoxConverter {
 		return newFragments;
 	}
 	
-	/**
-	 * Klassifiziert alle unbekannten Fragmente anhand ihres Inhalts.
-	 * 
-	 * @param fragments
-	 *            Die Fragmentliste.
-	 */
-	private void classifyFragments(final List<Fragment> fragments) {
-		for (final Fragment fragment : fragments) {
-			if (fragment.getType() == Types.Undefined) {
-				final String content = fragment.getContent();
-				
-				if (JavaSourceToBoxConverter.SPACE.matcher(content).matches()) {
-					fragment.setType(Types.Space);
-				} else if ((content.length() == 1) && AbstractFragmentMachine.elementOf(content.charAt(0), JavaSourceToBoxConverter.SYMBOLS)) {
-					fragment.setType(Types.Symbol);
-				} else if (JavaSourceToBoxConverter.WORD.matcher(content).matches()) {
-					this.wordsTest(fragment);
-				} else if (JavaSourceToBoxConverter.NUMERIC.matcher(content).matches()) {
-					fragment.setType(Types.Numeric);
-				} else if (content.charAt(0) == '@') {
-					fragment.setType(Types.Annotation);
-				}
-			}
-		}
-	}
-	
-	/**
-	 * Unterscheidet zwischen Keyword, Datentyp und Identifier.
-	 * 
-	 * @param fragment
-	 *            Das Fragment.
-	 */
-	private void wordsTest(final Fragment fragment) {
-		final String content = fragment.getContent();
-		
-		if (this.isKeyword(content)) {
-			fragment.setType(Types.Keyword);
-		} else if (this.isDatatype(content)) {
-			fragment.setType(Types.Datatype);
-		} else {
-			fragment.setType(Types.Identifier);
-		}
-	}
-	
-	/**
-	 * Prüft, ob der Inhalt ein Datentyp ist.
-	 * 
-	 * @param content
-	 *            Der Inhalt.
-	 * @return Gibt <code>true</code> zurück, wenn es sich um einen Datentypen handelt.
-	 */
-	private boolean isDatatype(final String content) {
-		boolean result = false;
-		
-		for (final String datatype : JavaSourceToBoxConverter.DATATYPES) {
-			if (content.equals(datatype)) {
-				result = true;
-				break;
-			}
-		}
-		
-		return result;
-	}
-	
-	/**
-	 * Prüft, on der Inhalt ein Keyword ist.
-	 * 
-	 * @param content
-	 *            Der Inhalt.
-	 * @return Gibt <code>true</code> zurück, wenn es sich um ein Keyword handlet.
-	 */
-	private boolean isKeyword(final String content) {
-		boolean result = false;
-		
-		for (final String keyword : JavaSourceToBoxConverter.KEYWORDS) {
-			if (content.equals(keyword)) {
-				result = true;
-				break;
-			}
-		}
-		
-		return result;
-	}
-	
 	/**
 	 * Erstellt aus den Fragmenten die {@link Box}en um daraus ein Bild zu generieren.
 	 * 
@@ -285,7 +272,7 @@ public class JavaSourceToBoxConverter {
 	 *            Die Fragmentliste.
 	 * @return Gibt eine {@link BoxCollection} mit allen {@link Box}en zurück.
 	 */
-	private BoxCollection generateBoxes(final List<Fragment> fragments) {
+	BoxCollection generateBoxes(final List<Fragment> fragments) {
 		final BoxCollection collection = new BoxCollection();
 		int xPosition = 0;
 		int lineCount = 0;
@@ -297,7 +284,7 @@ public class JavaSourceToBoxConverter {
 			} else {
 				final Box box = new Box(); // NOPMD
 				
-				final int width = fragment.getContent().length() * Box.CHAR_WIDTH;
+				final int width = fragment.getLength() * Box.CHAR_WIDTH;
 				
 				box.setWidth(width);
 				box.setPosition(xPosition, lineCount * (Box.LINE_HEIGHT + Box.BOX_GAP));
@@ -0,0 +1,223 @@
+package de.igeri.javaxray.java2box;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Perfekte Hashtabelle für Keywords und Datentypen. Die Tabellengröße wird beim Laden so gewählt, dass keine Kollisionen
+ * auftreten. Eine Abfrage berechnet daher nur den Hash und vergleicht höchstens einen Eintrag, kostet also O(Länge)
+ * unabhängig von der Anzahl der Wörter. Abgefragt wird direkt auf dem Zeichenbereich, ohne einen {@link String} zu
+ * erzeugen.
+ * 
+ * @author smolli
+ */
+final class KeywordTable {
+	
+	/** Alle bekannten Datentypen. */
+	private static final String[] DATATYPES = {
+			"boolean",
+			"byte",
+			"char",
+			"double",
+			"float",
+			"int",
+			"long",
+			"short",
+			"void" };
+	/** Alle bekannten Keywords. */
+	private static final String[] KEYWORDS = {
+			"assert",
+			"abstract",
+			"default",
+			"if",
+			"private",
+			"this",
+			"do",
+			"implements",
+			"protected",
+			"throw",
+			"break",
+			"import",
+			"public",
+			"throws",
+			"else",
+			"instanceof",
+			"return",
+			"transient",
+			"case",
+			"extends",
+			"try",
+			"catch",
+			"final",
+			"interface",
+			"static",
+			"finally",
+			"strictfp",
+			"volatile",
+			"class",
+			"native",
+			"super",
+			"while",
+			"const",
+			"for",
+			"new",
+			"switch",
+			"continue",
+			"goto",
+			"package",
+			"synchronized",
+			"threadsafe",
+			"null",
+			"true",
+			"false",
+			// Enum keyword from JDK1.5 (TypeSafe Enums)
+			"enum",
+			"@interface",
+			// Kontextabhängige Keywords ab JDK10 (var), JDK14 (yield, record) und JDK17 (sealed, non-sealed, permits)
+			"var",
+			"yield",
+			"record",
+			"sealed",
+			"non-sealed",
+			"permits" };
+			
+	/** Startwert für die Suche nach einem kollisionsfreien Multiplikator. */
+	private static final int GOLDEN_RATIO = 0x9E3779B9;
+	/** Anzahl der Multiplikatoren, die je Tabellengröße probiert werden. */
+	private static final int ATTEMPTS = 1024;
+	/** Die Wörter, indiziert über den Hash. */
+	private static final char[][] WORDS;
+	/** Die Typen der Wörter. */
+	private static final Types[] TYPES;
+	/** Der Multiplikator des Hashs. */
+	private static final int MULTIPLIER;
+	/** Die Verschiebung, die den Hash auf die Tabellengröße abbildet. */
+	private static final int SHIFT;
+	/** Die Länge des längsten Wortes. */
+	private static final int MAX_LENGTH;
+	
+	static {
+		final int count = KeywordTable.KEYWORDS.length + KeywordTable.DATATYPES.length;
+		int bits = Integer.SIZE - Integer.numberOfLeadingZeros(count);
+		int multiplier = KeywordTable.GOLDEN_RATIO;
+		int attempt = 0;
+		char[][] words = new char[1 << bits][];
+		Types[] types = new Types[1 << bits];
+		
+		while (!KeywordTable.fill(words, types, KeywordTable.KEYWORDS, Types.Keyword, multiplier, bits) || !KeywordTable.fill(words, types, KeywordTable.DATATYPES, Types.Datatype, multiplier, bits)) {
+			if (++attempt == KeywordTable.ATTEMPTS) {
+				attempt = 0;
+				bits++;
+			}
+			
+			multiplier += 2;
+			words = new char[1 << bits][];
+			types = new Types[1 << bits];
+		}
+		
+		int maxLength = 0;
+		
+		for (final char[] word : words) {
+			if ((word != null) && (word.length > maxLength)) {
+				maxLength = word.length;
+			}
+		}
+		
+		WORDS = words;
+		TYPES = types;
+		MULTIPLIER = multiplier;
+		SHIFT = Integer.SIZE - bits;
+		MAX_LENGTH = maxLength;
+	}
+	
+	/**
+	 * Trägt die Wörter in die Tabelle ein.
+	 * 
+	 * @param words
+	 *            Die Tabelle der Wörter.
+	 * @param types
+	 *            Die Tabelle der Typen.
+	 * @param entries
+	 *            Die einzutragenden Wörter.
+	 * @param type
+	 *            Der Typ der einzutragenden Wörter.
+	 * @param multiplier
+	 *            Der Multiplikator des Hashs.
+	 * @param bits
+	 *            Die Anzahl der Bits des Index.
+	 * @return Gibt <code>false</code> zurück, wenn es eine Kollision gab.
+	 */
+	private static boolean fill(final char[][] words, final Types[] types, final String[] entries, final Types type, final int multiplier, final int bits) {
+		for (final String entry : entries) {
+			final char[] word = entry.toCharArray();
+			final int index = (KeywordTable.hash(word, 0, word.length) * multiplier) >>> (Integer.SIZE - bits);
+			
+			if (words[index] != null) {
+				return false;
+			}
+			
+			words[index] = word;
+			types[index] = type;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Berechnet den Hash eines Zeichenbereichs.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Bereichs.
+	 * @param length
+	 *            Die Länge des Bereichs.
+	 * @return Der Hash.
+	 */
+	private static int hash(final char[] buffer, final int offset, final int length) {
+		int hash = length;
+		
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * Unterscheidet zwischen Keyword, Datentyp und Identifier.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Wortes.
+	 * @param length
+	 *            Die Länge des Wortes.
+	 * @return {@link Types#Keyword}, {@link Types#Datatype} oder {@link Types#Identifier}.
+	 */
+	static Types lookup(final char[] buffer, final int offset, final int length) {
+		if (length > KeywordTable.MAX_LENGTH) {
+			return Types.Identifier;
+		}
+		
+		final int index = (KeywordTable.hash(buffer, offset, length) * KeywordTable.MULTIPLIER) >>> KeywordTable.SHIFT;
+		final char[] word = KeywordTable.WORDS[index];
+		
+		if ((word == null) || (word.length != length)) {
+			return Types.Identifier;
+		}
+		
+		for (int i = 0; i < length; i++) {
+			if (word[i] != buffer[offset + i]) {
+				return Types.Identifier;
+			}
+		}
+		
+		return KeywordTable.TYPES[index];
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private KeywordTable() {}
+	
+}
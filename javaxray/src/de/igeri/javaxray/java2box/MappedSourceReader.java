@@ -0,0 +1,273 @@
+package de.igeri.javaxray.java2box;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Liest eine Datei über {@link FileChannel#map} mit einem ausdrücklich angegebenen Zeichensatz. Große Dateien werden in
+ * Fenstern eingeblendet. Bei ASCII-kompatiblen Zeichensätzen werden ASCII-Bytes direkt in Zeichen umgesetzt, der
+ * {@link CharsetDecoder} wird nur für die Folgen von Bytes ab <code>0x80</code> benötigt. Reine ASCII-Dateien werden
+ * daher ganz ohne Decoder gelesen.
+ * 
+ * @author smolli
+ */
+public final class MappedSourceReader extends Reader {
+	
+	/** Die Größe eines eingeblendeten Fensters. */
+	private static final int WINDOW_SIZE = 1 << 26;
+	/**
+	 * Dateien unter dieser Größe werden gelesen statt eingeblendet. Eingeblendete Bereiche werden erst bei der
+	 * Garbage-Collection freigegeben, bei vielen kleinen Dateien gingen sonst die Mappings des Prozesses aus.
+	 */
+	private static final int MAP_THRESHOLD = 1 << 16;
+	/** Die Zeichensätze, in denen jedes Byte unter <code>0x80</code> genau ein ASCII-Zeichen ist. */
+	private static final String[] ASCII_COMPATIBLE = { "US-ASCII", "UTF-8", "ISO-8859-1", "ISO-8859-15", "windows-1252" };
+	
+	/** Die Datei. */
+	private final RandomAccessFile file;
+	/** Der Kanal der Datei. */
+	private final FileChannel channel;
+	/** Die Größe der Datei in Bytes. */
+	private final long size;
+	/** Der Decoder. */
+	private final CharsetDecoder decoder;
+	/** Gibt an, ob ASCII-Bytes direkt umgesetzt werden dürfen. */
+	private final boolean asciiCompatible;
+	/** Das eingeblendete oder gelesene Fenster. */
+	private ByteBuffer window;
+	/** Der Beginn des Fensters in der Datei. */
+	private long windowStart;
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param file
+	 *            Die Datei.
+	 * @param charset
+	 *            Der Zeichensatz der Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht geöffnet werden konnte.
+	 */
+	public MappedSourceReader(final File file, final Charset charset) throws IOException {
+		this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.asciiCompatible = Arrays.asList(MappedSourceReader.ASCII_COMPATIBLE).contains(charset.name());
+		this.file = new RandomAccessFile(file, "r");
+		
+		try {
+			this.channel = this.file.getChannel();
+			this.size = this.channel.size();
+			
+			this.map(0);
+		} catch (final IOException e) {
+			this.file.close();
+			
+			throw e;
+		}
+	}
+	
+	/**
+	 * Gibt die Größe der Datei in Bytes zurück.
+	 * 
+	 * @return Die Größe.
+	 */
+	public long getSize() {
+		return this.size;
+	}
+	
+	/**
+	 * Liest die gesamte Datei in einen Puffer, der genau so groß ist wie die Anzahl der Zeichen.
+	 * 
+	 * @return Der Puffer.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht gelesen werden konnte.
+	 */
+	public char[] readFully() throws IOException {
+		if (this.size > Integer.MAX_VALUE) {
+			throw new IOException("File too large: " + this.size + " bytes");
+		}
+		
+		// Kein unterstützter Zeichensatz erzeugt mehr Zeichen als Bytes, ein voller Puffer ist also die ganze Datei.
+		final char[] buffer = new char[(int) this.size];
+		int length = 0;
+		
+		while (length < buffer.length) {
+			final int read = this.read(buffer, length, buffer.length - length);
+			
+			if (read < 0) {
+				break;
+			}
+			
+			length += read;
+		}
+		
+		return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+	}
+	
+	@Override
+	public int read(final char[] buffer, final int offset, final int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		
+		int count = offset;
+		final int end = offset + length;
+		
+		while (count == offset) {
+			if (!this.window.hasRemaining()) {
+				if (this.isLastWindow()) {
+					return -1;
+				}
+				
+				this.map(this.windowStart + this.window.position());
+			}
+			
+			count = this.asciiCompatible ? this.readAscii(buffer, count, end) : this.decode(buffer, count, end, this.window.limit());
+		}
+		
+		return count - offset;
+	}
+	
+	/**
+	 * Setzt ASCII-Bytes direkt in Zeichen um und dekodiert nur die Folgen von Bytes ab <code>0x80</code>.
+	 * 
+	 * @param buffer
+	 *            Der Zielpuffer.
+	 * @param offset
+	 *            Die erste freie Position im Zielpuffer.
+	 * @param end
+	 *            Das Ende des Zielpuffers (exklusiv).
+	 * @return Die erste freie Position nach dem Lesen.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das nächste Fenster nicht eingeblendet werden konnte.
+	 */
+	private int readAscii(final char[] buffer, final int offset, final int end) throws IOException {
+		final ByteBuffer bytes = this.window;
+		final int limit = bytes.limit();
+		int position = bytes.position();
+		int count = offset;
+		
+		while ((count < end) && (position < limit)) {
+			final byte element = bytes.get(position);
+			
+			if (element >= 0) {
+				buffer[count++] = (char) element;
+				position++;
+				continue;
+			}
+			
+			int runEnd = position + 1;
+			
+			while ((runEnd < limit) && (bytes.get(runEnd) < 0)) {
+				runEnd++;
+			}
+			
+			bytes.position(position);
+			
+			count = this.decode(buffer, count, end, runEnd);
+			
+			if (bytes != this.window) {
+				return count;
+			}
+			
+			position = bytes.position();
+		}
+		
+		bytes.position(position);
+		
+		return count;
+	}
+	
+	/**
+	 * Dekodiert Bytes des Fensters bis zur angegebenen Grenze. Der Zustand des Decoders bleibt über die Fenster hinweg
+	 * erhalten, z. B. die mit der BOM erkannte Byte-Reihenfolge von UTF-16. Zurückgesetzt wird er erst, wenn eine Folge
+	 * vollständig dekodiert ist.
+	 * 
+	 * @param buffer
+	 *            Der Zielpuffer.
+	 * @param offset
+	 *            Die erste freie Position im Zielpuffer.
+	 * @param end
+	 *            Das Ende des Zielpuffers (exklusiv).
+	 * @param byteLimit
+	 *            Die Grenze im Fenster (exklusiv). Sie muss auf einer Zeichengrenze liegen oder das Fensterende sein.
+	 * @return Die erste freie Position nach dem Dekodieren.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das nächste Fenster nicht eingeblendet werden konnte.
+	 */
+	private int decode(final char[] buffer, final int offset, final int end, final int byteLimit) throws IOException {
+		final ByteBuffer input = this.window.duplicate();
+		final CharBuffer output = CharBuffer.wrap(buffer, offset, end - offset);
+		final boolean endOfInput = (byteLimit < this.window.limit()) || this.isLastWindow();
+		
+		input.limit(byteLimit);
+		
+		final CoderResult result = this.decoder.decode(input, output, endOfInput);
+		
+		if (result.isUnderflow() && endOfInput && this.decoder.flush(output).isUnderflow()) {
+			this.decoder.reset();
+		}
+		
+		this.window.position(input.position());
+		
+		if ((output.position() == offset) && result.isUnderflow() && !endOfInput) {
+			// Ein angefangenes Zeichen am Fensterende: Fenster ab diesem Zeichen neu einblenden.
+			this.map(this.windowStart + input.position());
+		}
+		
+		return output.position();
+	}
+	
+	/**
+	 * Prüft, ob das aktuelle Fenster bis zum Dateiende reicht.
+	 * 
+	 * @return Gibt <code>true</code> zurück, wenn es das letzte Fenster ist.
+	 */
+	private boolean isLastWindow() {
+		return this.windowStart + this.window.limit() >= this.size;
+	}
+	
+	/**
+	 * Blendet ein neues Fenster ab der angegebenen Position ein. Kleine Dateien werden stattdessen gelesen.
+	 * 
+	 * @param position
+	 *            Die Position in der Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht eingeblendet werden konnte.
+	 */
+	private void map(final long position) throws IOException {
+		final int length = (int) Math.min(MappedSourceReader.WINDOW_SIZE, this.size - position);
+		
+		this.windowStart = position;
+		
+		if (this.size < MappedSourceReader.MAP_THRESHOLD) {
+			final ByteBuffer buffer = ByteBuffer.allocate(length);
+			int read = 0;
+			
+			while (buffer.hasRemaining() && (read >= 0)) {
+				read = this.channel.read(buffer, position + buffer.position());
+			}
+			
+			buffer.flip();
+			
+			this.window = buffer;
+		} else {
+			this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this.file.close();
+	}
+	
+}
@@ -0,0 +1,276 @@
+package de.igeri.javaxray.java2box;
+
+/**
+ * Prüft Zeichenbereiche auf gültige Java-Zahlenliterale: dezimal, oktal, hexadezimal und binär, mit Unterstrichen,
+ * Gleitkommaanteil, Exponent und Suffix.
+ * 
+ * @author smolli
+ */
+final class NumericLiterals {
+	
+	/** Zahlensystem mit der Basis 2. */
+	private static final int BINARY = 2;
+	/** Zahlensystem mit der Basis 10. */
+	private static final int DECIMAL = 10;
+	/** Zahlensystem mit der Basis 16. */
+	private static final int HEXADECIMAL = 16;
+	
+	/**
+	 * Prüft, ob ein Zeichen einen Exponenten einleitet, nach dem ein Vorzeichen folgen darf.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param start
+	 *            Der Beginn des Zahlenliterals.
+	 * @param position
+	 *            Die Position des Zeichens.
+	 * @return Gibt <code>true</code> zurück, wenn an der Position ein Exponent beginnt.
+	 */
+	static boolean isExponent(final char[] buffer, final int start, final int position) {
+		final char element = buffer[position];
+		
+		if (NumericLiterals.isHexPrefix(buffer, start, position - start)) {
+			return (element == 'p') || (element == 'P');
+		}
+		
+		return (element == 'e') || (element == 'E');
+	}
+	
+	/**
+	 * Prüft, ob der Bereich ein gültiges Zahlenliteral ist.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Bereichs.
+	 * @param length
+	 *            Die Länge des Bereichs.
+	 * @return Gibt <code>true</code> zurück, wenn es sich um ein Zahlenliteral handelt.
+	 */
+	static boolean isNumber(final char[] buffer, final int offset, final int length) {
+		final int end = offset + length;
+		
+		if (NumericLiterals.isHexPrefix(buffer, offset, length)) {
+			return NumericLiterals.isHexNumber(buffer, offset + 2, end);
+		}
+		
+		if ((length > 2) && (buffer[offset] == '0') && ((buffer[offset + 1] == 'b') || (buffer[offset + 1] == 'B'))) {
+			final int digits = NumericLiterals.digits(buffer, offset + 2, end, NumericLiterals.BINARY);
+			
+			return (digits > offset + 2) && NumericLiterals.isIntegerSuffix(buffer, digits, end);
+		}
+		
+		return NumericLiterals.isDecimalNumber(buffer, offset, end);
+	}
+	
+	/**
+	 * Prüft eine Dezimal- oder Oktalzahl, ganzzahlig oder mit Gleitkomma.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn der Zahl.
+	 * @param end
+	 *            Das Ende des Bereichs (exklusiv).
+	 * @return Gibt <code>true</code> zurück, wenn es sich um eine Zahl handelt.
+	 */
+	private static boolean isDecimalNumber(final char[] buffer, final int offset, final int end) {
+		int position = NumericLiterals.digits(buffer, offset, end, NumericLiterals.DECIMAL);
+		boolean floating = false;
+		
+		if ((position < end) && (buffer[position] == '.')) {
+			final int fraction = NumericLiterals.digits(buffer, position + 1, end, NumericLiterals.DECIMAL);
+			
+			if ((position == offset) && (fraction == position + 1)) {
+				return false;
+			}
+			
+			floating = true;
+			position = fraction;
+		} else if (position == offset) {
+			return false;
+		}
+		
+		if ((position < end) && ((buffer[position] == 'e') || (buffer[position] == 'E'))) {
+			position = NumericLiterals.exponent(buffer, position + 1, end);
+			
+			if (position < 0) {
+				return false;
+			}
+			
+			floating = true;
+		}
+		
+		if (position == end) {
+			return true;
+		}
+		
+		if (position == end - 1) {
+			final char suffix = buffer[position];
+			
+			return NumericLiterals.isFloatSuffix(suffix) || (!floating && ((suffix == 'l') || (suffix == 'L')));
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Prüft eine Hexadezimalzahl nach dem Präfix, ganzzahlig oder mit Gleitkomma.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn der Ziffern.
+	 * @param end
+	 *            Das Ende des Bereichs (exklusiv).
+	 * @return Gibt <code>true</code> zurück, wenn es sich um eine Zahl handelt.
+	 */
+	private static boolean isHexNumber(final char[] buffer, final int offset, final int end) {
+		int position = NumericLiterals.digits(buffer, offset, end, NumericLiterals.HEXADECIMAL);
+		boolean hasDigits = position > offset;
+		
+		if ((position < end) && (buffer[position] == '.')) {
+			final int fraction = NumericLiterals.digits(buffer, position + 1, end, NumericLiterals.HEXADECIMAL);
+			
+			hasDigits |= fraction > position + 1;
+			position = fraction;
+			
+			if ((position == end) || ((buffer[position] != 'p') && (buffer[position] != 'P'))) {
+				return false;
+			}
+		}
+		
+		if (!hasDigits) {
+			return false;
+		}
+		
+		if ((position < end) && ((buffer[position] == 'p') || (buffer[position] == 'P'))) {
+			position = NumericLiterals.exponent(buffer, position + 1, end);
+			
+			return (position == end) || ((position == end - 1) && NumericLiterals.isFloatSuffix(buffer[position]));
+		}
+		
+		return NumericLiterals.isIntegerSuffix(buffer, position, end);
+	}
+	
+	/**
+	 * Liest einen Exponenten mit optionalem Vorzeichen.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Die Position nach dem Exponentenzeichen.
+	 * @param end
+	 *            Das Ende des Bereichs (exklusiv).
+	 * @return Die Position nach dem Exponenten oder <code>-1</code>, wenn keine Ziffern folgen.
+	 */
+	private static int exponent(final char[] buffer, final int offset, final int end) {
+		int position = offset;
+		
+		if ((position < end) && ((buffer[position] == '+') || (buffer[position] == '-'))) {
+			position++;
+		}
+		
+		final int digits = NumericLiterals.digits(buffer, position, end, NumericLiterals.DECIMAL);
+		
+		return digits > position ? digits : -1;
+	}
+	
+	/**
+	 * Liest eine Ziffernfolge, in der Unterstriche nur zwischen Ziffern stehen dürfen.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn der Ziffernfolge.
+	 * @param end
+	 *            Das Ende des Bereichs (exklusiv).
+	 * @param radix
+	 *            Die Basis des Zahlensystems.
+	 * @return Die Position nach der letzten Ziffer.
+	 */
+	private static int digits(final char[] buffer, final int offset, final int end, final int radix) {
+		int position = offset;
+		int lastDigit = offset;
+		
+		while (position < end) {
+			final char element = buffer[position];
+			
+			if (NumericLiterals.isDigit(element, radix)) {
+				lastDigit = ++position;
+			} else if ((element == '_') && (position > offset)) {
+				position++;
+			} else {
+				break;
+			}
+		}
+		
+		return lastDigit;
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen eine ASCII-Ziffer im Zahlensystem ist.
+	 * 
+	 * @param element
+	 *            Das Zeichen.
+	 * @param radix
+	 *            Die Basis des Zahlensystems.
+	 * @return Gibt <code>true</code> zurück, wenn es sich um eine Ziffer handelt.
+	 */
+	private static boolean isDigit(final char element, final int radix) {
+		if ((element >= '0') && (element <= '9')) {
+			return element - '0' < radix;
+		}
+		
+		final char lower = (char) (element | 0x20);
+		
+		return (radix == NumericLiterals.HEXADECIMAL) && (lower >= 'a') && (lower <= 'f');
+	}
+	
+	/**
+	 * Prüft, ob der Bereich mit <code>0x</code> oder <code>0X</code> beginnt.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param offset
+	 *            Der Beginn des Bereichs.
+	 * @param length
+	 *            Die Länge des Bereichs.
+	 * @return Gibt <code>true</code> zurück, wenn es sich um ein Hexadezimalpräfix handelt.
+	 */
+	private static boolean isHexPrefix(final char[] buffer, final int offset, final int length) {
+		return (length >= 2) && (buffer[offset] == '0') && ((buffer[offset + 1] == 'x') || (buffer[offset + 1] == 'X'));
+	}
+	
+	/**
+	 * Prüft, ob nach der Position höchstens ein Suffix für <code>long</code> folgt.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param position
+	 *            Die Position nach den Ziffern.
+	 * @param end
+	 *            Das Ende des Bereichs (exklusiv).
+	 * @return Gibt <code>true</code> zurück, wenn der Rest gültig ist.
+	 */
+	private static boolean isIntegerSuffix(final char[] buffer, final int position, final int end) {
+		return (position == end) || ((position == end - 1) && ((buffer[position] == 'l') || (buffer[position] == 'L')));
+	}
+	
+	/**
+	 * Prüft, ob das Zeichen ein Suffix für <code>float</code> oder <code>double</code> ist.
+	 * 
+	 * @param suffix
+	 *            Das Zeichen.
+	 * @return Gibt <code>true</code> zurück, wenn es sich um ein Suffix handelt.
+	 */
+	private static boolean isFloatSuffix(final char suffix) {
+		return (suffix == 'f') || (suffix == 'F') || (suffix == 'd') || (suffix == 'D');
+	}
+	
+	/**
+	 * Ctor.
+	 */
+	private NumericLiterals() {}
+	
+}
@@ -0,0 +1,319 @@
+package de.igeri.javaxray.java2box;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import de.igeri.javaxray.java2box.Fragment.Types;
+
+/**
+ * Zerlegt einen großen Puffer parallel in Tokens. Der Puffer wird an Zeilengrenzen in Abschnitte geteilt, die im
+ * {@link ForkJoinPool} unter der Annahme zerlegt werden, dass sie im Ausgangszustand beginnen. Danach werden die
+ * Abschnitte der Reihe nach an die Maschine gemeldet. Beginnt ein Abschnitt tatsächlich in einem anderen Zustand, etwa
+ * in einem Kommentar oder einer offenen Zeichenkette, wird er ab dem echten Zustand neu zerlegt, bis an einem
+ * Zeilenanfang wieder derselbe Zustand wie bei der Annahme erreicht ist. Ab dort gelten die vorab zerlegten Tokens.
+ * Die Maschine erhält also genau dieselben Tokens in derselben Reihenfolge wie bei
+ * {@link AbstractTokenMachine#parse(char[])}.
+ * 
+ * @author smolli
+ */
+final class ParallelTokenizer {
+	
+	/** Die voreingestellte Mindestgröße eines Abschnitts in Zeichen. */
+	static final int MIN_CHUNK_SIZE = 1 << 18;
+	/** Anzahl der Abschnitte je Thread, damit ungleich schnelle Abschnitte sich ausgleichen. */
+	private static final int CHUNKS_PER_THREAD = 4;
+	/** Alle Typen, indiziert über die Ordinalzahl. */
+	private static final Types[] TYPES = Types.values();
+	
+	/** Der Pool für die Abschnitte. */
+	private final ForkJoinPool pool;
+	/** Die Mindestgröße eines Abschnitts. */
+	private final int minChunkSize;
+	
+	/**
+	 * Sammelt die Tokens eines Abschnitts als Tripel aus Offset, Länge und Typ, ohne Objekte je Token zu erzeugen.
+	 * Zusätzlich werden die Zeilenanfänge gemerkt, an denen kein Token offen ist und die Maschine im Ausgangszustand
+	 * steht.
+	 * 
+	 * @author smolli
+	 */
+	private static final class Recorder extends AbstractTokenMachine {
+		
+		/** Die Tokens. */
+		private int[] tokens = new int[1024];
+		/** Die Anzahl der belegten Einträge in {@link #tokens}. */
+		private int size;
+		/** Die Zeilenanfänge im Ausgangszustand. */
+		private int[] syncPositions = new int[64];
+		/** Die Anzahl der Einträge in {@link #tokens} vor dem jeweiligen Zeilenanfang. */
+		private int[] syncTokens = new int[64];
+		/** Die Anzahl der Zeilenanfänge. */
+		private int syncCount;
+		
+		@Override
+		protected void tokenTrigger(final char[] buffer, final int offset, final int length, final Types type) {
+			if (this.size + 3 > this.tokens.length) {
+				this.tokens = Arrays.copyOf(this.tokens, this.tokens.length * 2);
+			}
+			
+			this.tokens[this.size++] = offset;
+			this.tokens[this.size++] = length;
+			this.tokens[this.size++] = type.ordinal();
+		}
+		
+		/**
+		 * Zerlegt einen Ausschnitt Zeile für Zeile.
+		 * 
+		 * @param buffer
+		 *            Der Puffer.
+		 * @param tokenStart
+		 *            Der Beginn des offenen Tokens.
+		 * @param from
+		 *            Der erste Zeilenanfang.
+		 * @param end
+		 *            Das Ende des Ausschnitts (exklusiv), ein Zeilenanfang oder das Ende des Puffers.
+		 * @param speculation
+		 *            Der vorab zerlegte Abschnitt, zu dem zurückgekehrt wird, sobald ein gemeinsamer Zeilenanfang im
+		 *            Ausgangszustand erreicht ist, oder <code>null</code>, um stattdessen alle solchen Zeilenanfänge zu
+		 *            merken.
+		 * @return Der Beginn des danach noch offenen Tokens oder <code>-1</code>, wenn zum vorab zerlegten Abschnitt
+		 *         zurückgekehrt wurde.
+		 */
+		int lex(final char[] buffer, final int tokenStart, final int from, final int end, final Chunk speculation) {
+			int start = tokenStart;
+			int lineStart = from;
+			int sync = 0;
+			
+			while (lineStart < end) {
+				int lineEnd = lineStart;
+				
+				while ((lineEnd < end) && (buffer[lineEnd++] != '\n')) {
+					// Zeilenende suchen.
+				}
+				
+				start = this.scan(buffer, start, lineStart, lineEnd, buffer.length);
+				lineStart = lineEnd;
+				
+				if ((start != lineEnd) || (this.saveState() != AbstractTokenMachine.IDLE_STATE)) {
+					continue;
+				}
+				
+				if (speculation == null) {
+					this.sync(lineEnd);
+					continue;
+				}
+				
+				while ((sync < speculation.recorder.syncCount) && (speculation.recorder.syncPositions[sync] < lineEnd)) {
+					sync++;
+				}
+				
+				if ((sync < speculation.recorder.syncCount) && (speculation.recorder.syncPositions[sync] == lineEnd)) {
+					speculation.resumeAt = speculation.recorder.syncTokens[sync];
+					
+					return -1;
+				}
+			}
+			
+			return start;
+		}
+		
+		/**
+		 * Merkt einen Zeilenanfang im Ausgangszustand.
+		 * 
+		 * @param position
+		 *            Der Zeilenanfang.
+		 */
+		private void sync(final int position) {
+			if (this.syncCount == this.syncPositions.length) {
+				this.syncPositions = Arrays.copyOf(this.syncPositions, this.syncCount * 2);
+				this.syncTokens = Arrays.copyOf(this.syncTokens, this.syncCount * 2);
+			}
+			
+			this.syncPositions[this.syncCount] = position;
+			this.syncTokens[this.syncCount] = this.size;
+			this.syncCount++;
+		}
+		
+		/**
+		 * Meldet die gesammelten Tokens ab dem angegebenen Eintrag an die Maschine.
+		 * 
+		 * @param buffer
+		 *            Der Puffer.
+		 * @param from
+		 *            Der erste Eintrag in {@link #tokens}.
+		 * @param target
+		 *            Die Maschine.
+		 */
+		void replay(final char[] buffer, final int from, final AbstractTokenMachine target) {
+			for (int i = from; i < this.size; i += 3) {
+				target.tokenTrigger(buffer, this.tokens[i], this.tokens[i + 1], ParallelTokenizer.TYPES[this.tokens[i + 2]]);
+			}
+		}
+		
+		/**
+		 * Verwirft die gesammelten Tokens.
+		 */
+		void clear() {
+			this.size = 0;
+			this.syncCount = 0;
+		}
+	}
+	
+	/**
+	 * Ein Abschnitt, der unter der Annahme des Ausgangszustands zerlegt wird.
+	 * 
+	 * @author smolli
+	 */
+	private static final class Chunk extends RecursiveAction {
+		
+		/** Serial. */
+		private static final long serialVersionUID = 1L;
+		
+		/** Der Puffer. */
+		private final transient char[] buffer;
+		/** Der Beginn des Abschnitts, ein Zeilenanfang. */
+		private final int from;
+		/** Das Ende des Abschnitts (exklusiv). */
+		private final int end;
+		/** Die Tokens des Abschnitts. */
+		private final transient Recorder recorder = new Recorder();
+		/** Der Zustand am Ende des Abschnitts. */
+		private int endState;
+		/** Der Beginn des am Ende offenen Tokens. */
+		private int endStart;
+		/** Der Eintrag, ab dem die Tokens nach einer Reparatur gelten. */
+		private int resumeAt;
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param buffer
+		 *            Der Puffer.
+		 * @param from
+		 *            Der Beginn des Abschnitts, ein Zeilenanfang.
+		 * @param end
+		 *            Das Ende des Abschnitts (exklusiv).
+		 */
+		Chunk(final char[] buffer, final int from, final int end) {
+			this.buffer = buffer;
+			this.from = from;
+			this.end = end;
+		}
+		
+		@Override
+		protected void compute() {
+			this.recorder.reset();
+			this.endStart = this.recorder.lex(this.buffer, this.from, this.from, this.end, null);
+			this.endState = this.recorder.saveState();
+		}
+	}
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param pool
+	 *            Der Pool für die Abschnitte.
+	 * @param minChunkSize
+	 *            Die Mindestgröße eines Abschnitts in Zeichen. Kleinere Puffer werden nicht geteilt.
+	 */
+	ParallelTokenizer(final ForkJoinPool pool, final int minChunkSize) {
+		this.pool = pool;
+		this.minChunkSize = minChunkSize;
+	}
+	
+	/**
+	 * Zerlegt den Puffer und meldet die Tokens in derselben Reihenfolge wie {@link AbstractTokenMachine#parse(char[])}
+	 * an die Maschine. Ist der Puffer zu klein zum Teilen, wird er direkt zerlegt.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @param target
+	 *            Die Maschine, die die Tokens erhält.
+	 */
+	void parse(final char[] buffer, final AbstractTokenMachine target) {
+		final List<Chunk> chunks = this.split(buffer);
+		
+		if (chunks.size() < 2) {
+			target.parse(buffer);
+			
+			return;
+		}
+		
+		for (final Chunk chunk : chunks) {
+			this.pool.execute(chunk);
+		}
+		
+		final Recorder repair = new Recorder();
+		int state = AbstractTokenMachine.IDLE_STATE;
+		int start = 0;
+		
+		target.reset();
+		
+		for (final Chunk chunk : chunks) {
+			chunk.join();
+			
+			if ((state == AbstractTokenMachine.IDLE_STATE) && (start == chunk.from)) {
+				chunk.recorder.replay(buffer, 0, target);
+				state = chunk.endState;
+				start = chunk.endStart;
+				
+				continue;
+			}
+			
+			repair.clear();
+			repair.restoreState(state);
+			start = repair.lex(buffer, start, chunk.from, chunk.end, chunk);
+			repair.replay(buffer, 0, target);
+			
+			if (start < 0) {
+				chunk.recorder.replay(buffer, chunk.resumeAt, target);
+				state = chunk.endState;
+				start = chunk.endStart;
+			} else {
+				state = repair.saveState();
+			}
+		}
+		
+		target.restoreState(state);
+		target.finish(buffer, start, buffer.length);
+	}
+	
+	/**
+	 * Beendet den Pool. Bereits übergebene Abschnitte werden noch zerlegt.
+	 */
+	void shutdown() {
+		this.pool.shutdown();
+	}
+	
+	/**
+	 * Teilt den Puffer an Zeilengrenzen in etwa gleich große Abschnitte.
+	 * 
+	 * @param buffer
+	 *            Der Puffer.
+	 * @return Die Abschnitte.
+	 */
+	private List<Chunk> split(final char[] buffer) {
+		final int count = Math.min(this.pool.getParallelism() * ParallelTokenizer.CHUNKS_PER_THREAD, buffer.length / this.minChunkSize);
+		final List<Chunk> chunks = new ArrayList<Chunk>();
+		int from = 0;
+		
+		for (int i = 1; i <= count; i++) {
+			int end = (int) ((long) buffer.length * i / count);
+			
+			while ((end < buffer.length) && (buffer[end - 1] != '\n')) {
+				end++;
+			}
+			
+			if (end > from) {
+				chunks.add(new Chunk(buffer, from, end)); // NOPMD
+				from = end;
+			}
+		}
+		
+		return chunks;
+	}
+	
+}
@@ -0,0 +1,657 @@
+package de.igeri.javaxray.launcher;
+
+import java.awt.Dimension;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.igeri.javaxray.generator.PNGGenerator;
+import de.igeri.javaxray.generator.StreamingPNGGenerator;
+import de.igeri.javaxray.generator.StreamingPNGGenerator.Format;
+import de.igeri.javaxray.generator.ThumbnailGenerator;
+import de.igeri.javaxray.java2box.CompactBoxCollection;
+import de.igeri.javaxray.java2box.JavaSourceToBoxConverter;
+import de.igeri.javaxray.launcher.PipelineMetrics.FileMetrics;
+
+/**
+ * Verarbeitet viele Java-Dateien parallel. Lesen, Zerlegen und Zeichnen sowie Schreiben laufen als eigene Stufen mit
+ * jeweils eigener, beschränkter Warteschlange, sodass sich die Stufen überlappen. Zeiten und Mengen jeder Stufe und
+ * jeder Datei werden in den {@link PipelineMetrics} gesammelt.
+ * <p>
+ * Die rechenintensive Stufe läuft auf einer festen Anzahl von Threads, in der Regel so viele wie Prozessorkerne. Sie
+ * zerlegt, zeichnet und kodiert das Bild in den Speicher, das gezeichnete Bild lebt also nur innerhalb dieser Stufe.
+ * Lesen und Schreiben laufen dagegen auf einem eigenen Executor für Ein- und Ausgabe: virtuelle Threads, sofern die
+ * Laufzeitumgebung sie anbietet, sonst ein großer Pool. So können auf langsamen Laufwerken, etwa im Netz, deutlich mehr
+ * Dateien gleichzeitig gelesen und geschrieben werden, als es Kerne gibt. Eine Semaphore begrenzt die gleichzeitigen
+ * Zugriffe je Stufe. Die Warteschlangen haben unabhängig davon je Thread der rechenintensiven Stufe nur
+ * {@link #QUEUE_SLOTS_PER_THREAD} Plätze. Im Speicher liegen also höchstens so viele wartende Quellen bzw. kodierte
+ * Bilder, dazu die gerade gelesenen und geschriebenen; ein langsames Laufwerk bremst damit die vorderen Stufen.
+ * 
+ * @author smolli
+ */
+final class BatchPipeline {
+	
+	/** Die voreingestellte Anzahl gleichzeitiger Zugriffe je Stufe für Ein- und Ausgabe. */
+	static final int DEFAULT_IO_CONCURRENCY = 256;
+	
+	/** Logger. */
+	private static final Logger LOG = Logger.getAnonymousLogger();
+	/** Markiert das Ende der Eingabe. */
+	private static final Job END = new Job(null, null);
+	/** Plätze in einer Warteschlange je Thread der rechenintensiven Stufe. */
+	private static final int QUEUE_SLOTS_PER_THREAD = 2;
+	/** Die höchste Anzahl von Threads für Ein- und Ausgabe ohne virtuelle Threads. */
+	private static final int MAX_PLATFORM_IO_THREADS = 64;
+	/** Die Zeit in Sekunden, nach der ein unbenutzter Thread für Ein- und Ausgabe endet. */
+	private static final long IO_KEEP_ALIVE = 30;
+	
+	/** Der Konverter, den sich alle Threads teilen. */
+	private final JavaSourceToBoxConverter converter;
+	/** Anzahl der Threads für die rechenintensive Stufe. */
+	private final int threads;
+	/** Das Ausgabeformat. */
+	private final Format format;
+	/** Der Cache der fertigen Bilder oder <code>null</code>. */
+	private final RenderCache cache;
+	/** Die Anzahl der Zeichen je Pixel eines verkleinerten Bildes oder <code>0</code> für volle Größe. */
+	private int charsPerPixel;
+	/** Die Anzahl der Zeilen je Pixel eines verkleinerten Bildes. */
+	private int linesPerPixel;
+	/** Der Executor für Ein- und Ausgabe. */
+	private final ExecutorService io;
+	/** Alle Stufen in Verarbeitungsreihenfolge. */
+	private final List<Stage> stages = new ArrayList<Stage>();
+	/** Eingangswarteschlange der ersten Stufe. */
+	private final BlockingQueue<Job> input;
+	/** Die Messwerte. */
+	private final PipelineMetrics metrics;
+	
+	/**
+	 * Ein einzelner Auftrag, der durch die Stufen gereicht wird.
+	 * 
+	 * @author smolli
+	 */
+	private static final class Job {
+		
+		/** Die Java-Datei. */
+		private final File source;
+		/** Die PNG-Datei. */
+		private final File target;
+		/** Die Messwerte dieser Datei. */
+		private final FileMetrics metrics;
+		/** Der gelesene Inhalt. */
+		private char[] buffer;
+		/** Das kodierte Bild. */
+		private byte[] encoded;
+		/** Der Schlüssel im Cache. */
+		private String key;
+		/** Wird gesetzt, wenn der Auftrag nicht weitergereicht werden muss. */
+		private boolean finished;
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param source
+		 *            Die Java-Datei.
+		 * @param target
+		 *            Die PNG-Datei.
+		 */
+		Job(final File source, final File target) {
+			this.source = source;
+			this.target = target;
+			this.metrics = new FileMetrics(source);
+		}
+	}
+	
+	/**
+	 * Eine Verarbeitungsstufe mit eigener Warteschlange. Sie arbeitet entweder mit einer festen Anzahl eigener Threads
+	 * oder reicht jeden Auftrag an einen Executor weiter, wobei eine Semaphore die gleichzeitigen Aufträge begrenzt.
+	 * 
+	 * @author smolli
+	 */
+	private abstract class Stage implements Runnable {
+		
+		/** Der Name für die Threads. */
+		private final String name;
+		/** Die Nummer der Stufe in den {@link PipelineMetrics} oder <code>-1</code>, wenn sie selbst misst. */
+		private final int index;
+		/** Die Anzahl der Threads. */
+		private final int workers;
+		/** Der Executor für die Aufträge oder <code>null</code>, wenn die Threads selbst arbeiten. */
+		private final ExecutorService executor;
+		/** Die Anzahl der gleichzeitigen Aufträge im {@link #executor}. */
+		private final int concurrency;
+		/** Die freien Plätze für Aufträge im {@link #executor}. */
+		private final Semaphore permits;
+		/** Die Eingangswarteschlange. */
+		private final BlockingQueue<Job> queue;
+		/** Die Eingangswarteschlange der nächsten Stufe oder <code>null</code>. */
+		private BlockingQueue<Job> next;
+		/** Die Anzahl der noch laufenden Threads. */
+		private final AtomicInteger running;
+		/** Die gestarteten Threads. */
+		private final List<Thread> started = new ArrayList<Thread>();
+		
+		/**
+		 * Ctor für eine Stufe mit eigenen Threads.
+		 * 
+		 * @param name
+		 *            Der Name für die Threads.
+		 * @param index
+		 *            Die Nummer der Stufe in den {@link PipelineMetrics} oder <code>-1</code>, wenn sie selbst misst.
+		 * @param workers
+		 *            Die Anzahl der Threads.
+		 */
+		Stage(final String name, final int index, final int workers) {
+			this(name, index, workers, null, 0);
+		}
+		
+		/**
+		 * Ctor für eine Stufe, die die Aufträge an einen Executor weiterreicht. Ein einzelner Thread verteilt die
+		 * Aufträge.
+		 * 
+		 * @param name
+		 *            Der Name für den Thread.
+		 * @param index
+		 *            Die Nummer der Stufe in den {@link PipelineMetrics}.
+		 * @param executor
+		 *            Der Executor.
+		 * @param concurrency
+		 *            Die Anzahl der gleichzeitigen Aufträge.
+		 */
+		Stage(final String name, final int index, final ExecutorService executor, final int concurrency) {
+			this(name, index, 1, executor, concurrency);
+		}
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param name
+		 *            Der Name für die Threads.
+		 * @param index
+		 *            Die Nummer der Stufe in den {@link PipelineMetrics} oder <code>-1</code>, wenn sie selbst misst.
+		 * @param workers
+		 *            Die Anzahl der Threads.
+		 * @param executor
+		 *            Der Executor oder <code>null</code>.
+		 * @param concurrency
+		 *            Die Anzahl der gleichzeitigen Aufträge im Executor.
+		 */
+		private Stage(final String name, final int index, final int workers, final ExecutorService executor, final int concurrency) {
+			this.name = name;
+			this.index = index;
+			this.workers = workers;
+			this.executor = executor;
+			this.concurrency = concurrency;
+			this.permits = executor == null ? null : new Semaphore(concurrency);
+			// Unabhängig von der Anzahl der Zugriffe, sonst stauen sich bei vielen Zugriffen entsprechend viele Quellen und
+			// Bilder in den Warteschlangen.
+			this.queue = new ArrayBlockingQueue<Job>(BatchPipeline.this.threads * BatchPipeline.QUEUE_SLOTS_PER_THREAD);
+			this.running = new AtomicInteger(workers);
+		}
+		
+		/**
+		 * Startet alle Threads der Stufe.
+		 */
+		void start() {
+			for (int i = 0; i < this.workers; i++) {
+				final Thread thread = new Thread(this, "javaxray-" + this.name + "-" + (i + 1)); // NOPMD
+				
+				thread.setDaemon(true);
+				thread.start();
+				
+				this.started.add(thread);
+			}
+		}
+		
+		/**
+		 * Wartet auf das Ende aller Threads der Stufe.
+		 * 
+		 * @throws InterruptedException
+		 *             Wird geworfen, wenn das Warten unterbrochen wurde.
+		 */
+		void join() throws InterruptedException {
+			for (final Thread thread : this.started) {
+				thread.join();
+			}
+		}
+		
+		@Override
+		public void run() {
+			try {
+				Job job = this.queue.take();
+				
+				while (job != BatchPipeline.END) {
+					if (this.executor == null) {
+						this.execute(job);
+					} else {
+						this.dispatch(job);
+					}
+					
+					job = this.queue.take();
+				}
+				
+				if (this.executor != null) {
+					// Warten, bis alle weitergereichten Aufträge fertig sind.
+					this.permits.acquire(this.concurrency);
+					this.permits.release(this.concurrency);
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				// Das Ende auch den anderen Threads dieser Stufe mitteilen, sonst wartet finish() für immer.
+				boolean interrupted = BatchPipeline.putEnd(this.queue);
+				
+				if ((this.running.decrementAndGet() == 0) && (this.next != null)) {
+					interrupted |= BatchPipeline.putEnd(this.next);
+				}
+				
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+		
+		/**
+		 * Reicht einen Auftrag an den Executor weiter. Blockiert, solange alle Plätze belegt sind.
+		 * 
+		 * @param job
+		 *            Der Auftrag.
+		 * @throws InterruptedException
+		 *             Wird geworfen, wenn das Warten unterbrochen wurde.
+		 */
+		private void dispatch(final Job job) throws InterruptedException {
+			this.permits.acquire();
+			
+			this.executor.execute(new Runnable() {
+				
+				@Override
+				public void run() {
+					try {
+						Stage.this.execute(job);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						Stage.this.permits.release();
+					}
+				}
+				
+			});
+		}
+		
+		/**
+		 * Bearbeitet einen Auftrag, misst die Zeit dafür und reicht ihn an die nächste Stufe weiter. Auch ein
+		 * {@link Error} wie ein Stapelüberlauf bei einer entarteten Quelle zählt nur als fehlgeschlagener Auftrag und
+		 * beendet nicht den Thread.
+		 * 
+		 * @param job
+		 *            Der Auftrag.
+		 * @throws InterruptedException
+		 *             Wird geworfen, wenn das Weiterreichen unterbrochen wurde.
+		 */
+		private void execute(final Job job) throws InterruptedException {
+			final long start = System.nanoTime();
+			
+			try {
+				this.process(job);
+			} catch (final Throwable e) { // NOPMD
+				BatchPipeline.LOG.log(Level.SEVERE, "Fehler bei " + job.source, e);
+				BatchPipeline.this.metrics.fail();
+				
+				return;
+			} finally {
+				if (this.index >= 0) {
+					BatchPipeline.this.metrics.addTime(job.metrics, this.index, System.nanoTime() - start);
+				}
+			}
+			
+			if ((this.next == null) || job.finished) {
+				BatchPipeline.this.metrics.complete(job.metrics);
+			} else {
+				this.next.put(job);
+			}
+		}
+		
+		/**
+		 * Bearbeitet einen Auftrag.
+		 * 
+		 * @param job
+		 *            Der Auftrag.
+		 * @throws Exception
+		 *             Wird geworfen, wenn der Auftrag nicht bearbeitet werden konnte.
+		 */
+		protected abstract void process(Job job) throws Exception;
+	}
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param converter
+	 *            Der Konverter mit dem Zeichensatz der Java-Dateien.
+	 * @param threads
+	 *            Die Anzahl der Threads für die rechenintensive Stufe.
+	 * @param ioConcurrency
+	 *            Die Anzahl der gleichzeitigen Zugriffe beim Lesen und beim Schreiben.
+	 * @param format
+	 *            Das Ausgabeformat. Bilder mit Palette werden direkt aus den Boxen gezeichnet.
+	 * @param cache
+	 *            Der Cache der fertigen Bilder oder <code>null</code>. Bei einem Treffer endet der Auftrag schon beim
+	 *            Lesen.
+	 * @param slowest
+	 *            Die Anzahl der langsamsten Dateien, die in den {@link PipelineMetrics} behalten werden.
+	 */
+	BatchPipeline(final JavaSourceToBoxConverter converter, final int threads, final int ioConcurrency, final Format format, final RenderCache cache, final int slowest) {
+		this.converter = converter;
+		this.threads = threads;
+		this.format = format;
+		this.cache = cache;
+		this.metrics = new PipelineMetrics(slowest);
+		this.io = BatchPipeline.createIoExecutor(ioConcurrency);
+		
+		this.stages.add(new Stage("read", PipelineMetrics.READ, this.io, ioConcurrency) {
+			
+			@Override
+			protected void process(final Job job) throws Exception {
+				job.buffer = BatchPipeline.this.converter.readFile(job.source);
+				job.metrics.setRead(job.source.length(), job.buffer.length);
+				
+				if (BatchPipeline.this.cache != null) {
+					job.key = BatchPipeline.this.cache.key(job.buffer);
+					
+					if (BatchPipeline.this.cache.restore(job.key, job.target)) {
+						job.buffer = null;
+						job.finished = true;
+						job.metrics.setCached();
+						
+						return;
+					}
+				}
+			}
+			
+		});
+		
+		this.stages.add(new Stage("cpu", -1, this.threads) {
+			
+			@Override
+			protected void process(final Job job) throws Exception {
+				final long start = System.nanoTime();
+				final CompactBoxCollection boxes = new CompactBoxCollection();
+				
+				try {
+					BatchPipeline.this.converter.convert(job.buffer, boxes);
+					job.buffer = null;
+					job.metrics.setBoxes(boxes.size());
+				} finally {
+					BatchPipeline.this.metrics.addTime(job.metrics, PipelineMetrics.CONVERT, System.nanoTime() - start);
+				}
+				
+				final long converted = System.nanoTime();
+				
+				try {
+					job.encoded = BatchPipeline.this.render(boxes, job.metrics);
+					job.metrics.setEncodedBytes(job.encoded.length);
+				} finally {
+					BatchPipeline.this.metrics.addTime(job.metrics, PipelineMetrics.RENDER, System.nanoTime() - converted);
+				}
+			}
+			
+		});
+		
+		this.stages.add(new Stage("write", PipelineMetrics.WRITE, this.io, ioConcurrency) {
+			
+			@Override
+			protected void process(final Job job) throws Exception {
+				BatchPipeline.createDirectory(job.target.getAbsoluteFile().getParentFile());
+				
+				final OutputStream output = new FileOutputStream(job.target);
+				
+				try {
+					output.write(job.encoded);
+				} finally {
+					output.close();
+				}
+				
+				job.encoded = null;
+				
+				if (BatchPipeline.this.cache != null) {
+					BatchPipeline.this.cache.store(job.key, job.target);
+				}
+			}
+			
+		});
+		
+		for (int i = 0; i < this.stages.size() - 1; i++) {
+			this.stages.get(i).next = this.stages.get(i + 1).queue;
+		}
+		
+		this.input = this.stages.get(0).queue;
+	}
+	
+	/**
+	 * Legt fest, dass verkleinerte Bilder über {@link ThumbnailGenerator} erzeugt werden. Sie sind immer RGB-Bilder, da
+	 * die gemittelten Farben nicht in der Palette liegen. Muss vor {@link #start()} aufgerufen werden.
+	 * 
+	 * @param chars
+	 *            Die Anzahl der Zeichen je Pixel oder <code>0</code> für volle Größe.
+	 * @param lines
+	 *            Die Anzahl der Zeilen je Pixel.
+	 */
+	void setScale(final int chars, final int lines) {
+		this.charsPerPixel = chars;
+		this.linesPerPixel = lines;
+	}
+	
+	/**
+	 * Zeichnet die Boxen und kodiert das Bild als PNG in den Speicher.
+	 * 
+	 * @param boxes
+	 *            Die Boxen.
+	 * @param metrics
+	 *            Die Messwerte der Datei.
+	 * @return Das kodierte Bild.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht kodiert werden konnte.
+	 */
+	private byte[] render(final CompactBoxCollection boxes, final FileMetrics metrics) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		
+		if (this.charsPerPixel > 0) {
+			final ThumbnailGenerator thumbnail = new ThumbnailGenerator(this.charsPerPixel, this.linesPerPixel);
+			
+			boxes.replay(thumbnail);
+			thumbnail.write(output);
+			metrics.setPixels((long) thumbnail.getImage().getWidth() * thumbnail.getImage().getHeight());
+		} else if (this.format == Format.Rgb) {
+			final PNGGenerator generator = new PNGGenerator();
+			
+			generator.generate(boxes);
+			generator.write(output);
+			metrics.setPixels(BatchPipeline.area(boxes.getDimension()));
+		} else {
+			final StreamingPNGGenerator generator = new StreamingPNGGenerator(output, boxes.getDimension(), this.format);
+			
+			try {
+				boxes.replay(generator);
+			} finally {
+				generator.close();
+			}
+			
+			metrics.setPixels(BatchPipeline.area(boxes.getDimension()));
+		}
+		
+		return output.toByteArray();
+	}
+	
+	/**
+	 * Stellt das Ende in eine Warteschlange, auch wenn der Thread unterbrochen wird.
+	 * 
+	 * @param queue
+	 *            Die Warteschlange.
+	 * @return Gibt <code>true</code> zurück, wenn der Thread dabei unterbrochen wurde.
+	 */
+	private static boolean putEnd(final BlockingQueue<Job> queue) {
+		boolean interrupted = Thread.interrupted();
+		
+		while (true) {
+			try {
+				queue.put(BatchPipeline.END);
+				
+				return interrupted;
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+	}
+	
+	/**
+	 * Erzeugt den Executor für Ein- und Ausgabe. Bietet die Laufzeitumgebung virtuelle Threads an (ab Java 21), wird je
+	 * Auftrag ein virtueller Thread gestartet. Sonst entsteht ein Pool von Daemon-Threads, die nach einer Weile ohne
+	 * Arbeit wieder enden.
+	 * 
+	 * @param concurrency
+	 *            Die Anzahl der gleichzeitigen Zugriffe.
+	 * @return Der Executor.
+	 */
+	private static ExecutorService createIoExecutor(final int concurrency) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (final ReflectiveOperationException e) {
+			BatchPipeline.LOG.fine("No virtual threads, using a thread pool for I/O.");
+		}
+		
+		final int size = Math.min(concurrency, BatchPipeline.MAX_PLATFORM_IO_THREADS);
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, BatchPipeline.IO_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			
+			/** Die Nummer des nächsten Threads. */
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "javaxray-io-" + this.count.incrementAndGet());
+				
+				thread.setDaemon(true);
+				
+				return thread;
+			}
+			
+		});
+		
+		pool.allowCoreThreadTimeOut(true);
+		
+		return pool;
+	}
+	
+	/**
+	 * Gibt die Fläche eines Bildes zurück.
+	 * 
+	 * @param dimension
+	 *            Die Größe des Bildes.
+	 * @return Die Anzahl der Pixel.
+	 */
+	private static long area(final Dimension dimension) {
+		return (long) dimension.width * dimension.height;
+	}
+	
+	/**
+	 * Legt ein Verzeichnis samt fehlender Elternverzeichnisse an.
+	 * 
+	 * @param directory
+	 *            Das Verzeichnis oder <code>null</code>.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das Verzeichnis nicht angelegt werden konnte.
+	 */
+	static void createDirectory(final File directory) throws IOException {
+		if ((directory != null) && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException("Cannot create directory " + directory);
+		}
+	}
+	
+	/**
+	 * Startet alle Stufen und meldet die {@link PipelineMetrics} beim JMX-Server an.
+	 */
+	void start() {
+		this.metrics.register();
+		
+		for (final Stage stage : this.stages) {
+			stage.start();
+		}
+	}
+	
+	/**
+	 * Reiht eine Datei in die Verarbeitung ein. Blockiert, solange die erste Warteschlange voll ist.
+	 * 
+	 * @param source
+	 *            Die Java-Datei.
+	 * @param target
+	 *            Die PNG-Datei.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn das Warten unterbrochen wurde.
+	 */
+	void submit(final File source, final File target) throws InterruptedException {
+		this.input.put(new Job(source, target));
+	}
+	
+	/**
+	 * Schließt die Eingabe, wartet, bis alle Dateien verarbeitet sind, und meldet die {@link PipelineMetrics} beim
+	 * JMX-Server ab.
+	 * 
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn das Warten unterbrochen wurde.
+	 */
+	void finish() throws InterruptedException {
+		this.input.put(BatchPipeline.END);
+		
+		try {
+			for (final Stage stage : this.stages) {
+				stage.join();
+			}
+		} finally {
+			this.io.shutdown();
+			this.metrics.unregister();
+		}
+	}
+	
+	/**
+	 * Gibt die Anzahl der erfolgreich erzeugten Bilder zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	int getSucceeded() {
+		return this.metrics.getFiles();
+	}
+	
+	/**
+	 * Gibt die Anzahl der fehlgeschlagenen Dateien zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	int getFailed() {
+		return this.metrics.getFailed();
+	}
+	
+	/**
+	 * Gibt die Messwerte zurück.
+	 * 
+	 * @return Die Messwerte.
+	 */
+	PipelineMetrics getMetrics() {
+		return this.metrics;
+	}
+	
+}
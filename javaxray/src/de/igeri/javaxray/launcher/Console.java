@@ -1,13 +1,30 @@
 package de.igeri.javaxray.launcher;
 
+import java.awt.Dimension;
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import de.igeri.javaxray.generator.PNGGenerator;
-import de.igeri.javaxray.java2box.BoxCollection;
+import de.igeri.javaxray.generator.AtlasGenerator;
+import de.igeri.javaxray.generator.BinaryBoxGenerator;
+import de.igeri.javaxray.generator.DiffGenerator;
+import de.igeri.javaxray.generator.DiffGenerator.Layout;
+import de.igeri.javaxray.generator.SVGGenerator;
+import de.igeri.javaxray.generator.StreamingPNGGenerator;
+import de.igeri.javaxray.generator.StreamingPNGGenerator.Format;
+import de.igeri.javaxray.generator.ThumbnailGenerator;
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.DimensionSink;
 import de.igeri.javaxray.java2box.JavaSourceToBoxConverter;
 
 /**
@@ -22,8 +39,28 @@ public final class Console {
 	/** Logger. */
 	private static final Logger LOG = Logger.getAnonymousLogger();
 	/** Kommandozeilenargument. */
-	private static final Pattern ARGUMENT_PATTERN = Pattern.compile("-(\\w+)=(.*)");
-	
+	private static final Pattern ARGUMENT_PATTERN = Pattern.compile("-(\\w+)(?:=(.*))?");
+	/** Dateiendung der Java-Dateien. */
+	private static final String JAVA_SUFFIX = ".java";
+	/** Dateiendung der Bilder. */
+	private static final String PNG_SUFFIX = ".png";
+	/** Dateiendung der Vergleichsbilder. */
+	private static final String DIFF_SUFFIX = ".diff.png";
+	/** Die voreingestellte Größe des Caches in MB. */
+	private static final int DEFAULT_CACHE_SIZE = 256;
+	/** Bytes je MB. */
+	private static final long MEGABYTE = 1024L * 1024L;
+	/** Die voreingestellte Ruhezeit der Beobachtung in Millisekunden. */
+	private static final int DEFAULT_DEBOUNCE = 300;
+	/** Verkleinerung als Zeichen je Pixel und optional Zeilen je Pixel. */
+	private static final Pattern SCALE_PATTERN = Pattern.compile("(\\d{1,9})(?:x(\\d{1,9}))?");
+	/** Die voreingestellte Anzahl der langsamsten Dateien in der Zusammenfassung. */
+	private static final int DEFAULT_SLOWEST = 10;
+	/** Die Kurzhilfe zu den Argumenten. */
+	private static final String USAGE = "Usage: Console (-in=FILE | -dir=DIR)... [-out=FILE|DIR] [-threads=N] [-lexthreads=N] [-io=N]"
+			+ " [-charset=NAME] [-format=rgb|indexed] [-scale=N[xM]] [-cache=DIR] [-cachesize=MB] [-watch[=BOOL]] [-debounce=MS]"
+			+ " [-atlas=DIR] [-tilesize=N] [-metrics=FILE] [-slowest=N] [-diff=OLDFILE] [-layout=sidebyside|overlay] [-context=N]";
+			
 	/**
 	 * Main.
 	 * 
@@ -31,53 +68,653 @@ public final class Console {
 	 *            Programmparameter.
 	 */
 	public static void main(final String[] args) {
-		String inFilename = null;
+		final List<String> inFilenames = new ArrayList<String>();
+		final List<String> directories = new ArrayList<String>();
 		String outFilename = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int lexThreads = 1;
+		final JavaSourceToBoxConverter converter = new JavaSourceToBoxConverter();
+		Format format = Format.Rgb;
+		String cacheDirectory = null;
+		int cacheSize = Console.DEFAULT_CACHE_SIZE;
+		boolean watch = false;
+		String atlasDirectory = null;
+		int tileSize = AtlasGenerator.DEFAULT_TILE_SIZE;
+		int debounce = Console.DEFAULT_DEBOUNCE;
+		Dimension scale = null;
+		String metricsFilename = null;
+		int slowest = Console.DEFAULT_SLOWEST;
+		int ioConcurrency = BatchPipeline.DEFAULT_IO_CONCURRENCY;
+		String diffFilename = null;
+		Layout layout = Layout.SideBySide;
+		int context = SourceDiff.DEFAULT_CONTEXT;
 		
 		for (final String arg : args) {
 			final Matcher matcher = Console.ARGUMENT_PATTERN.matcher(arg);
 			
-			if (matcher.matches()) {
+			// Nur -watch darf ohne Wert stehen.
+			if (matcher.matches() && ((matcher.group(2) != null) || "watch".equals(matcher.group(1)))) {
 				final String key = matcher.group(1);
 				final String value = matcher.group(2);
 				
-				if ("in".equals(key)) {
-					inFilename = value;
-				} else if ("out".equals(key)) {
-					outFilename = value;
+				// Alle Werte an einer Stelle prüfen: Fehler beim Lesen enden mit der Kurzhilfe statt mit einem Stacktrace.
+				try {
+					if ("in".equals(key)) {
+						inFilenames.add(value);
+					} else if ("dir".equals(key)) {
+						directories.add(value);
+					} else if ("out".equals(key)) {
+						outFilename = value;
+					} else if ("threads".equals(key)) {
+						threads = Console.parseNumber(key, value, 1);
+					} else if ("lexthreads".equals(key)) {
+						lexThreads = Console.parseNumber(key, value, 1);
+					} else if ("charset".equals(key)) {
+						converter.setCharset(Charset.forName(value));
+					} else if ("format".equals(key)) {
+						format = Format.parse(value);
+					} else if ("cache".equals(key)) {
+						cacheDirectory = value;
+					} else if ("cachesize".equals(key)) {
+						cacheSize = Console.parseNumber(key, value, 0);
+					} else if ("watch".equals(key)) {
+						watch = (value == null) || Boolean.parseBoolean(value);
+					} else if ("debounce".equals(key)) {
+						debounce = Console.parseNumber(key, value, 0);
+					} else if ("atlas".equals(key)) {
+						atlasDirectory = value;
+					} else if ("tilesize".equals(key)) {
+						tileSize = Console.parseNumber(key, value, 1);
+					} else if ("scale".equals(key)) {
+						scale = Console.parseScale(value);
+					} else if ("metrics".equals(key)) {
+						metricsFilename = value;
+					} else if ("slowest".equals(key)) {
+						slowest = Console.parseNumber(key, value, 0);
+					} else if ("io".equals(key)) {
+						ioConcurrency = Console.parseNumber(key, value, 1);
+					} else if ("diff".equals(key)) {
+						diffFilename = value;
+					} else if ("layout".equals(key)) {
+						layout = Layout.parse(value);
+					} else if ("context".equals(key)) {
+						context = Console.parseNumber(key, value, 0);
+					} else {
+						Console.fail("Unknown argument: " + arg);
+					}
+				} catch (final IllegalArgumentException e) {
+					Console.fail("Invalid " + key + ": " + value);
 				}
 			} else {
-				Console.LOG.severe("Unknown argument: " + arg);
+				Console.fail("Unknown argument or missing value: " + arg);
+			}
+		}
+		
+		converter.setParallelism(lexThreads);
+		
+		try {
+			final RenderCache cache = cacheDirectory == null ? null : new RenderCache(new File(cacheDirectory), cacheSize * Console.MEGABYTE, "format=" + format + ";charset=" + converter.getCharset().name() + ";scale=" + (scale == null ? "full" : scale.width + "x" + scale.height));
+			
+			if (atlasDirectory != null) {
+				Console.convertAtlas(converter, inFilenames, directories, new File(atlasDirectory), tileSize, threads);
+			} else if (diffFilename != null) {
+				Console.convertDiff(converter, diffFilename, inFilenames, outFilename, layout, context);
+			} else if (directories.isEmpty() && (inFilenames.size() == 1)) {
+				Console.convertFile(converter, inFilenames.get(0), outFilename, format, scale, cache);
+			} else {
+				Console.convertBatch(converter, inFilenames, directories, outFilename, threads, ioConcurrency, format, scale, cache, metricsFilename, slowest);
+			}
+			
+			// Vor dem Beobachten verdrängen, das kehrt erst mit dem Programmende zurück.
+			if (cache != null) {
+				cache.evict();
 				
-				System.exit(Console.SYSTEM_EXIT_ERROR);
+				Console.LOG.info(cache.getSummary());
+			}
+			
+			if (watch) {
+				Console.watch(converter, inFilenames, directories, outFilename, threads, format, scale, cache, debounce);
 			}
+		} catch (final Exception e) {
+			Console.LOG.log(Level.SEVERE, "Programmfehler!", e);
 		}
+	}
+	
+	/**
+	 * Konvertiert eine einzelne Datei in voller Größe oder verkleinert.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param inFilename
+	 *            Die Java-Datei.
+	 * @param outFilename
+	 *            Die PNG-Datei oder <code>null</code>.
+	 * @param format
+	 *            Das Ausgabeformat.
+	 * @param scale
+	 *            Zeichen (Breite) und Zeilen (Höhe) je Pixel eines verkleinerten Bildes oder <code>null</code> für volle
+	 *            Größe.
+	 * @param cache
+	 *            Der Cache der fertigen Bilder oder <code>null</code>.
+	 * @throws Exception
+	 *             Wird geworfen, wenn die Datei nicht konvertiert werden konnte.
+	 */
+	static void convertFile(final JavaSourceToBoxConverter converter, final String inFilename, final String outFilename, final Format format, final Dimension scale, final RenderCache cache) throws Exception {
+		final File file = new File(inFilename);
 		
-		if (outFilename == null) {
-			outFilename = inFilename + ".png";
+		if (file.exists() && file.isFile() && file.getName().endsWith(Console.JAVA_SUFFIX)) {
+			final File target = new File(outFilename == null ? inFilename + Console.PNG_SUFFIX : outFilename);
+			final char[] text = cache == null ? null : converter.readFile(file);
+			final String key = cache == null ? null : cache.key(text);
+			
+			if ((cache != null) && cache.restore(key, target)) {
+				return;
+			}
+			
+			if (scale != null) {
+				final ThumbnailGenerator thumbnail = new ThumbnailGenerator(scale.width, scale.height);
+				
+				Console.convert(converter, file, text, thumbnail);
+				thumbnail.save(target);
+			} else {
+				Console.render(converter, file, text, target, format);
+			}
+			
+			if (cache != null) {
+				cache.store(key, target);
+			}
+			
+			// for (final Box box : boxes) {
+			// Console.LOG.info(box.toString());
+			// }
+		} else {
+			Console.LOG.info("Input file is not a Java file.");
+		}
+	}
+	
+	/**
+	 * Vergleicht eine alte mit der neuen Version einer Datei und zeichnet nur die geänderten Zeilen samt Kontext, siehe
+	 * {@link SourceDiff}.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param oldFilename
+	 *            Die alte Version.
+	 * @param inFilenames
+	 *            Die neue Version als einziger Eintrag.
+	 * @param outFilename
+	 *            Die PNG-Datei oder <code>null</code>.
+	 * @param layout
+	 *            Die Anordnung der beiden Versionen.
+	 * @param context
+	 *            Die Anzahl unveränderter Zeilen vor und nach jeder Änderung.
+	 * @throws IOException
+	 *             Wird geworfen, wenn eine Datei nicht gelesen oder das Bild nicht geschrieben werden konnte.
+	 */
+	private static void convertDiff(final JavaSourceToBoxConverter converter, final String oldFilename, final List<String> inFilenames, final String outFilename, final Layout layout, final int context) throws IOException {
+		if (inFilenames.size() != 1) {
+			Console.LOG.info("Diff needs exactly one new file.");
+			
+			return;
 		}
 		
+		final String inFilename = inFilenames.get(0);
+		final SourceDiff diff = new SourceDiff(converter.readFile(new File(oldFilename)), converter.readFile(new File(inFilename)));
+		final int removed = diff.getRemoved();
+		final int added = diff.getAdded();
+		
+		if ((removed == 0) && (added == 0)) {
+			Console.LOG.info("No differences.");
+			
+			return;
+		}
+		
+		final DiffGenerator generator = new DiffGenerator(layout);
+		
+		diff.render(converter, generator, layout, context);
+		generator.save(new File(outFilename == null ? inFilename + Console.DIFF_SUFFIX : outFilename));
+		
+		Console.LOG.info(removed + " lines removed, " + added + " lines added, " + generator.getRows() + " rows.");
+	}
+	
+	/**
+	 * Zeichnet eine Datei in voller Größe. Die Datei wird zweimal zerlegt, einmal für die Ausdehnung und einmal zum
+	 * Zeichnen, dafür wird das Bild zeilenweise geschrieben und nie vollständig im Speicher gehalten. Ohne bereits
+	 * gelesenen Inhalt wird die Datei dabei zweimal gelesen. Endet die Zieldatei
+	 * auf {@link SVGGenerator#SUFFIX}, wird ein SVG geschrieben, bei {@link BinaryBoxGenerator#SUFFIX} oder
+	 * {@link BinaryBoxGenerator#DEFLATE_SUFFIX} statt des Bildes die Boxen im Binärformat.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param file
+	 *            Die Java-Datei.
+	 * @param text
+	 *            Der bereits gelesene Inhalt der Java-Datei oder <code>null</code>.
+	 * @param target
+	 *            Die PNG-Datei, die SVG-Datei oder die Datei im Binärformat.
+	 * @param format
+	 *            Das Ausgabeformat eines PNG.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht gelesen oder das Bild nicht geschrieben werden konnte.
+	 */
+	private static void render(final JavaSourceToBoxConverter converter, final File file, final char[] text, final File target, final Format format) throws IOException {
+		final DimensionSink dimension = new DimensionSink();
+		
+		Console.convert(converter, file, text, dimension);
+		
+		if (BinaryBoxGenerator.accepts(target)) {
+			Console.render(converter, file, text, new BinaryBoxGenerator(target, dimension.getDimension(), target.getName().endsWith(BinaryBoxGenerator.DEFLATE_SUFFIX)));
+		} else if (target.getName().endsWith(SVGGenerator.SUFFIX)) {
+			Console.render(converter, file, text, new SVGGenerator(target, dimension.getDimension()));
+		} else {
+			Console.render(converter, file, text, new StreamingPNGGenerator(target, dimension.getDimension(), format));
+		}
+	}
+	
+	/**
+	 * Konvertiert eine Datei in einen Generator und schließt ihn.
+	 * 
+	 * @param <T>
+	 *            Der Typ des Generators.
+	 * @param converter
+	 *            Der Konverter.
+	 * @param file
+	 *            Die Java-Datei.
+	 * @param text
+	 *            Der bereits gelesene Inhalt der Java-Datei oder <code>null</code>.
+	 * @param generator
+	 *            Der Generator.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht gelesen oder nicht geschrieben werden konnte.
+	 */
+	private static <T extends BoxSink & Closeable> void render(final JavaSourceToBoxConverter converter, final File file, final char[] text, final T generator) throws IOException {
 		try {
+			Console.convert(converter, file, text, generator);
+		} finally {
+			generator.close();
+		}
+	}
+	
+	/**
+	 * Konvertiert den bereits gelesenen Inhalt einer Datei oder, falls keiner vorliegt, die Datei selbst.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param file
+	 *            Die Java-Datei.
+	 * @param text
+	 *            Der bereits gelesene Inhalt der Java-Datei oder <code>null</code>.
+	 * @param sink
+	 *            Der Empfänger der Boxen.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht gelesen werden konnte.
+	 */
+	private static void convert(final JavaSourceToBoxConverter converter, final File file, final char[] text, final BoxSink sink) throws IOException {
+		if (text == null) {
+			converter.convert(file, sink);
+		} else {
+			converter.convert(text, sink);
+		}
+	}
+	
+	/**
+	 * Konvertiert mehrere Dateien und ganze Verzeichnisbäume parallel. Ist ein Ausgabeverzeichnis angegeben, wird die
+	 * Verzeichnisstruktur darunter nachgebildet, sonst landen die Bilder neben den Java-Dateien.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param inFilenames
+	 *            Die einzelnen Java-Dateien.
+	 * @param directories
+	 *            Die Verzeichnisse.
+	 * @param outDirectory
+	 *            Das Ausgabeverzeichnis oder <code>null</code>.
+	 * @param threads
+	 *            Die Anzahl der Threads zum Zerlegen und Zeichnen.
+	 * @param ioConcurrency
+	 *            Die Anzahl der gleichzeitigen Zugriffe beim Lesen und beim Schreiben.
+	 * @param format
+	 *            Das Ausgabeformat.
+	 * @param scale
+	 *            Zeichen (Breite) und Zeilen (Höhe) je Pixel eines verkleinerten Bildes oder <code>null</code> für volle
+	 *            Größe.
+	 * @param cache
+	 *            Der Cache der fertigen Bilder oder <code>null</code>.
+	 * @param metricsFilename
+	 *            Die Datei für die Zusammenfassung der Messwerte als JSON oder <code>null</code>.
+	 * @param slowest
+	 *            Die Anzahl der langsamsten Dateien in den Messwerten.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Zusammenfassung nicht geschrieben werden konnte.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn die Verarbeitung unterbrochen wurde.
+	 */
+	private static void convertBatch(final JavaSourceToBoxConverter converter, final List<String> inFilenames, final List<String> directories, final String outDirectory, final int threads, final int ioConcurrency, final Format format, final Dimension scale, final RenderCache cache, final String metricsFilename, final int slowest) throws IOException, InterruptedException {
+		final BatchPipeline pipeline = new BatchPipeline(converter, threads, ioConcurrency, format, cache, slowest);
+		
+		if (scale != null) {
+			pipeline.setScale(scale.width, scale.height);
+		}
+		
+		final File outRoot = outDirectory == null ? null : new File(outDirectory);
+		final long start = System.currentTimeMillis();
+		// Erst alle Ziele sammeln, damit sich überschneidende Eingaben auffallen, bevor etwas geschrieben wird.
+		final Map<File, File> jobs = new LinkedHashMap<File, File>();
+		
+		for (final String inFilename : inFilenames) {
 			final File file = new File(inFilename);
 			
-			if (file.exists() && file.isFile() && file.getName().endsWith(".java")) {
-				final JavaSourceToBoxConverter converter = new JavaSourceToBoxConverter();
-				final BoxCollection boxes = converter.convert(file);
-				final PNGGenerator generator = new PNGGenerator();
+			if (file.isFile() && file.getName().endsWith(Console.JAVA_SUFFIX)) {
+				Console.addJob(jobs, file, Console.target(file, file.getAbsoluteFile().getParentFile(), outRoot));
+			} else {
+				Console.LOG.info("Input file is not a Java file: " + inFilename);
+			}
+		}
+		
+		for (final String directory : directories) {
+			final File root = new File(directory);
+			
+			if (root.isDirectory()) {
+				Console.walk(jobs, root, root, outRoot);
+			} else {
+				Console.LOG.info("Input is not a directory: " + directory);
+			}
+		}
+		
+		pipeline.start();
+		
+		for (final Map.Entry<File, File> job : jobs.entrySet()) {
+			pipeline.submit(job.getValue(), job.getKey());
+		}
+		
+		pipeline.finish();
+		
+		Console.LOG.info(String.format("%d images written, %d failed in %d ms.", pipeline.getSucceeded(), pipeline.getFailed(), System.currentTimeMillis() - start));
+		
+		if (metricsFilename != null) {
+			pipeline.getMetrics().writeJson(new File(metricsFilename));
+		}
+	}
+	
+	/**
+	 * Fasst alle Java-Dateien zu einem gekachelten Gesamtbild zusammen, siehe {@link AtlasGenerator}. Im Index stehen
+	 * die Dateien mit ihrem Pfad relativ zum Elternverzeichnis des jeweiligen Startverzeichnisses.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param inFilenames
+	 *            Die einzelnen Java-Dateien.
+	 * @param directories
+	 *            Die Verzeichnisse.
+	 * @param atlasDirectory
+	 *            Das Ausgabeverzeichnis für Kacheln und Index.
+	 * @param tileSize
+	 *            Die Kantenlänge einer Kachel.
+	 * @param threads
+	 *            Die Anzahl der Threads.
+	 * @throws IOException
+	 *             Wird geworfen, wenn eine Datei nicht gelesen oder geschrieben werden konnte.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn die Verarbeitung unterbrochen wurde.
+	 */
+	private static void convertAtlas(final JavaSourceToBoxConverter converter, final List<String> inFilenames, final List<String> directories, final File atlasDirectory, final int tileSize, final int threads) throws IOException, InterruptedException {
+		final AtlasGenerator atlas = new AtlasGenerator(converter, atlasDirectory, tileSize, threads);
+		final long start = System.currentTimeMillis();
+		
+		BatchPipeline.createDirectory(atlasDirectory);
+		
+		for (final String inFilename : inFilenames) {
+			final File file = new File(inFilename);
+			
+			if (file.isFile() && file.getName().endsWith(Console.JAVA_SUFFIX)) {
+				atlas.add(file, file.getPath());
+			} else {
+				Console.LOG.info("Input file is not a Java file: " + inFilename);
+			}
+		}
+		
+		for (final String directory : directories) {
+			final File root = new File(directory);
+			
+			if (root.isDirectory()) {
+				Console.collect(atlas, root.getAbsoluteFile().getParentFile(), root);
+			} else {
+				Console.LOG.info("Input is not a directory: " + directory);
+			}
+		}
+		
+		atlas.generate();
+		
+		Console.LOG.info(String.format("Atlas of %d files, %dx%d pixels, written in %d ms.", atlas.getPlacements().size(), atlas.getDimension().width, atlas.getDimension().height, System.currentTimeMillis() - start));
+	}
+	
+	/**
+	 * Durchsucht ein Verzeichnis rekursiv nach Java-Dateien und fügt sie dem Gesamtbild hinzu.
+	 * 
+	 * @param atlas
+	 *            Das Gesamtbild.
+	 * @param base
+	 *            Das Verzeichnis, relativ zu dem die Namen gebildet werden, oder <code>null</code>.
+	 * @param directory
+	 *            Das aktuelle Verzeichnis.
+	 */
+	private static void collect(final AtlasGenerator atlas, final File base, final File directory) {
+		final File[] files = directory.listFiles();
+		
+		if (files == null) {
+			return;
+		}
+		
+		for (final File file : files) {
+			// Symbolische Links auf Verzeichnisse können Zyklen bilden.
+			if (file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
+				Console.collect(atlas, base, file);
+			} else if (file.getName().endsWith(Console.JAVA_SUFFIX)) {
+				final String path = file.getAbsolutePath();
+				final String name = base == null ? path : path.substring(base.getAbsolutePath().length() + 1);
+				
+				atlas.add(file, name.replace(File.separatorChar, '/'));
+			}
+		}
+	}
+	
+	/**
+	 * Beobachtet die Java-Dateien und Verzeichnisse und zeichnet geänderte Dateien neu, bis das Programm beendet wird.
+	 * Die Bilder landen an derselben Stelle wie bei der Konvertierung davor.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param inFilenames
+	 *            Die einzelnen Java-Dateien.
+	 * @param directories
+	 *            Die Verzeichnisse.
+	 * @param outFilename
+	 *            Die PNG-Datei bzw. das Ausgabeverzeichnis oder <code>null</code>.
+	 * @param threads
+	 *            Die Anzahl der Threads zum Zeichnen.
+	 * @param format
+	 *            Das Ausgabeformat.
+	 * @param scale
+	 *            Zeichen (Breite) und Zeilen (Höhe) je Pixel eines verkleinerten Bildes oder <code>null</code> für volle
+	 *            Größe.
+	 * @param cache
+	 *            Der Cache der fertigen Bilder oder <code>null</code>.
+	 * @param debounce
+	 *            Die Ruhezeit in Millisekunden, nach der gesammelte Änderungen gezeichnet werden.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht beobachtet werden kann.
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn die Beobachtung unterbrochen wurde.
+	 */
+	private static void watch(final JavaSourceToBoxConverter converter, final List<String> inFilenames, final List<String> directories, final String outFilename, final int threads, final Format format, final Dimension scale, final RenderCache cache, final int debounce) throws IOException, InterruptedException {
+		final boolean single = directories.isEmpty() && (inFilenames.size() == 1);
+		final File outRoot = (single || (outFilename == null)) ? null : new File(outFilename);
+		final SourceWatcher watcher = new SourceWatcher(converter, format, scale, cache, outRoot, threads, debounce);
+		
+		try {
+			for (final String inFilename : inFilenames) {
+				final File file = new File(inFilename);
 				
-				generator.setFilename(outFilename);
-				generator.generate(boxes);
-				generator.save();
+				if (single && (outFilename != null)) {
+					watcher.watchFile(file, new File(outFilename));
+				} else {
+					watcher.watchFile(file, Console.target(file, file.getAbsoluteFile().getParentFile(), outRoot));
+				}
+			}
+			
+			for (final String directory : directories) {
+				final File root = new File(directory);
 				
-				// for (final Box box : boxes) {
-				// Console.LOG.info(box.toString());
-				// }
-			} else {
-				Console.LOG.info("Input file is not a Java file.");
+				if (root.isDirectory()) {
+					watcher.watchTree(root);
+				}
 			}
-		} catch (final Exception e) {
-			Console.LOG.log(Level.SEVERE, "Programmfehler!", e);
+			
+			Console.LOG.info("Watching for changes...");
+			
+			watcher.run();
+		} finally {
+			watcher.close();
+		}
+	}
+	
+	/**
+	 * Durchsucht ein Verzeichnis rekursiv nach Java-Dateien und sammelt sie mit ihrer PNG-Datei. Symbolische Links auf
+	 * Verzeichnisse werden nicht verfolgt, da sie Zyklen bilden können.
+	 * 
+	 * @param jobs
+	 *            Die PNG-Dateien mit ihrer Java-Datei.
+	 * @param root
+	 *            Das Startverzeichnis.
+	 * @param directory
+	 *            Das aktuelle Verzeichnis.
+	 * @param outRoot
+	 *            Das Ausgabeverzeichnis oder <code>null</code>.
+	 * @throws IOException
+	 *             Wird geworfen, wenn zwei Java-Dateien auf dieselbe PNG-Datei führen.
+	 */
+	private static void walk(final Map<File, File> jobs, final File root, final File directory, final File outRoot) throws IOException {
+		final File[] files = directory.listFiles();
+		
+		if (files == null) {
+			return;
 		}
+		
+		for (final File file : files) {
+			if (file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
+				Console.walk(jobs, root, file, outRoot);
+			} else if (file.isFile() && file.getName().endsWith(Console.JAVA_SUFFIX)) {
+				Console.addJob(jobs, file, Console.target(file, root, outRoot));
+			}
+		}
+	}
+	
+	/**
+	 * Merkt eine Java-Datei mit ihrer PNG-Datei vor. Dieselbe Java-Datei wird nur einmal gezeichnet.
+	 * 
+	 * @param jobs
+	 *            Die PNG-Dateien mit ihrer Java-Datei.
+	 * @param source
+	 *            Die Java-Datei.
+	 * @param target
+	 *            Die PNG-Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn bereits eine andere Java-Datei auf dieselbe PNG-Datei führt, z. B. gleich
+	 *             benannte Dateien aus mehreren Startverzeichnissen.
+	 */
+	private static void addJob(final Map<File, File> jobs, final File source, final File target) throws IOException {
+		final File key = target.getAbsoluteFile();
+		final File previous = jobs.put(key, source);
+		
+		if ((previous != null) && !previous.getAbsoluteFile().equals(source.getAbsoluteFile())) {
+			throw new IOException("Both " + previous + " and " + source + " would be written to " + target);
+		}
+	}
+	
+	/**
+	 * Ermittelt die PNG-Datei zu einer Java-Datei.
+	 * 
+	 * @param file
+	 *            Die Java-Datei.
+	 * @param root
+	 *            Das Startverzeichnis, relativ zu dem die Struktur nachgebildet wird.
+	 * @param outRoot
+	 *            Das Ausgabeverzeichnis oder <code>null</code>.
+	 * @return Die PNG-Datei.
+	 */
+	static File target(final File file, final File root, final File outRoot) {
+		if (outRoot == null) {
+			return new File(file.getPath() + Console.PNG_SUFFIX);
+		}
+		
+		final String rootPath = root == null ? "" : root.getAbsolutePath();
+		String relative = file.getAbsolutePath().substring(rootPath.length());
+		
+		if (relative.startsWith(File.separator)) {
+			relative = relative.substring(1);
+		}
+		
+		return new File(outRoot, relative + Console.PNG_SUFFIX);
+	}
+	
+	/**
+	 * Meldet ein ungültiges Argument mit der Kurzhilfe und beendet das Programm.
+	 * 
+	 * @param message
+	 *            Die Meldung.
+	 */
+	private static void fail(final String message) {
+		Console.LOG.severe(message + "\n" + Console.USAGE);
+		
+		System.exit(Console.SYSTEM_EXIT_ERROR);
+	}
+	
+	/**
+	 * Liest eine ganze Zahl, die nicht kleiner als das Minimum sein darf. Ein ungültiger Wert beendet das Programm.
+	 * 
+	 * @param key
+	 *            Der Name des Arguments.
+	 * @param value
+	 *            Der Wert.
+	 * @param minimum
+	 *            Das Minimum.
+	 * @return Die Zahl.
+	 */
+	private static int parseNumber(final String key, final String value, final int minimum) {
+		try {
+			final int number = Integer.parseInt(value);
+			
+			if (number >= minimum) {
+				return number;
+			}
+		} catch (final NumberFormatException e) { // NOPMD
+			// Wird unten gemeldet.
+		}
+		
+		Console.fail("Invalid " + key + ": " + value);
+		
+		return minimum;
+	}
+	
+	/**
+	 * Liest die Verkleinerung im Format <code>N</code> oder <code>NxM</code>.
+	 * 
+	 * @param value
+	 *            Zeichen je Pixel und optional Zeilen je Pixel, ohne Angabe gleich viele.
+	 * @return Die Verkleinerung oder <code>null</code> für volle Größe (<code>1x1</code> ist bereits kleiner als die
+	 *         volle Größe, da ein Zeichen dort {@link de.igeri.javaxray.java2box.Box#CHAR_WIDTH} Pixel breit ist).
+	 */
+	private static Dimension parseScale(final String value) {
+		final Matcher matcher = Console.SCALE_PATTERN.matcher(value);
+		
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("Invalid scale: " + value);
+		}
+		
+		final int chars = Integer.parseInt(matcher.group(1));
+		final int lines = matcher.group(2) == null ? chars : Integer.parseInt(matcher.group(2));
+		
+		return (chars == 0) || (lines == 0) ? null : new Dimension(chars, lines);
 	}
 	
 	/**
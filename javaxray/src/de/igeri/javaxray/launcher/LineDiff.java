@@ -0,0 +1,270 @@
+package de.igeri.javaxray.launcher;
+
+import java.util.Arrays;
+
+/**
+ * Vergleicht zwei Folgen von Zeilen nach dem Verfahren von Myers ("An O(ND) Difference Algorithm and Its Variations")
+ * in der Variante mit linearem Speicher: Statt alle Fronten aufzuheben, wird von beiden Enden gleichzeitig gesucht, bis
+ * sich die Pfade in der mittleren Schlange treffen. An deren Anfang wird die Aufgabe geteilt und beide Hälften werden
+ * rekursiv verglichen. Gemeinsame Anfänge und Enden werden vorher abgeschnitten, bei großen, fast gleichen Dateien
+ * bleibt also nur wenig zu suchen.
+ * <p>
+ * Wie bei git ist der Aufwand einer Suche begrenzt: Treffen sich die Pfade nicht nach {@link #MIN_COST} Schritten
+ * (bzw. der Wurzel der Länge bei großen Ausschnitten), wird an dem am weitesten vorgedrungenen Punkt geteilt. Das
+ * Ergebnis ist dann nicht mehr unbedingt minimal, bei vollständig neu geschriebenen Dateien bleibt die Laufzeit aber
+ * fast linear statt quadratisch.
+ * <p>
+ * Die Zeilen werden als Zahlen verglichen, gleiche Zeilen müssen dieselbe Zahl haben.
+ * 
+ * @author smolli
+ */
+final class LineDiff {
+	
+	/** Die Mindestanzahl der Schritte einer Suche, bevor sie abgebrochen wird. */
+	static final int MIN_COST = 256;
+	
+	/** Die alten Zeilen. */
+	private final int[] oldLines;
+	/** Die neuen Zeilen. */
+	private final int[] newLines;
+	/** Markiert die entfernten alten Zeilen. */
+	private final boolean[] removed;
+	/** Markiert die hinzugefügten neuen Zeilen. */
+	private final boolean[] added;
+	
+	/**
+	 * Ctor. Vergleicht die Zeilen.
+	 * 
+	 * @param oldLines
+	 *            Die alten Zeilen.
+	 * @param newLines
+	 *            Die neuen Zeilen.
+	 */
+	LineDiff(final int[] oldLines, final int[] newLines) {
+		this.oldLines = oldLines;
+		this.newLines = newLines;
+		this.removed = new boolean[oldLines.length];
+		this.added = new boolean[newLines.length];
+		
+		this.compare(0, oldLines.length, 0, newLines.length);
+	}
+	
+	/**
+	 * Gibt an, ob eine alte Zeile entfernt wurde.
+	 * 
+	 * @param line
+	 *            Die Nummer der alten Zeile.
+	 * @return Gibt <code>true</code> zurück, wenn die Zeile entfernt wurde.
+	 */
+	boolean isRemoved(final int line) {
+		return this.removed[line];
+	}
+	
+	/**
+	 * Gibt an, ob eine neue Zeile hinzugefügt wurde.
+	 * 
+	 * @param line
+	 *            Die Nummer der neuen Zeile.
+	 * @return Gibt <code>true</code> zurück, wenn die Zeile hinzugefügt wurde.
+	 */
+	boolean isAdded(final int line) {
+		return this.added[line];
+	}
+	
+	/**
+	 * Vergleicht zwei Ausschnitte.
+	 * 
+	 * @param oldStart
+	 *            Der Beginn in den alten Zeilen.
+	 * @param oldEnd
+	 *            Das Ende in den alten Zeilen (exklusiv).
+	 * @param newStart
+	 *            Der Beginn in den neuen Zeilen.
+	 * @param newEnd
+	 *            Das Ende in den neuen Zeilen (exklusiv).
+	 */
+	private void compare(final int oldStart, final int oldEnd, final int newStart, final int newEnd) {
+		int oldFrom = oldStart;
+		int newFrom = newStart;
+		int oldTo = oldEnd;
+		int newTo = newEnd;
+		
+		while ((oldFrom < oldTo) && (newFrom < newTo) && (this.oldLines[oldFrom] == this.newLines[newFrom])) {
+			oldFrom++;
+			newFrom++;
+		}
+		
+		while ((oldFrom < oldTo) && (newFrom < newTo) && (this.oldLines[oldTo - 1] == this.newLines[newTo - 1])) {
+			oldTo--;
+			newTo--;
+		}
+		
+		if (oldFrom == oldTo) {
+			Arrays.fill(this.added, newFrom, newTo, true);
+		} else if (newFrom == newTo) {
+			Arrays.fill(this.removed, oldFrom, oldTo, true);
+		} else {
+			this.bisect(oldFrom, oldTo, newFrom, newTo);
+		}
+	}
+	
+	/**
+	 * Sucht die mittlere Schlange zweier Ausschnitte ohne gemeinsamen Anfang und ohne gemeinsames Ende und vergleicht die
+	 * beiden Hälften davor und dahinter. Wird die Suche zu teuer, wird stattdessen an dem am weitesten
+	 * vorgedrungenen Punkt der Vorwärtssuche geteilt.
+	 * 
+	 * @param oldStart
+	 *            Der Beginn in den alten Zeilen.
+	 * @param oldEnd
+	 *            Das Ende in den alten Zeilen (exklusiv).
+	 * @param newStart
+	 *            Der Beginn in den neuen Zeilen.
+	 * @param newEnd
+	 *            Das Ende in den neuen Zeilen (exklusiv).
+	 */
+	private void bisect(final int oldStart, final int oldEnd, final int newStart, final int newEnd) {
+		final int oldLength = oldEnd - oldStart;
+		final int newLength = newEnd - newStart;
+		final int maxD = (oldLength + newLength + 1) / 2;
+		final int maxCost = Math.max(LineDiff.MIN_COST, (int) Math.sqrt(oldLength + newLength));
+		final int offset = Math.min(maxD, maxCost) + 1;
+		final int[] forward = new int[2 * offset + 1];
+		final int[] backward = new int[2 * offset + 1];
+		final int delta = oldLength - newLength;
+		final boolean odd = (delta & 1) != 0;
+		// Diagonalen außerhalb des Ausschnitts werden an beiden Rändern übersprungen.
+		int forwardStart = 0;
+		int forwardEnd = 0;
+		int backwardStart = 0;
+		int backwardEnd = 0;
+		
+		Arrays.fill(forward, -1);
+		Arrays.fill(backward, -1);
+		forward[offset + 1] = 0;
+		backward[offset + 1] = 0;
+		
+		for (int d = 0; d < maxD; d++) {
+			if (d == maxCost) {
+				this.splitFurthest(oldStart, oldEnd, newStart, newEnd, forward, offset);
+				
+				return;
+			}
+			
+			for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+				final int index = offset + k;
+				int x = (k == -d) || ((k != d) && (forward[index - 1] < forward[index + 1])) ? forward[index + 1] : forward[index - 1] + 1;
+				int y = x - k;
+				
+				while ((x < oldLength) && (y < newLength) && (this.oldLines[oldStart + x] == this.newLines[newStart + y])) {
+					x++;
+					y++;
+				}
+				
+				forward[index] = x;
+				
+				if (x > oldLength) {
+					forwardEnd += 2;
+				} else if (y > newLength) {
+					forwardStart += 2;
+				} else if (odd) {
+					final int other = offset + delta - k;
+					
+					if ((other >= 0) && (other < backward.length) && (backward[other] != -1) && (x >= oldLength - backward[other])) {
+						this.split(oldStart, oldEnd, newStart, newEnd, oldStart + x, newStart + y);
+						
+						return;
+					}
+				}
+			}
+			
+			for (int k = -d + backwardStart; k <= d - backwardEnd; k += 2) {
+				final int index = offset + k;
+				int x = (k == -d) || ((k != d) && (backward[index - 1] < backward[index + 1])) ? backward[index + 1] : backward[index - 1] + 1;
+				int y = x - k;
+				
+				while ((x < oldLength) && (y < newLength) && (this.oldLines[oldEnd - x - 1] == this.newLines[newEnd - y - 1])) {
+					x++;
+					y++;
+				}
+				
+				backward[index] = x;
+				
+				if (x > oldLength) {
+					backwardEnd += 2;
+				} else if (y > newLength) {
+					backwardStart += 2;
+				} else if (!odd) {
+					final int other = offset + delta - k;
+					
+					if ((other >= 0) && (other < forward.length) && (forward[other] != -1) && (forward[other] >= oldLength - x)) {
+						final int forwardX = forward[other];
+						
+						this.split(oldStart, oldEnd, newStart, newEnd, oldStart + forwardX, newStart + forwardX - (other - offset));
+						
+						return;
+					}
+				}
+			}
+		}
+		
+		// Keine gemeinsame Zeile.
+		Arrays.fill(this.removed, oldStart, oldEnd, true);
+		Arrays.fill(this.added, newStart, newEnd, true);
+	}
+	
+	/**
+	 * Teilt an dem Punkt der Vorwärtssuche, der am weitesten vom Anfang entfernt ist. Der Pfad dorthin ist kürzer als die
+	 * Begrenzung, die vordere Hälfte wird also vollständig verglichen; die hintere ist kleiner als der Ausschnitt.
+	 * 
+	 * @param oldStart
+	 *            Der Beginn in den alten Zeilen.
+	 * @param oldEnd
+	 *            Das Ende in den alten Zeilen (exklusiv).
+	 * @param newStart
+	 *            Der Beginn in den neuen Zeilen.
+	 * @param newEnd
+	 *            Das Ende in den neuen Zeilen (exklusiv).
+	 * @param forward
+	 *            Die Endpunkte der Vorwärtssuche je Diagonale.
+	 * @param offset
+	 *            Der Index der Diagonale <code>0</code>.
+	 */
+	private void splitFurthest(final int oldStart, final int oldEnd, final int newStart, final int newEnd, final int[] forward, final int offset) {
+		int bestX = 0;
+		int bestY = 0;
+		
+		for (int index = 0; index < forward.length; index++) {
+			final int x = forward[index];
+			final int y = x - (index - offset);
+			
+			if ((x >= 0) && (y >= 0) && (x <= oldEnd - oldStart) && (y <= newEnd - newStart) && (x + y > bestX + bestY)) {
+				bestX = x;
+				bestY = y;
+			}
+		}
+		
+		this.split(oldStart, oldEnd, newStart, newEnd, oldStart + bestX, newStart + bestY);
+	}
+	
+	/**
+	 * Vergleicht die beiden Hälften vor und hinter einem Punkt.
+	 * 
+	 * @param oldStart
+	 *            Der Beginn in den alten Zeilen.
+	 * @param oldEnd
+	 *            Das Ende in den alten Zeilen (exklusiv).
+	 * @param newStart
+	 *            Der Beginn in den neuen Zeilen.
+	 * @param newEnd
+	 *            Das Ende in den neuen Zeilen (exklusiv).
+	 * @param oldSplit
+	 *            Der Punkt in den alten Zeilen.
+	 * @param newSplit
+	 *            Der Punkt in den neuen Zeilen.
+	 */
+	private void split(final int oldStart, final int oldEnd, final int newStart, final int newEnd, final int oldSplit, final int newSplit) {
+		this.compare(oldStart, oldSplit, newStart, newSplit);
+		this.compare(oldSplit, oldEnd, newSplit, newEnd);
+	}
+	
+}
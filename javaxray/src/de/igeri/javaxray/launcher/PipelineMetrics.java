@@ -0,0 +1,444 @@
+package de.igeri.javaxray.launcher;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.igeri.javaxray.generator.JsonStrings;
+
+/**
+ * Sammelt Zeiten und Mengen je Stufe und je Datei der {@link BatchPipeline}. Jede Stufe misst einmal je Datei und
+ * addiert auf atomare Zähler, die Messung kann also immer eingeschaltet bleiben. Von den einzelnen Dateien werden nur
+ * die langsamsten behalten.
+ * 
+ * @author smolli
+ */
+final class PipelineMetrics implements PipelineMetricsMBean {
+	
+	/** Die Stufe zum Lesen. */
+	static final int READ = 0;
+	/** Die Stufe zum Zerlegen. */
+	static final int CONVERT = 1;
+	/** Die Stufe zum Zeichnen. */
+	static final int RENDER = 2;
+	/** Die Stufe zum Schreiben. */
+	static final int WRITE = 3;
+	/** Der Name im JMX-Server. */
+	static final String OBJECT_NAME = "de.igeri.javaxray:type=BatchPipeline";
+	
+	/** Logger. */
+	private static final Logger LOG = Logger.getAnonymousLogger();
+	/** Die Namen der Stufen. */
+	private static final String[] STAGES = { "read", "convert", "render", "write" };
+	/** Die Einheiten des Durchsatzes je Stufe. */
+	private static final String[] UNITS = { "bytes/s", "chars/s", "pixels/s", "bytes/s" };
+	/** Nanosekunden je Millisekunde. */
+	private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+	/** Nanosekunden je Sekunde. */
+	private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+	
+	/** Die Arbeitszeit je Stufe in Nanosekunden. */
+	private final AtomicLong[] stageNanos = new AtomicLong[PipelineMetrics.STAGES.length];
+	/** Anzahl der fertigen Bilder. */
+	private final AtomicInteger files = new AtomicInteger();
+	/** Anzahl der Treffer im Cache. */
+	private final AtomicInteger cached = new AtomicInteger();
+	/** Anzahl der fehlgeschlagenen Dateien. */
+	private final AtomicInteger failed = new AtomicInteger();
+	/** Die gelesenen Bytes. */
+	private final AtomicLong bytesRead = new AtomicLong();
+	/** Die zerlegten Zeichen. */
+	private final AtomicLong chars = new AtomicLong();
+	/** Die erzeugten Boxen. */
+	private final AtomicLong boxes = new AtomicLong();
+	/** Die gezeichneten Pixel. */
+	private final AtomicLong pixels = new AtomicLong();
+	/** Die geschriebenen Bytes. */
+	private final AtomicLong encodedBytes = new AtomicLong();
+	/** Die Anzahl der langsamsten Dateien, die behalten werden. */
+	private final int slowest;
+	/** Die langsamsten Dateien, die schnellste davon vorne. */
+	private final PriorityQueue<FileMetrics> slowestFiles;
+	/** Der Beginn der Verarbeitung. */
+	private final long start = System.nanoTime();
+	/** Der Name im JMX-Server oder <code>null</code>, solange nicht angemeldet. */
+	private ObjectName registered;
+	
+	/**
+	 * Die Messwerte einer einzelnen Datei.
+	 * 
+	 * @author smolli
+	 */
+	static final class FileMetrics {
+		
+		/** Die Java-Datei. */
+		private final File source;
+		/** Die Arbeitszeit je Stufe in Nanosekunden. */
+		private final long[] nanos = new long[PipelineMetrics.STAGES.length];
+		/** Die gelesenen Bytes. */
+		private long bytesRead;
+		/** Die zerlegten Zeichen. */
+		private long chars;
+		/** Die erzeugten Boxen. */
+		private long boxes;
+		/** Die gezeichneten Pixel. */
+		private long pixels;
+		/** Die geschriebenen Bytes. */
+		private long encodedBytes;
+		/** Gibt an, ob das Bild aus dem Cache kam. */
+		private boolean cached;
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param source
+		 *            Die Java-Datei.
+		 */
+		FileMetrics(final File source) {
+			this.source = source;
+		}
+		
+		/**
+		 * Setzt die gelesenen Bytes und Zeichen.
+		 * 
+		 * @param bytes
+		 *            Die Anzahl der Bytes.
+		 * @param characters
+		 *            Die Anzahl der Zeichen.
+		 */
+		void setRead(final long bytes, final long characters) {
+			this.bytesRead = bytes;
+			this.chars = characters;
+		}
+		
+		/**
+		 * Setzt die Anzahl der erzeugten Boxen.
+		 * 
+		 * @param count
+		 *            Die Anzahl.
+		 */
+		void setBoxes(final long count) {
+			this.boxes = count;
+		}
+		
+		/**
+		 * Setzt die Anzahl der gezeichneten Pixel.
+		 * 
+		 * @param count
+		 *            Die Anzahl.
+		 */
+		void setPixels(final long count) {
+			this.pixels = count;
+		}
+		
+		/**
+		 * Setzt die Größe des geschriebenen Bildes.
+		 * 
+		 * @param bytes
+		 *            Die Größe in Bytes.
+		 */
+		void setEncodedBytes(final long bytes) {
+			this.encodedBytes = bytes;
+		}
+		
+		/**
+		 * Markiert das Bild als Treffer im Cache.
+		 */
+		void setCached() {
+			this.cached = true;
+		}
+		
+		/**
+		 * Gibt die Arbeitszeit über alle Stufen zurück.
+		 * 
+		 * @return Die Zeit in Nanosekunden.
+		 */
+		long getTotalNanos() {
+			long total = 0;
+			
+			for (final long value : this.nanos) {
+				total += value;
+			}
+			
+			return total;
+		}
+		
+	}
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param slowest
+	 *            Die Anzahl der langsamsten Dateien, die behalten werden.
+	 */
+	PipelineMetrics(final int slowest) {
+		this.slowest = slowest;
+		this.slowestFiles = new PriorityQueue<FileMetrics>(Math.max(slowest, 1), new Comparator<FileMetrics>() {
+			
+			@Override
+			public int compare(final FileMetrics o1, final FileMetrics o2) {
+				final long total1 = o1.getTotalNanos();
+				final long total2 = o2.getTotalNanos();
+				
+				return total1 < total2 ? -1 : (total1 == total2 ? 0 : 1);
+			}
+			
+		});
+		
+		for (int i = 0; i < this.stageNanos.length; i++) {
+			this.stageNanos[i] = new AtomicLong();
+		}
+	}
+	
+	/**
+	 * Meldet die Messwerte unter {@link #OBJECT_NAME} beim JMX-Server der Plattform an. Ist der Name schon vergeben,
+	 * wird nur gewarnt.
+	 */
+	void register() {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		
+		try {
+			final ObjectName name = new ObjectName(PipelineMetrics.OBJECT_NAME);
+			
+			server.registerMBean(this, name);
+			this.registered = name;
+		} catch (final JMException e) {
+			PipelineMetrics.LOG.log(Level.WARNING, "Cannot register " + PipelineMetrics.OBJECT_NAME, e);
+		}
+	}
+	
+	/**
+	 * Meldet die Messwerte beim JMX-Server wieder ab.
+	 */
+	void unregister() {
+		if (this.registered == null) {
+			return;
+		}
+		
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.registered);
+		} catch (final JMException e) {
+			PipelineMetrics.LOG.log(Level.WARNING, "Cannot unregister " + PipelineMetrics.OBJECT_NAME, e);
+		}
+		
+		this.registered = null;
+	}
+	
+	/**
+	 * Addiert die Arbeitszeit einer Stufe für eine Datei.
+	 * 
+	 * @param file
+	 *            Die Messwerte der Datei.
+	 * @param stage
+	 *            Die Stufe.
+	 * @param nanos
+	 *            Die Zeit in Nanosekunden.
+	 */
+	void addTime(final FileMetrics file, final int stage, final long nanos) {
+		file.nanos[stage] += nanos;
+		this.stageNanos[stage].addAndGet(nanos);
+	}
+	
+	/**
+	 * Übernimmt die Mengen einer fertigen Datei und merkt sie sich, wenn sie zu den langsamsten gehört.
+	 * 
+	 * @param file
+	 *            Die Messwerte der Datei.
+	 */
+	void complete(final FileMetrics file) {
+		this.files.incrementAndGet();
+		
+		if (file.cached) {
+			this.cached.incrementAndGet();
+		}
+		
+		this.bytesRead.addAndGet(file.bytesRead);
+		this.chars.addAndGet(file.chars);
+		this.boxes.addAndGet(file.boxes);
+		this.pixels.addAndGet(file.pixels);
+		this.encodedBytes.addAndGet(file.encodedBytes);
+		
+		if (this.slowest <= 0) {
+			return;
+		}
+		
+		synchronized (this.slowestFiles) {
+			this.slowestFiles.add(file);
+			
+			if (this.slowestFiles.size() > this.slowest) {
+				this.slowestFiles.poll();
+			}
+		}
+	}
+	
+	/**
+	 * Zählt eine fehlgeschlagene Datei.
+	 */
+	void fail() {
+		this.failed.incrementAndGet();
+	}
+	
+	@Override
+	public int getFiles() {
+		return this.files.get();
+	}
+	
+	@Override
+	public int getCached() {
+		return this.cached.get();
+	}
+	
+	@Override
+	public int getFailed() {
+		return this.failed.get();
+	}
+	
+	@Override
+	public long getBytesRead() {
+		return this.bytesRead.get();
+	}
+	
+	@Override
+	public long getCharsLexed() {
+		return this.chars.get();
+	}
+	
+	@Override
+	public long getBoxes() {
+		return this.boxes.get();
+	}
+	
+	@Override
+	public long getPixels() {
+		return this.pixels.get();
+	}
+	
+	@Override
+	public long getEncodedBytes() {
+		return this.encodedBytes.get();
+	}
+	
+	@Override
+	public String[] getStages() {
+		return PipelineMetrics.STAGES.clone();
+	}
+	
+	@Override
+	public long[] getStageMillis() {
+		final long[] result = new long[this.stageNanos.length];
+		
+		for (int i = 0; i < result.length; i++) {
+			result[i] = this.stageNanos[i].get() / PipelineMetrics.NANOS_PER_MILLI;
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public double[] getStageThroughput() {
+		final long[] amounts = { this.bytesRead.get(), this.chars.get(), this.pixels.get(), this.encodedBytes.get() };
+		final double[] result = new double[amounts.length];
+		
+		for (int i = 0; i < result.length; i++) {
+			final long nanos = this.stageNanos[i].get();
+			
+			result[i] = nanos == 0 ? 0 : amounts[i] * PipelineMetrics.NANOS_PER_SECOND / nanos;
+		}
+		
+		return result;
+	}
+	
+	@Override
+	public String[] getSlowestFiles() {
+		final List<FileMetrics> files = this.getSlowest();
+		final String[] result = new String[files.size()];
+		
+		for (int i = 0; i < result.length; i++) {
+			result[i] = files.get(i).source.getPath() + ": " + files.get(i).getTotalNanos() / PipelineMetrics.NANOS_PER_MILLI + " ms";
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Schreibt eine Zusammenfassung als JSON: die Summen, Zeit und Durchsatz je Stufe sowie die langsamsten Dateien mit
+	 * ihren Werten je Stufe.
+	 * 
+	 * @param file
+	 *            Die Zieldatei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht geschrieben werden konnte.
+	 */
+	void writeJson(final File file) throws IOException {
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		
+		try {
+			final long[] millis = this.getStageMillis();
+			final double[] throughput = this.getStageThroughput();
+			
+			writer.write(String.format(Locale.ROOT, "{\n  \"files\": %d,\n  \"cached\": %d,\n  \"failed\": %d,\n  \"wallMillis\": %d,\n", this.getFiles(), this.getCached(), this.getFailed(), (System.nanoTime() - this.start) / PipelineMetrics.NANOS_PER_MILLI));
+			writer.write(String.format(Locale.ROOT, "  \"bytesRead\": %d,\n  \"charsLexed\": %d,\n  \"boxes\": %d,\n  \"pixels\": %d,\n  \"encodedBytes\": %d,\n  \"stages\": [", this.getBytesRead(), this.getCharsLexed(), this.getBoxes(), this.getPixels(), this.getEncodedBytes()));
+			
+			for (int i = 0; i < PipelineMetrics.STAGES.length; i++) {
+				writer.write(String.format(Locale.ROOT, "%s\n    { \"name\": \"%s\", \"millis\": %d, \"throughput\": %.0f, \"unit\": \"%s\" }", i == 0 ? "" : ",", PipelineMetrics.STAGES[i], millis[i], throughput[i], PipelineMetrics.UNITS[i]));
+			}
+			
+			writer.write("\n  ],\n  \"slowest\": [");
+			
+			final List<FileMetrics> files = this.getSlowest();
+			
+			for (int i = 0; i < files.size(); i++) {
+				final FileMetrics metrics = files.get(i);
+				
+				writer.write(String.format(Locale.ROOT, "%s\n    { \"file\": %s, \"millis\": %.3f, \"cached\": %b, ", i == 0 ? "" : ",", JsonStrings.quote(metrics.source.getPath()), metrics.getTotalNanos() / (double) PipelineMetrics.NANOS_PER_MILLI, Boolean.valueOf(metrics.cached)));
+				
+				for (int stage = 0; stage < PipelineMetrics.STAGES.length; stage++) {
+					writer.write(String.format(Locale.ROOT, "\"%sMillis\": %.3f, ", PipelineMetrics.STAGES[stage], metrics.nanos[stage] / (double) PipelineMetrics.NANOS_PER_MILLI));
+				}
+				
+				writer.write(String.format(Locale.ROOT, "\"bytesRead\": %d, \"charsLexed\": %d, \"boxes\": %d, \"pixels\": %d, \"encodedBytes\": %d }", metrics.bytesRead, metrics.chars, metrics.boxes, metrics.pixels, metrics.encodedBytes));
+			}
+			
+			writer.write("\n  ]\n}\n");
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Gibt die langsamsten Dateien zurück.
+	 * 
+	 * @return Die Dateien, die langsamste zuerst.
+	 */
+	private List<FileMetrics> getSlowest() {
+		final List<FileMetrics> result;
+		
+		synchronized (this.slowestFiles) {
+			result = new ArrayList<FileMetrics>(this.slowestFiles);
+		}
+		
+		Collections.sort(result, Collections.reverseOrder(this.slowestFiles.comparator()));
+		
+		return result;
+	}
+	
+}
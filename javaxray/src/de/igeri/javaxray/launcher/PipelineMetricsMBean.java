@@ -0,0 +1,96 @@
+package de.igeri.javaxray.launcher;
+
+/**
+ * Die Messwerte einer laufenden Stapelverarbeitung über JMX. Die Zeiten einer Stufe sind die Summe der Arbeitszeit
+ * aller ihrer Threads, ohne die Wartezeit in den Warteschlangen.
+ * 
+ * @author smolli
+ */
+public interface PipelineMetricsMBean {
+	
+	/**
+	 * Gibt die Anzahl der fertigen Bilder zurück, einschließlich der Treffer im Cache.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	int getFiles();
+	
+	/**
+	 * Gibt die Anzahl der Bilder zurück, die aus dem Cache kamen.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	int getCached();
+	
+	/**
+	 * Gibt die Anzahl der fehlgeschlagenen Dateien zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	int getFailed();
+	
+	/**
+	 * Gibt die Anzahl der gelesenen Bytes zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	long getBytesRead();
+	
+	/**
+	 * Gibt die Anzahl der zerlegten Zeichen zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	long getCharsLexed();
+	
+	/**
+	 * Gibt die Anzahl der erzeugten Boxen zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	long getBoxes();
+	
+	/**
+	 * Gibt die Anzahl der gezeichneten Pixel zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	long getPixels();
+	
+	/**
+	 * Gibt die Größe der geschriebenen Bilder in Bytes zurück.
+	 * 
+	 * @return Die Größe.
+	 */
+	long getEncodedBytes();
+	
+	/**
+	 * Gibt die Namen der Stufen zurück.
+	 * 
+	 * @return Die Namen in Verarbeitungsreihenfolge.
+	 */
+	String[] getStages();
+	
+	/**
+	 * Gibt die Arbeitszeit je Stufe zurück.
+	 * 
+	 * @return Die Zeiten in Millisekunden in der Reihenfolge von {@link #getStages()}.
+	 */
+	long[] getStageMillis();
+	
+	/**
+	 * Gibt den Durchsatz je Stufe zurück: gelesene Bytes, zerlegte Zeichen, gezeichnete Pixel und geschriebene Bytes je
+	 * Sekunde Arbeitszeit.
+	 * 
+	 * @return Der Durchsatz in der Reihenfolge von {@link #getStages()}.
+	 */
+	double[] getStageThroughput();
+	
+	/**
+	 * Gibt die langsamsten Dateien mit ihrer Arbeitszeit über alle Stufen zurück.
+	 * 
+	 * @return Die Dateien, die langsamste zuerst.
+	 */
+	String[] getSlowestFiles();
+	
+}
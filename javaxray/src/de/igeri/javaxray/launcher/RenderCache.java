@@ -0,0 +1,301 @@
+package de.igeri.javaxray.launcher;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.igeri.javaxray.java2box.Box;
+
+/**
+ * Persistenter Cache für fertige Bilder. Ein Eintrag ist eine PNG-Datei im Cacheverzeichnis, deren Name aus dem Hash des
+ * Dateiinhalts und dem Hash der Einstellungen besteht. Bei einem Treffer wird die Java-Datei weder zerlegt noch
+ * gezeichnet.
+ * <p>
+ * Die Größe des Verzeichnisses ist beschränkt. Verdrängt wird der am längsten nicht benutzte Eintrag, wobei das
+ * Änderungsdatum der Datei als Zeitpunkt der letzten Benutzung dient. So überdauert die Reihenfolge einen Lauf ohne
+ * eigene Indexdatei.
+ * 
+ * @author smolli
+ */
+final class RenderCache {
+	
+	/** Die Version des Zeichnens. Muss erhöht werden, wenn sich die Bilder bei gleichen Einstellungen ändern. */
+	private static final int VERSION = 2;
+	/** Der Hashalgorithmus. */
+	private static final String ALGORITHM = "SHA-1";
+	/** Die Anzahl der Zeichen des Einstellungshashs im Namen. */
+	private static final int SETTINGS_LENGTH = 8;
+	/** Dateiendung der Einträge. */
+	private static final String SUFFIX = ".png";
+	/** Größe des Puffers zum Hashen. */
+	private static final int BUFFER_SIZE = 65536;
+	/** Basis der hexadezimalen Darstellung. */
+	private static final int HEX_RADIX = 16;
+	
+	/** Das Cacheverzeichnis. */
+	private final File directory;
+	/** Die maximale Größe des Verzeichnisses in Bytes. */
+	private final long maxBytes;
+	/** Der Hash der Einstellungen. */
+	private final String settingsHash;
+	/** Anzahl der Treffer. */
+	private final AtomicInteger hits = new AtomicInteger();
+	/** Anzahl der Fehlschläge. */
+	private final AtomicInteger misses = new AtomicInteger();
+	/** Anzahl der verdrängten Einträge. */
+	private final AtomicInteger evictions = new AtomicInteger();
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param directory
+	 *            Das Cacheverzeichnis. Es wird bei Bedarf angelegt.
+	 * @param maxBytes
+	 *            Die maximale Größe des Verzeichnisses in Bytes.
+	 * @param settings
+	 *            Alle Einstellungen, die das Bild beeinflussen, als Zeichenkette.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das Verzeichnis nicht angelegt werden konnte.
+	 */
+	RenderCache(final File directory, final long maxBytes, final String settings) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		
+		final String all = settings + ";version=" + RenderCache.VERSION + ";box=" + Box.CHAR_WIDTH + "x" + Box.LINE_HEIGHT + "+" + Box.BOX_GAP;
+		
+		this.settingsHash = RenderCache.toHex(RenderCache.digest().digest(all.getBytes("UTF-8"))).substring(0, RenderCache.SETTINGS_LENGTH);
+		
+		BatchPipeline.createDirectory(directory);
+	}
+	
+	/**
+	 * Berechnet den Schlüssel einer Java-Datei aus ihrem bereits gelesenen Inhalt und den Einstellungen. Die Datei muss
+	 * dafür nicht erneut gelesen werden.
+	 * 
+	 * @param text
+	 *            Die Zeichen der Java-Datei.
+	 * @return Der Schlüssel.
+	 */
+	String key(final char[] text) {
+		final MessageDigest digest = RenderCache.digest();
+		final byte[] buffer = new byte[RenderCache.BUFFER_SIZE];
+		int length = 0;
+		
+		for (final char c : text) {
+			if (length == buffer.length) {
+				digest.update(buffer, 0, length);
+				length = 0;
+			}
+			
+			buffer[length++] = (byte) (c >>> Byte.SIZE);
+			buffer[length++] = (byte) c;
+		}
+		
+		digest.update(buffer, 0, length);
+		
+		return RenderCache.toHex(digest.digest()) + "-" + this.settingsHash;
+	}
+	
+	/**
+	 * Stellt das Bild aus dem Cache her.
+	 * 
+	 * @param key
+	 *            Der Schlüssel.
+	 * @param target
+	 *            Die PNG-Datei.
+	 * @return Gibt <code>true</code> bei einem Treffer zurück.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das Bild nicht kopiert werden konnte.
+	 */
+	boolean restore(final String key, final File target) throws IOException {
+		final File entry = this.entry(key);
+		
+		if (!entry.isFile()) {
+			this.misses.incrementAndGet();
+			
+			return false;
+		}
+		
+		BatchPipeline.createDirectory(target.getAbsoluteFile().getParentFile());
+		RenderCache.copy(entry, target);
+		
+		// Das Änderungsdatum dient als Zeitpunkt der letzten Benutzung.
+		entry.setLastModified(System.currentTimeMillis());
+		this.hits.incrementAndGet();
+		
+		return true;
+	}
+	
+	/**
+	 * Legt ein fertiges Bild im Cache ab. Geschrieben wird in eine temporäre Datei, die dann umbenannt wird, sodass
+	 * parallele Läufe nie einen halben Eintrag sehen.
+	 * 
+	 * @param key
+	 *            Der Schlüssel.
+	 * @param target
+	 *            Die fertige PNG-Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das Bild nicht kopiert werden konnte.
+	 */
+	void store(final String key, final File target) throws IOException {
+		final File entry = this.entry(key);
+		
+		if (entry.isFile()) {
+			return;
+		}
+		
+		final File temporary = File.createTempFile("entry", ".tmp", this.directory);
+		
+		try {
+			RenderCache.copy(target, temporary);
+			
+			if (!temporary.renameTo(entry) && !entry.isFile()) {
+				throw new IOException("Cannot rename " + temporary + " to " + entry);
+			}
+		} finally {
+			if (temporary.exists() && !temporary.delete()) {
+				temporary.deleteOnExit();
+			}
+		}
+	}
+	
+	/**
+	 * Verdrängt die am längsten nicht benutzten Einträge, bis das Verzeichnis höchstens die maximale Größe hat.
+	 */
+	void evict() {
+		final File[] entries = this.directory.listFiles();
+		
+		if (entries == null) {
+			return;
+		}
+		
+		final long[] modified = new long[entries.length];
+		long total = 0;
+		
+		for (int i = 0; i < entries.length; i++) {
+			modified[i] = entries[i].lastModified();
+			total += entries[i].length();
+		}
+		
+		final Integer[] order = new Integer[entries.length];
+		
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		
+		// Das Änderungsdatum nur einmal lesen, damit sich die Reihenfolge beim Sortieren nicht ändert.
+		Arrays.sort(order, new Comparator<Integer>() {
+			
+			@Override
+			public int compare(final Integer left, final Integer right) {
+				return Long.valueOf(modified[left]).compareTo(modified[right]);
+			}
+			
+		});
+		
+		for (int i = 0; (i < order.length) && (total > this.maxBytes); i++) {
+			final File entry = entries[order[i]];
+			
+			if (entry.getName().endsWith(RenderCache.SUFFIX)) {
+				final long length = entry.length();
+				
+				if (entry.delete()) {
+					total -= length;
+					this.evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gibt eine Zusammenfassung der Treffer und Fehlschläge zurück.
+	 * 
+	 * @return Die Zusammenfassung.
+	 */
+	String getSummary() {
+		return String.format("Cache: %d hits, %d misses, %d entries evicted.", this.hits.get(), this.misses.get(), this.evictions.get());
+	}
+	
+	/**
+	 * Gibt die Datei eines Eintrags zurück.
+	 * 
+	 * @param key
+	 *            Der Schlüssel.
+	 * @return Die Datei.
+	 */
+	private File entry(final String key) {
+		return new File(this.directory, key + RenderCache.SUFFIX);
+	}
+	
+	/**
+	 * Kopiert eine Datei.
+	 * 
+	 * @param from
+	 *            Die Quelle.
+	 * @param to
+	 *            Das Ziel.
+	 * @throws IOException
+	 *             Wird geworfen, wenn nicht kopiert werden konnte.
+	 */
+	private static void copy(final File from, final File to) throws IOException {
+		final FileInputStream in = new FileInputStream(from);
+		
+		try {
+			final FileOutputStream out = new FileOutputStream(to);
+			
+			try {
+				final FileChannel source = in.getChannel();
+				final long size = source.size();
+				long position = 0;
+				
+				while (position < size) {
+					position += source.transferTo(position, size - position, out.getChannel());
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Erzeugt einen neuen Hash.
+	 * 
+	 * @return Der Hash.
+	 */
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance(RenderCache.ALGORITHM);
+		} catch (final NoSuchAlgorithmException e) {
+			// SHA-1 gehört zu jeder Java-Plattform.
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Wandelt Bytes in eine hexadezimale Zeichenkette.
+	 * 
+	 * @param bytes
+	 *            Die Bytes.
+	 * @return Die Zeichenkette.
+	 */
+	private static String toHex(final byte[] bytes) {
+		final StringBuilder builder = new StringBuilder(bytes.length * 2);
+		
+		for (final byte element : bytes) {
+			builder.append(Character.forDigit((element >> 4) & 0xF, RenderCache.HEX_RADIX));
+			builder.append(Character.forDigit(element & 0xF, RenderCache.HEX_RADIX));
+		}
+		
+		return builder.toString();
+	}
+	
+}
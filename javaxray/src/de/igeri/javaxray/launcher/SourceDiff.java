@@ -0,0 +1,406 @@
+package de.igeri.javaxray.launcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.igeri.javaxray.generator.DiffGenerator;
+import de.igeri.javaxray.generator.DiffGenerator.Change;
+import de.igeri.javaxray.generator.DiffGenerator.Layout;
+import de.igeri.javaxray.java2box.Box;
+import de.igeri.javaxray.java2box.BoxSink;
+import de.igeri.javaxray.java2box.CompactBoxCollection;
+import de.igeri.javaxray.java2box.Fragment.Types;
+import de.igeri.javaxray.java2box.JavaSourceToBoxConverter;
+
+/**
+ * Vergleicht zwei Versionen einer Java-Datei zeilenweise mit dem {@link LineDiff} und übergibt die geänderten
+ * Ausschnitte samt Kontext an einen {@link DiffGenerator}. Nur die Ausschnitte werden zerlegt und gezeichnet, der
+ * unveränderte Rest wird lediglich einmal in Zeilen geteilt und verglichen. Jeder Ausschnitt wird für sich zerlegt,
+ * beginnt ein Ausschnitt mitten in einem Blockkommentar, wird sein Anfang also wie Code eingefärbt.
+ * 
+ * @author smolli
+ */
+final class SourceDiff {
+	
+	/** Die voreingestellte Anzahl unveränderter Zeilen vor und nach jeder Änderung. */
+	static final int DEFAULT_CONTEXT = 3;
+	
+	/** Die alte Version. */
+	private final char[] oldSource;
+	/** Die neue Version. */
+	private final char[] newSource;
+	/** Die Zeilenanfänge der alten Version, zuletzt ihre Länge. */
+	private final int[] oldStarts;
+	/** Die Zeilenanfänge der neuen Version, zuletzt ihre Länge. */
+	private final int[] newStarts;
+	/** Der Vergleich. */
+	private final LineDiff diff;
+	
+	/**
+	 * Empfängt die Boxen eines Ausschnitts und legt sie um eine feste Anzahl von Zeilen verschoben ab.
+	 * 
+	 * @author smolli
+	 */
+	private static final class ShiftedSink implements BoxSink {
+		
+		/** Das Ziel. */
+		private final CompactBoxCollection target;
+		/** Die Verschiebung in Pixeln. */
+		private final int yOffset;
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param target
+		 *            Das Ziel.
+		 * @param lines
+		 *            Die Verschiebung in Zeilen.
+		 */
+		ShiftedSink(final CompactBoxCollection target, final int lines) {
+			this.target = target;
+			this.yOffset = lines * (Box.LINE_HEIGHT + Box.BOX_GAP);
+		}
+		
+		@Override
+		public void boxTrigger(final int xPosition, final int yPosition, final int width, final Types type) {
+			this.target.add(xPosition, yPosition + this.yOffset, width, type);
+		}
+		
+		@Override
+		public void lineFeedTrigger(final int line) {
+			// Die Zeilen ergeben sich aus den Y-Positionen.
+		}
+		
+		@Override
+		public void endTrigger() {
+			// Weitere Ausschnitte folgen.
+		}
+	}
+	
+	/**
+	 * Ctor. Teilt beide Versionen in Zeilen und vergleicht sie. Zeilenenden werden dabei nicht beachtet.
+	 * 
+	 * @param oldSource
+	 *            Die alte Version.
+	 * @param newSource
+	 *            Die neue Version.
+	 */
+	SourceDiff(final char[] oldSource, final char[] newSource) {
+		final Map<String, Integer> ids = new HashMap<String, Integer>();
+		
+		this.oldSource = oldSource;
+		this.newSource = newSource;
+		this.oldStarts = SourceDiff.lineStarts(oldSource);
+		this.newStarts = SourceDiff.lineStarts(newSource);
+		this.diff = new LineDiff(SourceDiff.lineIds(oldSource, this.oldStarts, ids), SourceDiff.lineIds(newSource, this.newStarts, ids));
+	}
+	
+	/**
+	 * Gibt die Anzahl der entfernten Zeilen zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	int getRemoved() {
+		int count = 0;
+		
+		for (int i = 0; i < this.oldStarts.length - 1; i++) {
+			if (this.diff.isRemoved(i)) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Gibt die Anzahl der hinzugefügten Zeilen zurück.
+	 * 
+	 * @return Die Anzahl.
+	 */
+	int getAdded() {
+		int count = 0;
+		
+		for (int i = 0; i < this.newStarts.length - 1; i++) {
+			if (this.diff.isAdded(i)) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Zerlegt die geänderten Ausschnitte mit Kontext, legt die Bildzeilen im {@link DiffGenerator} an und zeichnet.
+	 * Zwischen zwei Ausschnitten steht eine Trennzeile. Bei {@link Layout#SideBySide} stehen entfernte und hinzugefügte
+	 * Zeilen einer Änderung paarweise nebeneinander, bei {@link Layout#Overlay} folgen die hinzugefügten den entfernten.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param generator
+	 *            Der Generator.
+	 * @param layout
+	 *            Die Anordnung des Generators.
+	 * @param context
+	 *            Die Anzahl unveränderter Zeilen vor und nach jeder Änderung.
+	 */
+	void render(final JavaSourceToBoxConverter converter, final DiffGenerator generator, final Layout layout, final int context) {
+		final int oldLines = this.oldStarts.length - 1;
+		final int newLines = this.newStarts.length - 1;
+		// Die Schritte vom Anfang bis zum Ende, -1 steht für eine fehlende Zeile.
+		final int[] stepOld = new int[oldLines + newLines];
+		final int[] stepNew = new int[oldLines + newLines];
+		int steps = 0;
+		
+		for (int i = 0, j = 0; (i < oldLines) || (j < newLines); steps++) {
+			if ((i < oldLines) && this.diff.isRemoved(i)) {
+				stepOld[steps] = i++;
+				stepNew[steps] = -1;
+			} else if ((j < newLines) && this.diff.isAdded(j)) {
+				stepOld[steps] = -1;
+				stepNew[steps] = j++;
+			} else {
+				stepOld[steps] = i++;
+				stepNew[steps] = j++;
+			}
+		}
+		
+		final CompactBoxCollection oldBoxes = new CompactBoxCollection();
+		final CompactBoxCollection newBoxes = new CompactBoxCollection();
+		int oldBase = 0;
+		int newBase = 0;
+		int step = 0;
+		
+		while (step < steps) {
+			if ((stepOld[step] >= 0) && (stepNew[step] >= 0)) {
+				step++;
+				continue;
+			}
+			
+			// Ausschnitt um die Änderung ab step, nahe Änderungen werden angeschlossen.
+			final int start = Math.max(step - context, 0);
+			int end = step;
+			int equal = 0;
+			
+			while ((end < steps) && (equal <= 2 * context)) {
+				equal = (stepOld[end] >= 0) && (stepNew[end] >= 0) ? equal + 1 : 0;
+				end++;
+			}
+			
+			end = Math.min(end - equal + context, steps);
+			
+			if (generator.getRows() > 0) {
+				generator.addRow(-1, -1, Change.Separator);
+			}
+			
+			final int oldFrom = this.firstLine(stepOld, start, end);
+			final int newFrom = this.firstLine(stepNew, start, end);
+			
+			this.addRows(generator, layout, stepOld, stepNew, start, end, oldBase - oldFrom, newBase - newFrom);
+			oldBase += SourceDiff.convert(converter, this.oldSource, this.oldStarts, stepOld, start, end, oldBoxes, oldBase);
+			newBase += SourceDiff.convert(converter, this.newSource, this.newStarts, stepNew, start, end, newBoxes, newBase);
+			step = end;
+		}
+		
+		generator.generate(oldBoxes, newBoxes);
+	}
+	
+	/**
+	 * Legt die Bildzeilen eines Ausschnitts an.
+	 * 
+	 * @param generator
+	 *            Der Generator.
+	 * @param layout
+	 *            Die Anordnung.
+	 * @param stepOld
+	 *            Die alte Zeile je Schritt oder <code>-1</code>.
+	 * @param stepNew
+	 *            Die neue Zeile je Schritt oder <code>-1</code>.
+	 * @param start
+	 *            Der erste Schritt.
+	 * @param end
+	 *            Das Ende (exklusiv).
+	 * @param oldShift
+	 *            Der Abstand von der alten Zeile zur Zeile in den alten Boxen.
+	 * @param newShift
+	 *            Der Abstand von der neuen Zeile zur Zeile in den neuen Boxen.
+	 */
+	private void addRows(final DiffGenerator generator, final Layout layout, final int[] stepOld, final int[] stepNew, final int start, final int end, final int oldShift, final int newShift) {
+		int step = start;
+		
+		while (step < end) {
+			if ((stepOld[step] >= 0) && (stepNew[step] >= 0)) {
+				generator.addRow(stepOld[step] + oldShift, stepNew[step] + newShift, Change.Unchanged);
+				step++;
+				continue;
+			}
+			
+			// Eine Änderung: erst alle entfernten, dann alle hinzugefügten Zeilen.
+			int removed = step;
+			
+			while ((removed < end) && (stepNew[removed] < 0)) {
+				removed++;
+			}
+			
+			int added = removed;
+			
+			while ((added < end) && (stepOld[added] < 0)) {
+				added++;
+			}
+			
+			if (layout == Layout.Overlay) {
+				for (int i = step; i < added; i++) {
+					if (i < removed) {
+						generator.addRow(stepOld[i] + oldShift, -1, Change.Removed);
+					} else {
+						generator.addRow(-1, stepNew[i] + newShift, Change.Added);
+					}
+				}
+			} else {
+				for (int i = 0; i < Math.max(removed - step, added - removed); i++) {
+					final int oldLine = step + i < removed ? stepOld[step + i] + oldShift : -1;
+					final int newLine = removed + i < added ? stepNew[removed + i] + newShift : -1;
+					
+					generator.addRow(oldLine, newLine, oldLine < 0 ? Change.Added : newLine < 0 ? Change.Removed : Change.Modified);
+				}
+			}
+			
+			step = added;
+		}
+	}
+	
+	/**
+	 * Gibt die erste Zeile eines Ausschnitts zurück.
+	 * 
+	 * @param lines
+	 *            Die Zeile je Schritt oder <code>-1</code>.
+	 * @param start
+	 *            Der erste Schritt.
+	 * @param end
+	 *            Das Ende (exklusiv).
+	 * @return Die erste Zeile oder <code>0</code>, wenn der Ausschnitt keine Zeile dieser Version enthält.
+	 */
+	private int firstLine(final int[] lines, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			if (lines[i] >= 0) {
+				return lines[i];
+			}
+		}
+		
+		return 0;
+	}
+	
+	/**
+	 * Zerlegt die Zeilen einer Version in einem Ausschnitt und hängt ihre Boxen an.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param source
+	 *            Die Version.
+	 * @param starts
+	 *            Die Zeilenanfänge der Version.
+	 * @param lines
+	 *            Die Zeile je Schritt oder <code>-1</code>.
+	 * @param start
+	 *            Der erste Schritt.
+	 * @param end
+	 *            Das Ende (exklusiv).
+	 * @param boxes
+	 *            Die Boxen aller Ausschnitte der Version.
+	 * @param base
+	 *            Die Zeile des Ausschnitts in den Boxen.
+	 * @return Gibt die Anzahl der Zeilen des Ausschnitts zurück.
+	 */
+	private static int convert(final JavaSourceToBoxConverter converter, final char[] source, final int[] starts, final int[] lines, final int start, final int end, final CompactBoxCollection boxes, final int base) {
+		int from = -1;
+		int to = -1;
+		
+		for (int i = start; i < end; i++) {
+			if (lines[i] >= 0) {
+				if (from < 0) {
+					from = lines[i];
+				}
+				
+				to = lines[i] + 1;
+			}
+		}
+		
+		if (from < 0) {
+			return 0;
+		}
+		
+		converter.convert(Arrays.copyOfRange(source, starts[from], starts[to]), new ShiftedSink(boxes, base));
+		
+		return to - from;
+	}
+	
+	/**
+	 * Ermittelt die Zeilenanfänge.
+	 * 
+	 * @param source
+	 *            Der Inhalt.
+	 * @return Die Zeilenanfänge, zuletzt die Länge des Inhalts.
+	 */
+	private static int[] lineStarts(final char[] source) {
+		int lines = 0;
+		
+		for (final char c : source) {
+			if (c == '\n') {
+				lines++;
+			}
+		}
+		
+		if ((source.length > 0) && (source[source.length - 1] != '\n')) {
+			lines++;
+		}
+		
+		final int[] starts = new int[lines + 1];
+		int line = 1;
+		
+		for (int i = 0; i < source.length; i++) {
+			if ((source[i] == '\n') && (line < lines)) {
+				starts[line++] = i + 1;
+			}
+		}
+		
+		starts[lines] = source.length;
+		
+		return starts;
+	}
+	
+	/**
+	 * Gibt jeder Zeile eine Zahl, gleiche Zeilen erhalten dieselbe Zahl.
+	 * 
+	 * @param source
+	 *            Der Inhalt.
+	 * @param starts
+	 *            Die Zeilenanfänge.
+	 * @param ids
+	 *            Die bisher vergebenen Zahlen je Zeileninhalt.
+	 * @return Die Zahl je Zeile.
+	 */
+	private static int[] lineIds(final char[] source, final int[] starts, final Map<String, Integer> ids) {
+		final int[] result = new int[starts.length - 1];
+		
+		for (int line = 0; line < result.length; line++) {
+			int end = starts[line + 1];
+			
+			while ((end > starts[line]) && ((source[end - 1] == '\n') || (source[end - 1] == '\r'))) {
+				end--;
+			}
+			
+			final String content = new String(source, starts[line], end - starts[line]);
+			Integer id = ids.get(content);
+			
+			if (id == null) {
+				id = Integer.valueOf(ids.size());
+				ids.put(content, id);
+			}
+			
+			result[line] = id.intValue();
+		}
+		
+		return result;
+	}
+	
+}
@@ -0,0 +1,552 @@
+package de.igeri.javaxray.launcher;
+
+import java.awt.Dimension;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.igeri.javaxray.generator.IncrementalPNGGenerator;
+import de.igeri.javaxray.generator.StreamingPNGGenerator.Format;
+import de.igeri.javaxray.java2box.IncrementalBoxLayout;
+import de.igeri.javaxray.java2box.JavaSourceToBoxConverter;
+
+/**
+ * Beobachtet Java-Dateien und Verzeichnisbäume über einen {@link WatchService} und zeichnet geänderte Dateien neu.
+ * Ereignisse werden gesammelt, bis eine Ruhezeit lang keine neuen mehr kommen, sodass z. B. ein Wechsel des Branches
+ * oder ein Formatierer nur eine Runde auslöst. Dann werden nur die geänderten Dateien an einen Threadpool mit fester
+ * Größe und beschränkter Warteschlange gegeben; ist sie voll, zeichnet der beobachtende Thread selbst und nimmt so
+ * lange keine Ereignisse an.
+ * <p>
+ * Bei PNG-Dateien in voller Größe im RGB-Format behält der Beobachter die Anordnung und die Pixel der zuletzt
+ * gezeichneten Dateien, siehe {@link IncrementalBoxLayout} und {@link IncrementalPNGGenerator}. Ändert sich eine davon
+ * erneut, werden nur die Zeilen um die Änderung neu zerlegt und gezeichnet.
+ * 
+ * @author smolli
+ */
+final class SourceWatcher implements Closeable {
+	
+	/** Logger. */
+	private static final Logger LOG = Logger.getAnonymousLogger();
+	/** Dateiendung der Java-Dateien. */
+	private static final String JAVA_SUFFIX = ".java";
+	/** Plätze in der Warteschlange je Thread. */
+	private static final int QUEUE_SLOTS_PER_THREAD = 2;
+	/** Ein Auftrag wartet höchstens so viele Ruhezeiten, auch wenn ständig neue Ereignisse kommen. */
+	private static final int MAX_DELAY_FACTOR = 10;
+	/** Die Anzahl der Dateien, deren Anordnung und Pixel für das schrittweise Neuzeichnen behalten werden. */
+	private static final int MAX_INCREMENTAL_FILES = 8;
+	/** Dateiendung der Bilder. */
+	private static final String PNG_SUFFIX = ".png";
+	/** Vorsilbe der Dateien, in die gezeichnet wird, bevor sie die Zieldatei ersetzen. */
+	private static final String TEMP_PREFIX = ".tmp-";
+	
+	/** Der Konverter, den sich alle Threads teilen. */
+	private final JavaSourceToBoxConverter converter;
+	/** Das Ausgabeformat. */
+	private final Format format;
+	/** Die Verkleinerung oder <code>null</code>. */
+	private final Dimension scale;
+	/** Der Cache der fertigen Bilder oder <code>null</code>. */
+	private final RenderCache cache;
+	/** Die Ruhezeit in Millisekunden. */
+	private final long quietPeriod;
+	/** Der {@link WatchService}. */
+	private final WatchService service;
+	/** Die beobachteten Verzeichnisse. */
+	private final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+	/** Die Verzeichnisse aus {@link #keys}, um schnell zu prüfen, ob eines schon angemeldet ist. */
+	private final Set<Path> directories = new HashSet<Path>();
+	/** Die rekursiv beobachteten Verzeichnisse mit ihrem Startverzeichnis. */
+	private final Map<Path, File> trees = new HashMap<Path, File>();
+	/** Die einzeln beobachteten Dateien mit ihrer PNG-Datei. */
+	private final Map<Path, File> files = new HashMap<Path, File>();
+	/** Das Ausgabeverzeichnis der Verzeichnisbäume oder <code>null</code>. */
+	private final File outRoot;
+	/** Die geänderten Dateien mit ihrer PNG-Datei, in der Reihenfolge der Ereignisse. */
+	private final Map<Path, File> pending = new LinkedHashMap<Path, File>();
+	/** Die gerade gezeichneten Dateien. */
+	private final Set<Path> running = Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+	/** Der Threadpool. */
+	private final ThreadPoolExecutor executor;
+	/** Die zuletzt gezeichneten Bilder mit ihrer Anordnung, das am längsten nicht gezeichnete zuerst. */
+	private final Map<Path, IncrementalPNGGenerator> images = new LinkedHashMap<Path, IncrementalPNGGenerator>(16, 0.75f, true);
+	/** Der Zeitpunkt des ersten gesammelten Ereignisses. */
+	private long firstEvent;
+	/** Der Zeitpunkt des letzten gesammelten Ereignisses. */
+	private long lastEvent;
+	
+	/**
+	 * Ctor.
+	 * 
+	 * @param converter
+	 *            Der Konverter.
+	 * @param format
+	 *            Das Ausgabeformat.
+	 * @param scale
+	 *            Zeichen und Zeilen je Pixel eines verkleinerten Bildes oder <code>null</code>.
+	 * @param cache
+	 *            Der Cache der fertigen Bilder oder <code>null</code>.
+	 * @param outRoot
+	 *            Das Ausgabeverzeichnis der Verzeichnisbäume oder <code>null</code>.
+	 * @param threads
+	 *            Die Anzahl der Threads zum Zeichnen.
+	 * @param quietPeriod
+	 *            Die Ruhezeit in Millisekunden.
+	 * @throws IOException
+	 *             Wird geworfen, wenn der {@link WatchService} nicht angelegt werden konnte.
+	 */
+	SourceWatcher(final JavaSourceToBoxConverter converter, final Format format, final Dimension scale, final RenderCache cache, final File outRoot, final int threads, final long quietPeriod) throws IOException {
+		this.converter = converter;
+		this.format = format;
+		this.scale = scale;
+		this.cache = cache;
+		this.outRoot = outRoot;
+		this.quietPeriod = quietPeriod;
+		this.service = FileSystems.getDefault().newWatchService();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(threads * SourceWatcher.QUEUE_SLOTS_PER_THREAD), new ThreadFactory() {
+			
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "javaxray-watch-" + this.count.incrementAndGet());
+				
+				thread.setDaemon(true);
+				
+				return thread;
+			}
+			
+		}, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+	
+	/**
+	 * Beobachtet eine einzelne Java-Datei.
+	 * 
+	 * @param file
+	 *            Die Java-Datei.
+	 * @param target
+	 *            Die PNG-Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das Verzeichnis nicht beobachtet werden kann.
+	 */
+	void watchFile(final File file, final File target) throws IOException {
+		final Path path = file.getAbsoluteFile().toPath();
+		
+		this.files.put(path, target);
+		this.register(path.getParent());
+	}
+	
+	/**
+	 * Beobachtet einen Verzeichnisbaum einschließlich später angelegter Unterverzeichnisse.
+	 * 
+	 * @param root
+	 *            Das Startverzeichnis.
+	 * @throws IOException
+	 *             Wird geworfen, wenn ein Verzeichnis nicht beobachtet werden kann.
+	 */
+	void watchTree(final File root) throws IOException {
+		this.registerTree(root.getAbsoluteFile().toPath(), root, false);
+	}
+	
+	/**
+	 * Meldet alle Verzeichnisse unterhalb eines Verzeichnisses an.
+	 * 
+	 * @param start
+	 *            Das Verzeichnis.
+	 * @param root
+	 *            Das Startverzeichnis des Baums.
+	 * @param schedule
+	 *            Ob die gefundenen Java-Dateien gezeichnet werden sollen, etwa bei einem neu angelegten Verzeichnis.
+	 * @throws IOException
+	 *             Wird geworfen, wenn ein Verzeichnis nicht beobachtet werden kann.
+	 */
+	private void registerTree(final Path start, final File root, final boolean schedule) throws IOException {
+		Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+			
+			@Override
+			public FileVisitResult preVisitDirectory(final Path directory, final BasicFileAttributes attributes) throws IOException {
+				SourceWatcher.this.trees.put(directory, root);
+				SourceWatcher.this.register(directory);
+				
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+				if (schedule && SourceWatcher.isJavaFile(file)) {
+					SourceWatcher.this.schedule(file, Console.target(file.toFile(), root, SourceWatcher.this.outRoot));
+				}
+				
+				return FileVisitResult.CONTINUE;
+			}
+			
+		});
+	}
+	
+	/**
+	 * Meldet ein einzelnes Verzeichnis beim {@link WatchService} an.
+	 * 
+	 * @param directory
+	 *            Das Verzeichnis.
+	 * @throws IOException
+	 *             Wird geworfen, wenn das Verzeichnis nicht beobachtet werden kann.
+	 */
+	private void register(final Path directory) throws IOException {
+		if (!this.directories.contains(directory)) {
+			this.keys.put(directory.register(this.service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), directory);
+			this.directories.add(directory);
+		}
+	}
+	
+	/**
+	 * Verarbeitet Ereignisse, bis der Thread unterbrochen wird.
+	 * 
+	 * @throws InterruptedException
+	 *             Wird geworfen, wenn der Thread unterbrochen wurde.
+	 */
+	void run() throws InterruptedException {
+		while (!this.keys.isEmpty()) {
+			final WatchKey key;
+			
+			if (this.pending.isEmpty()) {
+				key = this.service.take();
+			} else {
+				key = this.service.poll(Math.max(this.getDelay(), 1L), TimeUnit.MILLISECONDS);
+			}
+			
+			if (key != null) {
+				this.process(key);
+			}
+			
+			if (!this.pending.isEmpty() && (this.getDelay() <= 0)) {
+				this.dispatch();
+			}
+		}
+	}
+	
+	/**
+	 * Gibt die Zeit bis zum Ende der Ruhezeit zurück. Damit eine Folge von Ereignissen ohne Pause die Aufträge nicht
+	 * unbegrenzt zurückhält, ist die Wartezeit ab dem ersten Ereignis beschränkt.
+	 * 
+	 * @return Die Zeit in Millisekunden, höchstens <code>0</code>, wenn gezeichnet werden soll.
+	 */
+	private long getDelay() {
+		final long settled = Math.min(this.lastEvent + this.quietPeriod, this.firstEvent + this.quietPeriod * SourceWatcher.MAX_DELAY_FACTOR);
+		
+		return settled - System.currentTimeMillis();
+	}
+	
+	/**
+	 * Sammelt die Ereignisse eines Verzeichnisses.
+	 * 
+	 * @param key
+	 *            Der Schlüssel des Verzeichnisses.
+	 */
+	private void process(final WatchKey key) {
+		final Path directory = this.keys.get(key);
+		
+		for (final WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				// Ereignisse sind verloren gegangen, also wird das ganze Verzeichnis neu gezeichnet.
+				this.rescan(directory);
+				
+				continue;
+			}
+			
+			final Path path = directory.resolve((Path) event.context());
+			final File root = this.trees.get(directory);
+			
+			if ((root != null) && (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) && Files.isDirectory(path)) {
+				try {
+					this.registerTree(path, root, true);
+				} catch (final IOException e) {
+					SourceWatcher.LOG.log(Level.WARNING, "Cannot watch " + path, e);
+				}
+			} else if ((root != null) && SourceWatcher.isJavaFile(path)) {
+				this.schedule(path, Console.target(path.toFile(), root, this.outRoot));
+			} else if (this.files.containsKey(path)) {
+				this.schedule(path, this.files.get(path));
+			}
+		}
+		
+		if (!key.reset()) {
+			this.keys.remove(key);
+			this.directories.remove(directory);
+			this.trees.remove(directory);
+		}
+	}
+	
+	/**
+	 * Merkt alle Java-Dateien eines Verzeichnisses zum Zeichnen vor.
+	 * 
+	 * @param directory
+	 *            Das Verzeichnis.
+	 */
+	private void rescan(final Path directory) {
+		final File root = this.trees.get(directory);
+		
+		try {
+			if (root != null) {
+				this.registerTree(directory, root, true);
+			}
+		} catch (final IOException e) {
+			SourceWatcher.LOG.log(Level.WARNING, "Cannot rescan " + directory, e);
+		}
+		
+		for (final Map.Entry<Path, File> entry : this.files.entrySet()) {
+			if (entry.getKey().getParent().equals(directory)) {
+				this.schedule(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+	
+	/**
+	 * Merkt eine Datei zum Zeichnen vor.
+	 * 
+	 * @param path
+	 *            Die Java-Datei.
+	 * @param target
+	 *            Die PNG-Datei.
+	 */
+	private void schedule(final Path path, final File target) {
+		final long now = System.currentTimeMillis();
+		
+		if (this.pending.isEmpty()) {
+			this.firstEvent = now;
+		}
+		
+		this.lastEvent = now;
+		this.pending.put(path, target);
+	}
+	
+	/**
+	 * Gibt die gesammelten Dateien an den Threadpool. Dateien, die noch gezeichnet werden, bleiben vorgemerkt und kommen
+	 * nach einer weiteren Ruhezeit an die Reihe. Vorher wird der Cache auf seine Größe gebracht, sonst wüchse er, solange
+	 * beobachtet wird, um die Bilder der vorherigen Runden.
+	 */
+	private void dispatch() {
+		final List<Path> deferred = new ArrayList<Path>();
+		int count = 0;
+		
+		if (this.cache != null) {
+			this.cache.evict();
+		}
+		
+		for (final Iterator<Map.Entry<Path, File>> iterator = this.pending.entrySet().iterator(); iterator.hasNext();) {
+			final Map.Entry<Path, File> entry = iterator.next();
+			final Path path = entry.getKey();
+			
+			if (!this.running.add(path)) {
+				deferred.add(path);
+				
+				continue;
+			}
+			
+			iterator.remove();
+			count++;
+			
+			this.executor.execute(new Render(path, entry.getValue()));
+		}
+		
+		if (!deferred.isEmpty()) {
+			this.firstEvent = System.currentTimeMillis();
+			this.lastEvent = this.firstEvent;
+		}
+		
+		SourceWatcher.LOG.info(String.format("%d changed files queued, %d deferred.", count, deferred.size()));
+	}
+	
+	/**
+	 * Prüft, ob eine Datei schrittweise neu gezeichnet werden kann. Das geht nur bei PNG-Dateien in voller Größe im
+	 * RGB-Format.
+	 * 
+	 * @param target
+	 *            Die Zieldatei.
+	 * @return Gibt <code>true</code> zurück, wenn sie schrittweise gezeichnet werden kann.
+	 */
+	private boolean isIncremental(final File target) {
+		return (this.format == Format.Rgb) && (this.scale == null) && target.getName().endsWith(SourceWatcher.PNG_SUFFIX);
+	}
+	
+	/**
+	 * Zeichnet eine Datei schrittweise neu. Ist ihr Bild noch vorhanden, werden nur die Zeilen zwischen dem gemeinsamen
+	 * Anfang und dem gemeinsamen Ende des alten und des neuen Textes neu zerlegt und gezeichnet.
+	 * 
+	 * @param source
+	 *            Die Java-Datei.
+	 * @param target
+	 *            Die PNG-Datei.
+	 * @throws IOException
+	 *             Wird geworfen, wenn die Datei nicht gelesen oder das Bild nicht geschrieben werden konnte.
+	 */
+	private void renderIncremental(final Path source, final File target) throws IOException {
+		final char[] text = this.converter.readFile(source.toFile());
+		IncrementalPNGGenerator image;
+		
+		// Herausnehmen, damit ein Fehler mitten in der Änderung kein halb geändertes Bild zurücklässt.
+		synchronized (this.images) {
+			image = this.images.remove(source);
+		}
+		
+		if (image == null) {
+			image = new IncrementalPNGGenerator(new IncrementalBoxLayout(text));
+		} else {
+			final IncrementalBoxLayout layout = image.getLayout();
+			final char[] old = layout.getText();
+			final int common = Math.min(old.length, text.length);
+			int prefix = 0;
+			int suffix = 0;
+			
+			while ((prefix < common) && (old[prefix] == text[prefix])) {
+				prefix++;
+			}
+			
+			while ((suffix < common - prefix) && (old[old.length - suffix - 1] == text[text.length - suffix - 1])) {
+				suffix++;
+			}
+			
+			image.update(layout.edit(prefix, old.length - prefix - suffix, Arrays.copyOfRange(text, prefix, text.length - suffix)));
+		}
+		
+		image.save(target);
+		
+		synchronized (this.images) {
+			this.images.put(source, image);
+			
+			if (this.images.size() > SourceWatcher.MAX_INCREMENTAL_FILES) {
+				this.images.remove(this.images.keySet().iterator().next());
+			}
+		}
+		
+		if (this.cache != null) {
+			this.cache.store(this.cache.key(text), target);
+		}
+	}
+	
+	/**
+	 * Prüft, ob es sich um eine Java-Datei handelt.
+	 * 
+	 * @param path
+	 *            Der Pfad.
+	 * @return Gibt <code>true</code> zurück, wenn der Name auf <code>.java</code> endet.
+	 */
+	private static boolean isJavaFile(final Path path) {
+		return path.getFileName().toString().endsWith(SourceWatcher.JAVA_SUFFIX);
+	}
+	
+	/**
+	 * Beendet die Beobachtung und wartet auf die laufenden Aufträge.
+	 * 
+	 * @throws IOException
+	 *             Wird geworfen, wenn der {@link WatchService} nicht geschlossen werden konnte.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.executor.shutdown();
+		
+		try {
+			this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.service.close();
+		}
+	}
+	
+	/**
+	 * Zeichnet eine einzelne Datei neu oder löscht das Bild einer gelöschten Datei. Gezeichnet wird in eine Datei neben
+	 * dem Bild, die es erst am Ende ersetzt, damit ein Abbruch mitten im Schreiben kein halbes Bild hinterlässt.
+	 * 
+	 * @author smolli
+	 */
+	private final class Render implements Runnable {
+		
+		/** Die Java-Datei. */
+		private final Path source;
+		/** Die PNG-Datei. */
+		private final File target;
+		
+		/**
+		 * Ctor.
+		 * 
+		 * @param source
+		 *            Die Java-Datei.
+		 * @param target
+		 *            Die PNG-Datei.
+		 */
+		Render(final Path source, final File target) {
+			this.source = source;
+			this.target = target;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				if (Files.isRegularFile(this.source)) {
+					BatchPipeline.createDirectory(this.target.getParentFile());
+					
+					// Gleiche Endung wie das Ziel, daran wird das Ausgabeformat erkannt.
+					final File temp = new File(this.target.getAbsoluteFile().getParentFile(), SourceWatcher.TEMP_PREFIX + this.target.getName());
+					
+					try {
+						if (SourceWatcher.this.isIncremental(this.target)) {
+							SourceWatcher.this.renderIncremental(this.source, temp);
+						} else {
+							Console.convertFile(SourceWatcher.this.converter, this.source.toString(), temp.getPath(), SourceWatcher.this.format, SourceWatcher.this.scale, SourceWatcher.this.cache);
+						}
+						
+						if (temp.isFile()) {
+							Files.move(temp.toPath(), this.target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+						}
+					} finally {
+						Files.deleteIfExists(temp.toPath());
+					}
+					
+					SourceWatcher.LOG.fine("Rendered " + this.source);
+				} else {
+					synchronized (SourceWatcher.this.images) {
+						SourceWatcher.this.images.remove(this.source);
+					}
+					
+					if (this.target.delete()) {
+						SourceWatcher.LOG.fine("Deleted " + this.target);
+					}
+				}
+			} catch (final Exception e) { // NOPMD
+				SourceWatcher.LOG.log(Level.WARNING, "Cannot render " + this.source, e);
+			} finally {
+				SourceWatcher.this.running.remove(this.source);
+			}
+		}
+	}
+	
+}